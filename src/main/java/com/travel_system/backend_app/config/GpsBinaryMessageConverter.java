@@ -0,0 +1,81 @@
+package com.travel_system.backend_app.config;
+
+import com.travel_system.backend_app.model.dtos.mensageria.MessagingDTO;
+import com.travel_system.backend_app.model.dtos.route.GpsPayload;
+import com.travel_system.backend_app.utils.GpsBinaryCodec;
+import com.travel_system.backend_app.utils.GpsBinaryCodec.GpsFix;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+/*
+ * GpsPayload/MessagingDTO no formato binário compacto quando habilitado; o resto (e a leitura de
+ * mensagens sem o content-type binário) continua no conversor JSON
+ */
+public class GpsBinaryMessageConverter implements MessageConverter {
+
+    public static final String CONTENT_TYPE_GPS_BINARY = "application/vnd.tg.gps.v1+octet-stream";
+
+    // qual record foi codificado, para decodificar no mesmo tipo
+    public static final String GPS_TYPE_HEADER = "x-gps-type";
+    private static final String GPS_PAYLOAD_TYPE = "payload";
+    private static final String MESSAGING_TYPE = "messaging";
+
+    private final MessageConverter jsonMessageConverter;
+    private final boolean binaryEnabled;
+
+    public GpsBinaryMessageConverter(MessageConverter jsonMessageConverter, boolean binaryEnabled) {
+        this.jsonMessageConverter = jsonMessageConverter;
+        this.binaryEnabled = binaryEnabled;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) throws MessageConversionException {
+        if (binaryEnabled && object instanceof GpsPayload gpsPayload && gpsPayload.travelId() != null) {
+            GpsFix fix = new GpsFix(gpsPayload.travelId(), gpsPayload.latitude(), gpsPayload.longitude(), gpsPayload.speed(), gpsPayload.heading(), gpsPayload.timestamp());
+            return binaryMessage(fix, GPS_PAYLOAD_TYPE, messageProperties);
+        }
+
+        if (binaryEnabled && object instanceof MessagingDTO messagingDTO && messagingDTO.travelId() != null) {
+            GpsFix fix = new GpsFix(messagingDTO.travelId(), messagingDTO.latitude(), messagingDTO.longitude(), messagingDTO.speed(), messagingDTO.heading(), messagingDTO.timestamp());
+            return binaryMessage(fix, MESSAGING_TYPE, messageProperties);
+        }
+
+        return jsonMessageConverter.toMessage(object, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws MessageConversionException {
+        MessageProperties properties = message.getMessageProperties();
+
+        if (!CONTENT_TYPE_GPS_BINARY.equals(properties.getContentType())) {
+            return jsonMessageConverter.fromMessage(message);
+        }
+
+        GpsFix fix;
+        try {
+            fix = GpsBinaryCodec.decode(message.getBody());
+        } catch (IllegalArgumentException e) {
+            throw new MessageConversionException(e.getMessage(), e);
+        }
+
+        if (MESSAGING_TYPE.equals(properties.getHeader(GPS_TYPE_HEADER))) {
+            return new MessagingDTO(fix.latitude(), fix.longitude(), fix.heading(), fix.speed(), fix.timestamp(), fix.travelId());
+        }
+
+        return new GpsPayload(fix.latitude(), fix.longitude(), fix.speed(), fix.heading(), fix.timestamp(), fix.travelId());
+    }
+
+    private Message binaryMessage(GpsFix fix, String type, MessageProperties messageProperties) {
+        if (fix.latitude() == null || fix.longitude() == null) {
+            throw new MessageConversionException("Coordenadas ausentes no payload de GPS");
+        }
+
+        messageProperties.setContentType(CONTENT_TYPE_GPS_BINARY);
+        messageProperties.setContentLength(GpsBinaryCodec.ENCODED_SIZE);
+        messageProperties.setHeader(GPS_TYPE_HEADER, type);
+
+        return new Message(GpsBinaryCodec.encode(fix), messageProperties);
+    }
+}
@@ -0,0 +1,26 @@
+package com.travel_system.backend_app.config;
+
+import com.travel_system.backend_app.interfaces.GpsFixFilter;
+import com.travel_system.backend_app.utils.KalmanGpsFilter;
+import com.travel_system.backend_app.utils.PassThroughGpsFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class GpsFilterConfig {
+
+    // gps.filter.mode=kalman (padrão) suaviza o ruído e descarta saltos; none repassa o ping bruto
+    @Bean
+    public GpsFixFilter gpsFixFilter(@Value("${gps.filter.mode:kalman}") String mode,
+                                     @Value("${gps.filter.position-noise-meters:10}") double positionNoiseMeters,
+                                     @Value("${gps.filter.speed-noise-mps:1.0}") double speedNoiseMps,
+                                     @Value("${gps.filter.acceleration-noise-mps2:1.5}") double accelerationNoiseMps2,
+                                     @Value("${gps.filter.max-speed-mps:45}") double maxSpeedMps) {
+        if ("none".equalsIgnoreCase(mode)) {
+            return new PassThroughGpsFilter();
+        }
+
+        return new KalmanGpsFilter(positionNoiseMeters, speedNoiseMps, accelerationNoiseMps2, maxSpeedMps);
+    }
+}
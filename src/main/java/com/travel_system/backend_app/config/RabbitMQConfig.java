@@ -4,6 +4,7 @@ import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -89,10 +90,12 @@ public class RabbitMQConfig {
         return new Jackson2JsonMessageConverter();
     }
 
+    // gps.wire-format=binary publica os pontos de GPS no layout binário compacto (content-type próprio);
+    // o conversor fica só no template para os listeners continuarem com o JSON
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, Jackson2JsonMessageConverter messageConverter) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, Jackson2JsonMessageConverter messageConverter, @Value("${gps.wire-format:json}") String gpsWireFormat) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
-        rabbitTemplate.setMessageConverter(messageConverter);
+        rabbitTemplate.setMessageConverter(new GpsBinaryMessageConverter(messageConverter, "binary".equalsIgnoreCase(gpsWireFormat)));
         return rabbitTemplate;
     }
 
@@ -1,9 +1,16 @@
 package com.travel_system.backend_app.config;
 
+import com.travel_system.backend_app.listeners.ActiveTravelInvalidationListener;
+import com.travel_system.backend_app.listeners.DeviceTokenInvalidationListener;
+import com.travel_system.backend_app.listeners.TravelRosterInvalidationListener;
+import com.travel_system.backend_app.service.ActiveTravelRegistryService;
+import com.travel_system.backend_app.service.DeviceTokenCacheService;
+import com.travel_system.backend_app.service.TravelRosterService;
 import org.springframework.boot.autoconfigure.cache.RedisCacheManagerBuilderCustomizer;
 import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisPassword;
@@ -11,6 +18,9 @@ import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -36,6 +46,25 @@ public class RedisConfig {
         return redisTemplate;
     }
 
+    // script do ping: o RedisTemplate usa EVALSHA e só reenvia o script (EVAL) se o servidor não o tiver em cache
+    @Bean
+    public RedisScript<String> applyPingScript() {
+        return RedisScript.of(new ClassPathResource("scripts/apply_ping.lua"), String.class);
+    }
+
+    // invalidação do registro de viagens ativas entre instâncias
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory, ActiveTravelInvalidationListener activeTravelInvalidationListener, TravelRosterInvalidationListener travelRosterInvalidationListener, DeviceTokenInvalidationListener deviceTokenInvalidationListener) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(activeTravelInvalidationListener, new ChannelTopic(ActiveTravelRegistryService.INVALIDATION_CHANNEL));
+        container.addMessageListener(travelRosterInvalidationListener, new ChannelTopic(TravelRosterService.INVALIDATION_CHANNEL));
+        container.addMessageListener(deviceTokenInvalidationListener, new ChannelTopic(DeviceTokenCacheService.INVALIDATION_CHANNEL));
+
+        return container;
+    }
+
     @Bean
     public RedisCacheConfiguration cacheConfiguration() {
         return RedisCacheConfiguration
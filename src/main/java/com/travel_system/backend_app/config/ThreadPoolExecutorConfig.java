@@ -1,6 +1,12 @@
 package com.travel_system.backend_app.config;
 
 import com.travel_system.backend_app.service.AsyncNotificationService;
+import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
+import com.travel_system.backend_app.utils.FcmSendWindow;
+import com.travel_system.backend_app.utils.LatestWinsMailbox;
+import com.travel_system.backend_app.utils.TravelLaneExecutor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -19,8 +25,9 @@ public class ThreadPoolExecutorConfig {
     public ThreadPoolTaskExecutor notificationTaskExecutor() {
         int MAXIMUM_QUEUE_CAPACITY = 100;
         int KEEP_ALIVE_TIME_SECONDS = 1;
-        int CORE_POOL_SIZE = 5;
-        int MAXIMUM_POOL_SIZE = 10;
+        // tarefas curtas: o envio ao FCM é assíncrono (FcmSendWindow), a thread não espera a resposta
+        int CORE_POOL_SIZE = 2;
+        int MAXIMUM_POOL_SIZE = 4;
 
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
 
@@ -40,5 +47,40 @@ public class ThreadPoolExecutorConfig {
         return executor;
     }
 
+    // callbacks dos envios ao FCM (desativação de tokens, logs): fora da thread de I/O do FCM
+    @Bean
+    public ThreadPoolTaskExecutor fcmCallbackExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setThreadNamePrefix("FCM-Callback-");
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.initialize();
 
+        return executor;
+    }
+
+    // envios ao FCM são assíncronos: a janela limita quantos ficam em voo, sem segurar as threads de notificação
+    @Bean
+    public FcmSendWindow fcmSendWindow(@Qualifier("fcmCallbackExecutor") ThreadPoolTaskExecutor fcmCallbackExecutor,
+                                       @Value("${notification.fcm.max-in-flight:16}") int maxInFlight,
+                                       @Value("${notification.fcm.acquire-timeout-ms:2000}") long acquireTimeoutMillis) {
+        return new FcmSendWindow(maxInFlight, acquireTimeoutMillis, fcmCallbackExecutor);
+    }
+
+    // faixas seriais por viagem para os eventos de localização (ordem garantida por travelId)
+    @Bean(destroyMethod = "shutdown")
+    public TravelLaneExecutor travelLaneExecutor(@Value("${tracking.lanes.count:0}") int laneCount,
+                                                 @Value("${tracking.lanes.queue-capacity:1000}") int queueCapacity) {
+        // 0 = duas faixas por núcleo
+        int lanes = laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors() * 2;
+
+        return new TravelLaneExecutor(lanes, queueCapacity);
+    }
+
+    // ping mais recente pendente por viagem na frente do rastreamento em tempo real
+    @Bean
+    public LatestWinsMailbox<VehicleLocationRequestDTO> liveTrackingMailbox() {
+        return new LatestWinsMailbox<>();
+    }
 }
@@ -1,9 +1,16 @@
 package com.travel_system.backend_app.config;
 
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class WebClientConfig {
@@ -11,10 +18,24 @@ public class WebClientConfig {
     @Value("${mapbox.base-url}")
     private String mapboxBaseUrl;
 
+    @Value("${mapbox.connect-timeout-ms:2000}")
+    private int connectTimeoutMillis;
+
+    @Value("${mapbox.read-timeout-ms:5000}")
+    private long readTimeoutMillis;
+
     @Bean
     public WebClient webClient() {
+        // sem timeout a lentidão do mapbox segura as threads indefinidamente
+        HttpClient httpClient = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis)
+                .responseTimeout(Duration.ofMillis(readTimeoutMillis))
+                .doOnConnected(connection -> connection
+                        .addHandlerLast(new ReadTimeoutHandler(readTimeoutMillis, TimeUnit.MILLISECONDS)));
+
         return WebClient.builder()
                 .baseUrl(mapboxBaseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .build();
     }
 }
@@ -1,9 +1,9 @@
 package com.travel_system.backend_app.controller;
 
-import com.travel_system.backend_app.exceptions.TripNotFound;
+import com.travel_system.backend_app.exceptions.DomainValidationException;
+import com.travel_system.backend_app.model.dtos.request.GpsBatchRequestDTO;
 import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
-import com.travel_system.backend_app.model.enums.TravelStatus;
-import com.travel_system.backend_app.repository.TravelRepository;
+import com.travel_system.backend_app.service.ActiveTravelRegistryService;
 import com.travel_system.backend_app.service.GpsDataIngestorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,20 +17,20 @@ import java.util.UUID;
 @RequestMapping("/api/v1/gps")
 public class GpsController {
     private final GpsDataIngestorService gpsDataIngestorService;
-    private final TravelRepository travelRepository;
+    private final ActiveTravelRegistryService activeTravelRegistryService;
 
     private final Logger log = LoggerFactory.getLogger(GpsController.class);
 
-    public GpsController(GpsDataIngestorService gpsDataIngestorService, TravelRepository travelRepository) {
+    public GpsController(GpsDataIngestorService gpsDataIngestorService, ActiveTravelRegistryService activeTravelRegistryService) {
         this.gpsDataIngestorService = gpsDataIngestorService;
-        this.travelRepository = travelRepository;
+        this.activeTravelRegistryService = activeTravelRegistryService;
     }
 
     @PostMapping("/updateGpsData")
     @PreAuthorize("hasRole('DRIVER')")
     public ResponseEntity<Void> vehicleGps(@RequestParam("city") String city, @RequestParam("travelId") String travelId, @RequestBody VehicleLocationRequestDTO vehicleLocation) {
         UUID travelConvertedId = UUID.fromString(travelId);
-        boolean existsTravel = travelRepository.existsByIdAndTravelStatus(travelConvertedId, TravelStatus.TRAVELLING);
+        boolean existsTravel = activeTravelRegistryService.find(travelConvertedId).isPresent();
 
         if (!existsTravel) {
             log.warn("Viagem não encontrada ou não está em andamento. Não envia nada ao rabbitmq: {} ", travelId);
@@ -42,4 +42,33 @@ public class GpsController {
         log.info("Viagem mapeada com sucesso, enviando os dados ao rabbitmq... {} ", travelId);
         return ResponseEntity.accepted().build();
     }
+
+    // pings acumulados offline (trechos rurais sem sinal) reenviados em uma única requisição
+    @PostMapping("/updateGpsDataBatch")
+    @PreAuthorize("hasRole('DRIVER')")
+    public ResponseEntity<Void> vehicleGpsBatch(@RequestParam("city") String city, @RequestParam("travelId") String travelId, @RequestBody GpsBatchRequestDTO gpsBatchRequest) {
+        UUID travelConvertedId = UUID.fromString(travelId);
+
+        if (gpsBatchRequest.pings() == null || gpsBatchRequest.pings().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // o lote traz a própria viagem: não pode divergir da viagem da requisição (routing key e histórico)
+        if (gpsBatchRequest.travelId() != null && !gpsBatchRequest.travelId().equals(travelConvertedId)) {
+            throw new DomainValidationException("travelId do lote diferente do travelId da requisição: " + travelId);
+        }
+
+        // a viagem é validada uma vez para o lote inteiro
+        boolean existsTravel = activeTravelRegistryService.find(travelConvertedId).isPresent();
+
+        if (!existsTravel) {
+            log.warn("Viagem não encontrada ou não está em andamento. Lote descartado: {} ", travelId);
+            return ResponseEntity.badRequest().build();
+        }
+
+        gpsDataIngestorService.sendVehicleGpsBatch(city, travelId, gpsBatchRequest.pings());
+
+        log.info("Lote de {} pings recebido, enviando ao rabbitmq... {} ", gpsBatchRequest.pings().size(), travelId);
+        return ResponseEntity.accepted().build();
+    }
 }
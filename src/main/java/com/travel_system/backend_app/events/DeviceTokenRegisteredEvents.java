@@ -0,0 +1,7 @@
+package com.travel_system.backend_app.events;
+
+import java.util.UUID;
+
+// token registrado para o aluno; previousStudentId quando o aparelho pertencia a outro aluno
+public record DeviceTokenRegisteredEvents(UUID studentId, UUID previousStudentId, String token) {
+}
@@ -0,0 +1,7 @@
+package com.travel_system.backend_app.events;
+
+import java.util.UUID;
+
+// aluno definiu/moveu o ponto de embarque - o roster em memória é atualizado sem recarga
+public record StudentPositionChangedEvents(UUID travelId, UUID studentId, Double latitude, Double longitude) {
+}
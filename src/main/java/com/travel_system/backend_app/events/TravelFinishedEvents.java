@@ -0,0 +1,7 @@
+package com.travel_system.backend_app.events;
+
+import java.util.UUID;
+
+// viagem encerrada (endTravel ou auto-healing) - libera o estado em memória da viagem
+public record TravelFinishedEvents(UUID travelId) {
+}
@@ -0,0 +1,7 @@
+package com.travel_system.backend_app.events;
+
+import java.util.UUID;
+
+// aluno entrou (joined) ou saiu da viagem - inscrição no tópico FCM da viagem
+public record TravelMembershipChangedEvents(UUID travelId, UUID studentId, boolean joined) {
+}
@@ -0,0 +1,7 @@
+package com.travel_system.backend_app.events;
+
+import java.util.UUID;
+
+// aluno entrou/saiu da viagem - o roster em memória precisa ser recarregado
+public record TravelRosterChangedEvents(UUID travelId) {
+}
@@ -0,0 +1,9 @@
+package com.travel_system.backend_app.events;
+
+import com.travel_system.backend_app.model.dtos.ActiveTravelSnapshotDTO;
+
+import java.util.UUID;
+
+// viagem iniciada - publica a fotografia da viagem no registro em memória depois do commit
+public record TravelStartedEvents(UUID travelId, ActiveTravelSnapshotDTO snapshot) {
+}
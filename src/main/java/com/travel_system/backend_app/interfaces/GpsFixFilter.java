@@ -0,0 +1,15 @@
+package com.travel_system.backend_app.interfaces;
+
+import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface GpsFixFilter {
+    // estágio de filtragem por viagem aplicado antes de qualquer consumidor do ping
+
+    // devolve o ping filtrado ou vazio quando ele deve ser descartado (salto fisicamente impossível)
+    Optional<VehicleLocationRequestDTO> filter(VehicleLocationRequestDTO fix, long timestampMillis);
+
+    void release(UUID travelId);
+}
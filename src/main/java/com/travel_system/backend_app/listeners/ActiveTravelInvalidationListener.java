@@ -0,0 +1,34 @@
+package com.travel_system.backend_app.listeners;
+
+import com.travel_system.backend_app.service.TravelStateReleaseService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+// outra instância encerrou a viagem: libera todo o estado local dela (registro, filtro, janela, caixa...)
+@Component
+public class ActiveTravelInvalidationListener implements MessageListener {
+    private final TravelStateReleaseService travelStateReleaseService;
+
+    private static final Logger logger = LoggerFactory.getLogger(ActiveTravelInvalidationListener.class);
+
+    public ActiveTravelInvalidationListener(TravelStateReleaseService travelStateReleaseService) {
+        this.travelStateReleaseService = travelStateReleaseService;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String travelId = new String(message.getBody(), StandardCharsets.UTF_8);
+
+        try {
+            travelStateReleaseService.releaseLocal(UUID.fromString(travelId));
+        } catch (IllegalArgumentException e) {
+            logger.warn("[ActiveTravelRegistry] Mensagem de invalidação inválida: {}", travelId);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.travel_system.backend_app.listeners;
+
+import com.travel_system.backend_app.service.DeviceTokenCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+// outra instância registrou/alterou token de um aluno: descarta os tokens locais dele
+@Component
+public class DeviceTokenInvalidationListener implements MessageListener {
+    private final DeviceTokenCacheService deviceTokenCacheService;
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceTokenInvalidationListener.class);
+
+    public DeviceTokenInvalidationListener(DeviceTokenCacheService deviceTokenCacheService) {
+        this.deviceTokenCacheService = deviceTokenCacheService;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String studentId = new String(message.getBody(), StandardCharsets.UTF_8);
+
+        try {
+            deviceTokenCacheService.evictStudentLocal(UUID.fromString(studentId));
+        } catch (IllegalArgumentException e) {
+            logger.warn("[DeviceTokenCache] Mensagem de invalidação inválida: {}", studentId);
+        }
+    }
+}
@@ -1,15 +1,14 @@
 package com.travel_system.backend_app.listeners;
 
 import com.travel_system.backend_app.events.NewLocationReceivedEvents;
-import com.travel_system.backend_app.model.Travel;
+import com.travel_system.backend_app.model.dtos.ActiveTravelSnapshotDTO;
 import com.travel_system.backend_app.model.dtos.mensageria.MessagingDTO;
-import com.travel_system.backend_app.repository.TravelRepository;
+import com.travel_system.backend_app.service.ActiveTravelRegistryService;
 import com.travel_system.backend_app.service.GpsService;
-import jakarta.persistence.EntityNotFoundException;
+import com.travel_system.backend_app.utils.TravelLaneExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
@@ -18,18 +17,24 @@ import java.util.UUID;
 @Component
 public class GpsMessagingListener {
     private final GpsService gpsService;
-    private final TravelRepository travelRepository;
+    private final ActiveTravelRegistryService activeTravelRegistryService;
+    private final TravelLaneExecutor travelLaneExecutor;
 
     private static final Logger logger = LoggerFactory.getLogger(GpsMessagingListener.class);
 
-    public GpsMessagingListener(GpsService gpsService, TravelRepository travelRepository) {
+    public GpsMessagingListener(GpsService gpsService, ActiveTravelRegistryService activeTravelRegistryService, TravelLaneExecutor travelLaneExecutor) {
         this.gpsService = gpsService;
-        this.travelRepository = travelRepository;
+        this.activeTravelRegistryService = activeTravelRegistryService;
+        this.travelLaneExecutor = travelLaneExecutor;
     }
 
+    // mesma faixa da viagem: os alunos recebem as posições na ordem em que chegaram
     @EventListener
-    @Async
     public void handleGpsToMessaging(NewLocationReceivedEvents locationReceivedEvents) {
+        travelLaneExecutor.execute(locationReceivedEvents.travelId(), () -> sendGpsToMessaging(locationReceivedEvents));
+    }
+
+    private void sendGpsToMessaging(NewLocationReceivedEvents locationReceivedEvents) {
         UUID travelId = locationReceivedEvents.travelId();
         Double latitude = locationReceivedEvents.latitude();
         Double longitude = locationReceivedEvents.longitude();
@@ -37,13 +42,14 @@ public class GpsMessagingListener {
         Double heading = locationReceivedEvents.heading();
         Instant timestamp = locationReceivedEvents.timestamp();
 
-        Travel travel = travelRepository.findById(travelId)
-                .orElseThrow(() -> new EntityNotFoundException("Viagem não encontrada" + travelId));
-
-        logger.info("[handleGpsToMessaging] entidade Travel encontrada, seguindo adiante com o processamento do gps no rabbitmq");
+        // routing key da cidade já vem normalizada no registro, sem carregar Travel/City do banco
+        ActiveTravelSnapshotDTO travel = activeTravelRegistryService.require(travelId);
+        String cityNameFormatted = travel.cityRoutingSegment();
 
-        String cityName = travel.getCity().getName().toLowerCase();
-        String cityNameFormatted = cityName.replace(" ", "_").trim();
+        if (cityNameFormatted == null) {
+            logger.warn("[handleGpsToMessaging] viagem {} sem cidade, gps não enviado ao rabbitmq", travelId);
+            return;
+        }
 
         MessagingDTO messagingDTO = new MessagingDTO(latitude, longitude, heading, speed, timestamp, travelId);
 
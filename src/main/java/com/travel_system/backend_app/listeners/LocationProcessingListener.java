@@ -1,15 +1,13 @@
 package com.travel_system.backend_app.listeners;
 
 import com.travel_system.backend_app.events.NewLocationReceivedEvents;
-import com.travel_system.backend_app.model.Travel;
 import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
-import com.travel_system.backend_app.repository.TravelRepository;
+import com.travel_system.backend_app.service.ActiveTravelRegistryService;
 import com.travel_system.backend_app.service.PushNotificationService;
 import com.travel_system.backend_app.service.TravelTrackingService;
-import jakarta.persistence.EntityNotFoundException;
-import org.springframework.transaction.annotation.Transactional;
+import com.travel_system.backend_app.utils.LatestWinsMailbox;
+import com.travel_system.backend_app.utils.TravelLaneExecutor;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 import java.util.UUID;
@@ -18,16 +16,46 @@ import java.util.UUID;
 public class LocationProcessingListener {
     private final TravelTrackingService travelTrackingService;
     private final PushNotificationService pushNotificationService;
+    private final TravelLaneExecutor travelLaneExecutor;
+    private final LatestWinsMailbox<VehicleLocationRequestDTO> liveTrackingMailbox;
+    private final ActiveTravelRegistryService activeTravelRegistryService;
 
-    public LocationProcessingListener(TravelTrackingService travelTrackingService, PushNotificationService pushNotificationService) {
+    public LocationProcessingListener(TravelTrackingService travelTrackingService, PushNotificationService pushNotificationService, TravelLaneExecutor travelLaneExecutor, LatestWinsMailbox<VehicleLocationRequestDTO> liveTrackingMailbox, ActiveTravelRegistryService activeTravelRegistryService) {
         this.travelTrackingService = travelTrackingService;
         this.pushNotificationService = pushNotificationService;
+        this.travelLaneExecutor = travelLaneExecutor;
+        this.liveTrackingMailbox = liveTrackingMailbox;
+        this.activeTravelRegistryService = activeTravelRegistryService;
     }
 
-    @Async
+    // roda na faixa da viagem: pings da mesma viagem nunca processam em paralelo nem fora de ordem.
+    // Com a faixa atrasada, só o ping mais recente chega ao rastreamento (o histórico já foi gravado na entrada)
     @EventListener
     public void handleLocationProcessing(NewLocationReceivedEvents locationReceivedEvents) {
         VehicleLocationRequestDTO vehicleLocationRequest = getVehicleLocationRequestDTO(locationReceivedEvents);
+        UUID travelId = vehicleLocationRequest.travelId();
+
+        liveTrackingMailbox.offer(travelId, vehicleLocationRequest);
+
+        // toda chegada agenda uma drenagem barata: se um ping mais novo já foi processado, ela não faz nada.
+        // Com a faixa cheia a drenagem que chegou é recusada, mas o ping continua na caixa: sai pela drenagem
+        // já enfileirada da viagem ou pela próxima chegada, e as tarefas de outras viagens da faixa não são tocadas
+        travelLaneExecutor.execute(travelId, () -> {
+            VehicleLocationRequestDTO latestLocation = liveTrackingMailbox.poll(travelId);
+            if (latestLocation == null) return;
+
+            // ping atrasado de viagem já encerrada: o offer acima recriou a entrada da caixa depois do
+            // release; a própria faixa a descarta em vez de deixá-la no mapa para sempre
+            if (activeTravelRegistryService.find(travelId).isEmpty()) {
+                liveTrackingMailbox.release(travelId);
+                return;
+            }
+
+            processLiveTracking(latestLocation);
+        });
+    }
+
+    private void processLiveTracking(VehicleLocationRequestDTO vehicleLocationRequest) {
         travelTrackingService.processNewLocation(vehicleLocationRequest);
 
         // 2. Processa Alertas de Proximidade e Movimento (O "cérebro" das notificações)
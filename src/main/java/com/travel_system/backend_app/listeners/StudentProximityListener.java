@@ -1,7 +1,9 @@
 package com.travel_system.backend_app.listeners;
 
 import com.travel_system.backend_app.events.StudentProximityEvents;
+import com.travel_system.backend_app.model.dtos.ProximityNotificationDTO;
 import com.travel_system.backend_app.model.dtos.mensageria.SendPackageDataToRabbitMQ;
+import com.travel_system.backend_app.service.NotificationOutboxService;
 import com.travel_system.backend_app.service.NotificationService;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
@@ -10,9 +12,11 @@ import org.springframework.stereotype.Component;
 @Component
 public class StudentProximityListener{
     private final NotificationService notificationService;
+    private final NotificationOutboxService notificationOutboxService;
 
-    public StudentProximityListener(NotificationService notificationService) {
+    public StudentProximityListener(NotificationService notificationService, NotificationOutboxService notificationOutboxService) {
         this.notificationService = notificationService;
+        this.notificationOutboxService = notificationOutboxService;
     }
 
     @Async
@@ -25,6 +29,15 @@ public class StudentProximityListener{
                 proximityEvents.zone(),
                 proximityEvents.timestamp(),
                 proximityEvents.alertType()));
+
+        // push ao aluno pela caixa de saída: só a distância mais recente da janela é enviada
+        notificationOutboxService.enqueueProximity(new ProximityNotificationDTO(
+                proximityEvents.studentId(),
+                proximityEvents.travelId(),
+                proximityEvents.distance(),
+                proximityEvents.zone(),
+                proximityEvents.alertType(),
+                proximityEvents.timestamp()));
     }
 
 }
@@ -0,0 +1,21 @@
+package com.travel_system.backend_app.listeners;
+
+import com.travel_system.backend_app.events.TravelFinishedEvents;
+import com.travel_system.backend_app.service.TravelStateReleaseService;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class TravelFinishedListener {
+    private final TravelStateReleaseService travelStateReleaseService;
+
+    public TravelFinishedListener(TravelStateReleaseService travelStateReleaseService) {
+        this.travelStateReleaseService = travelStateReleaseService;
+    }
+
+    // depois do commit: um ping concorrente não recarrega do banco a viagem ainda como TRAVELLING
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleTravelFinished(TravelFinishedEvents travelFinishedEvents) {
+        travelStateReleaseService.release(travelFinishedEvents.travelId());
+    }
+}
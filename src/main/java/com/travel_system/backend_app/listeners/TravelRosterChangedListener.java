@@ -0,0 +1,28 @@
+package com.travel_system.backend_app.listeners;
+
+import com.travel_system.backend_app.events.StudentPositionChangedEvents;
+import com.travel_system.backend_app.events.TravelRosterChangedEvents;
+import com.travel_system.backend_app.service.TravelRosterService;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class TravelRosterChangedListener {
+    private final TravelRosterService travelRosterService;
+
+    public TravelRosterChangedListener(TravelRosterService travelRosterService) {
+        this.travelRosterService = travelRosterService;
+    }
+
+    // depois do commit: a recarga do roster já enxerga o vínculo novo
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleTravelRosterChanged(TravelRosterChangedEvents travelRosterChangedEvents) {
+        travelRosterService.evict(travelRosterChangedEvents.travelId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleStudentPositionChanged(StudentPositionChangedEvents studentPositionChangedEvents) {
+        travelRosterService.updatePosition(studentPositionChangedEvents.travelId(), studentPositionChangedEvents.studentId(),
+                studentPositionChangedEvents.latitude(), studentPositionChangedEvents.longitude());
+    }
+}
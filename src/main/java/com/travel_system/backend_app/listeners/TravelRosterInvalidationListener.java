@@ -0,0 +1,33 @@
+package com.travel_system.backend_app.listeners;
+
+import com.travel_system.backend_app.service.TravelRosterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+// outra instância alterou os alunos/pontos de embarque da viagem: descarta o roster local
+@Component
+public class TravelRosterInvalidationListener implements MessageListener {
+    private final TravelRosterService travelRosterService;
+
+    private static final Logger logger = LoggerFactory.getLogger(TravelRosterInvalidationListener.class);
+
+    public TravelRosterInvalidationListener(TravelRosterService travelRosterService) {
+        this.travelRosterService = travelRosterService;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+
+        try {
+            travelRosterService.handleInvalidationMessage(body);
+        } catch (IllegalArgumentException e) {
+            logger.warn("[TravelRoster] Mensagem de invalidação inválida: {}", body);
+        }
+    }
+}
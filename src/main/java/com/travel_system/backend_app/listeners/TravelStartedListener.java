@@ -0,0 +1,27 @@
+package com.travel_system.backend_app.listeners;
+
+import com.travel_system.backend_app.events.TravelStartedEvents;
+import com.travel_system.backend_app.service.ActiveTravelRegistryService;
+import com.travel_system.backend_app.service.DeviceTokenCacheService;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class TravelStartedListener {
+    private final ActiveTravelRegistryService activeTravelRegistryService;
+    private final DeviceTokenCacheService deviceTokenCacheService;
+
+    public TravelStartedListener(ActiveTravelRegistryService activeTravelRegistryService, DeviceTokenCacheService deviceTokenCacheService) {
+        this.activeTravelRegistryService = activeTravelRegistryService;
+        this.deviceTokenCacheService = deviceTokenCacheService;
+    }
+
+    // depois do commit: com rollback do startTravel a viagem não fica no registro como TRAVELLING
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleTravelStarted(TravelStartedEvents travelStartedEvents) {
+        activeTravelRegistryService.register(travelStartedEvents.snapshot());
+
+        // tokens dos alunos a bordo já em memória para os avisos de movimento
+        deviceTokenCacheService.warm(travelStartedEvents.travelId());
+    }
+}
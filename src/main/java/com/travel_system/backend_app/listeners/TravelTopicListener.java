@@ -0,0 +1,51 @@
+package com.travel_system.backend_app.listeners;
+
+import com.travel_system.backend_app.events.DeviceTokenRegisteredEvents;
+import com.travel_system.backend_app.events.TravelFinishedEvents;
+import com.travel_system.backend_app.events.TravelMembershipChangedEvents;
+import com.travel_system.backend_app.service.TravelTopicService;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.UUID;
+
+// inscrições no tópico FCM da viagem fora da requisição (só no modo tópico)
+@Component
+public class TravelTopicListener {
+    private final TravelTopicService travelTopicService;
+
+    public TravelTopicListener(TravelTopicService travelTopicService) {
+        this.travelTopicService = travelTopicService;
+    }
+
+    @Async(value = "notificationTaskExecutor")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleTravelMembershipChanged(TravelMembershipChangedEvents travelMembershipChangedEvents) {
+        if (!travelTopicService.isTopicMode()) return;
+
+        List<UUID> studentIds = List.of(travelMembershipChangedEvents.studentId());
+        if (travelMembershipChangedEvents.joined()) {
+            travelTopicService.subscribe(travelMembershipChangedEvents.travelId(), studentIds);
+        } else {
+            travelTopicService.unsubscribe(travelMembershipChangedEvents.travelId(), studentIds);
+        }
+    }
+
+    @Async(value = "notificationTaskExecutor")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleTravelFinished(TravelFinishedEvents travelFinishedEvents) {
+        if (!travelTopicService.isTopicMode()) return;
+
+        travelTopicService.unsubscribeTravel(travelFinishedEvents.travelId());
+    }
+
+    @Async(value = "notificationTaskExecutor")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleDeviceTokenRegistered(DeviceTokenRegisteredEvents deviceTokenRegisteredEvents) {
+        if (!travelTopicService.isTopicMode()) return;
+
+        travelTopicService.registerToken(deviceTokenRegisteredEvents.studentId(), deviceTokenRegisteredEvents.previousStudentId(), deviceTokenRegisteredEvents.token());
+    }
+}
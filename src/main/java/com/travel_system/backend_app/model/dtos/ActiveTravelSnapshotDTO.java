@@ -0,0 +1,18 @@
+package com.travel_system.backend_app.model.dtos;
+
+import com.travel_system.backend_app.model.enums.TravelStatus;
+
+import java.util.UUID;
+
+// fotografia imutável da viagem em andamento com o que o caminho dos pings precisa
+public record ActiveTravelSnapshotDTO(
+        UUID travelId,
+        TravelStatus travelStatus,
+        Double finalLatitude,
+        Double finalLongitude,
+        String polylineRoute,
+        Double distance,
+        Double duration,
+        String cityRoutingSegment // nome da cidade normalizado para a routing key do rabbitmq
+) {
+}
@@ -0,0 +1,11 @@
+package com.travel_system.backend_app.model.dtos;
+
+// cinemática da janela recente de pings da viagem
+public record PingKinematicsDTO(int samples,
+                                double windowSeconds,
+                                double pathMeters,
+                                double averageSpeed, // m/s
+                                double acceleration, // m/s²
+                                double headingChange, // graus acumulados na janela
+                                double dwellSeconds) {
+}
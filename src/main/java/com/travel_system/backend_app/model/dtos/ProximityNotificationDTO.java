@@ -0,0 +1,11 @@
+package com.travel_system.backend_app.model.dtos;
+
+import java.util.UUID;
+
+public record ProximityNotificationDTO(UUID studentId,
+                                       UUID travelId,
+                                       Double distance,
+                                       String zone,
+                                       String alertType,
+                                       String timestamp) {
+}
@@ -0,0 +1,9 @@
+package com.travel_system.backend_app.model.dtos;
+
+import java.util.UUID;
+
+// linha da consulta do roster: aluno vinculado e o ponto de embarque (nulo se ainda não enviou)
+public record RosterEntryDTO(UUID studentId,
+                             Double latitude,
+                             Double longitude) {
+}
@@ -0,0 +1,6 @@
+package com.travel_system.backend_app.model.dtos;
+
+import java.util.UUID;
+
+public record StudentDeviceTokenDTO(UUID studentId, String token) {
+}
@@ -0,0 +1,12 @@
+package com.travel_system.backend_app.model.dtos;
+
+// campos nulos não são alterados na hash da viagem
+public record TrackingPingUpdateDTO(Double latitude,
+                                    Double longitude,
+                                    Double distanceRemaining,
+                                    Double durationRemaining,
+                                    String geometry,
+                                    String status,
+                                    Long timestamp,
+                                    AnalyzeMovementStateDTO movementState) {
+}
@@ -0,0 +1,16 @@
+package com.travel_system.backend_app.model.dtos;
+
+import com.travel_system.backend_app.model.enums.MovementState;
+import com.travel_system.backend_app.model.enums.Priority;
+
+import java.util.List;
+import java.util.UUID;
+
+// mesmo aviso para todos os alunos da viagem (um envio por lote de tokens, não por aluno)
+public record TravelNotificationEventDTO(UUID travelId,
+                                         List<UUID> studentIds,
+                                         MovementState movementState,
+                                         Priority priority,
+                                         String message,
+                                         UUID traceId) {
+}
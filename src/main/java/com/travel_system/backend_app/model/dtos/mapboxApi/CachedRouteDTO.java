@@ -0,0 +1,10 @@
+package com.travel_system.backend_app.model.dtos.mapboxApi;
+
+// rota do mapbox guardada no cache junto com a origem exata que a gerou
+public record CachedRouteDTO(
+        double originLat,
+        double originLng,
+        long expiresAt,
+        RouteDetailsDTO route
+) {
+}
@@ -4,6 +4,9 @@ public record RouteDeviationDTO(
         double distanceToRouteMeters, // distância mínima até a rota
         boolean isOffRoute, // se a viagem está fora da rota
         double nearestPointLat, // lat do ponto mais proximo da rota
-        double nearestPointLng // lng do ponto mais proximo da rota
+        double nearestPointLng, // lng do ponto mais proximo da rota
+        int matchedSegmentIndex, // segmento da rota onde o ponto foi projetado (-1 sem rota)
+        double distanceAlongRouteMeters, // progresso do veículo ao longo da rota
+        double distanceRemainingMeters // distância restante pela rota até o destino
 ) {
 }
@@ -0,0 +1,8 @@
+package com.travel_system.backend_app.model.dtos.mapboxApi;
+
+public record RouteProgressDTO(
+        double distanceRemaining, // metros restantes pela rota
+        double durationRemaining, // o ETA em segundos
+        double speed // velocidade recente ao longo da rota (m/s)
+) {
+}
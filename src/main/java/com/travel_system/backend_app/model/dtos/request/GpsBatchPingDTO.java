@@ -0,0 +1,8 @@
+package com.travel_system.backend_app.model.dtos.request;
+
+public record GpsBatchPingDTO(Double latitude,
+                              Double longitude,
+                              Double speed,
+                              Double heading,
+                              Long timestamp) { // epoch ms registrado pelo celular
+}
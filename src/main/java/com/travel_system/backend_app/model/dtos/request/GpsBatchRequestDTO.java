@@ -0,0 +1,9 @@
+package com.travel_system.backend_app.model.dtos.request;
+
+import java.util.List;
+import java.util.UUID;
+
+// pings acumulados pelo celular sem conexão, reenviados de uma vez
+public record GpsBatchRequestDTO(UUID travelId,
+                                 List<GpsBatchPingDTO> pings) {
+}
@@ -0,0 +1,9 @@
+package com.travel_system.backend_app.model.dtos.response;
+
+public record RerouteStatsDTO(
+        long executed,
+        long suppressedByHysteresis,
+        long suppressedByBudget,
+        long coalesced
+) {
+}
@@ -0,0 +1,13 @@
+package com.travel_system.backend_app.model.dtos.response;
+
+public record RouteCacheStatsDTO(
+        long localHits,
+        long redisHits,
+        long misses,
+        int localEntries
+) {
+    public double hitRatio() {
+        long total = localHits + redisHits + misses;
+        return total == 0 ? 0.0 : (double) (localHits + redisHits) / total;
+    }
+}
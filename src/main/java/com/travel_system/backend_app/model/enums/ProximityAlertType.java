@@ -0,0 +1,13 @@
+package com.travel_system.backend_app.model.enums;
+
+public enum ProximityAlertType {
+    // primeiro aviso do aluno na viagem (sem estado anterior)
+    INITIAL_STATE,
+    ZONE_CHANGED,
+    // mesma zona, mas 12 minutos sem aviso (ônibus parado)
+    TIME_ELAPSED,
+    // andou um degrau de distância na mesma zona (200m em FAR, 30m em NEAR)
+    DISTANCE_STEP_REACHED,
+    // estado no redis incompleto ou corrompido
+    STATE_RECOVERY
+}
@@ -0,0 +1,12 @@
+package com.travel_system.backend_app.model.enums;
+
+public enum RerouteDecision {
+    ON_ROUTE,
+    // fora da rota, mas ainda não confirmado (pings consecutivos / distância percorrida)
+    SUPPRESSED_HYSTERESIS,
+    // desvio confirmado, mas a viagem esgotou o orçamento de chamadas ao mapbox
+    SUPPRESSED_BUDGET,
+    // já existe um recálculo em voo para a viagem
+    COALESCED,
+    EXECUTED
+}
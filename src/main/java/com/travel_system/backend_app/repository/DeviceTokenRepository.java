@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,6 +18,7 @@ public interface DeviceTokenRepository extends JpaRepository<DeviceToken, UUID>
     Optional<DeviceToken> findDeviceTokenByToken(String token);
 
     @Modifying // Indica que é uma operação de escrita (UPDATE/DELETE)
+    @Transactional // chamado das threads de envio, fora de qualquer transação
     @Query("UPDATE DeviceToken dt SET dt.active = false WHERE dt.token IN :tokens")
     void deactivateTokensByValue(@Param("tokens") List<String> tokens);
 }
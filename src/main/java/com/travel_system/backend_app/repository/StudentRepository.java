@@ -1,6 +1,7 @@
 package com.travel_system.backend_app.repository;
 
 import com.travel_system.backend_app.model.Student;
+import com.travel_system.backend_app.model.dtos.StudentDeviceTokenDTO;
 import com.travel_system.backend_app.model.dtos.StudentTokensDTO;
 import com.travel_system.backend_app.model.enums.GeneralStatus;
 import io.lettuce.core.dynamic.annotation.Param;
@@ -8,6 +9,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -27,4 +29,9 @@ public interface StudentRepository extends JpaRepository<Student, UUID> {
 
     @Query("SELECT dt.token FROM DeviceToken dt WHERE dt.student.id = :id AND dt.active = true")
     Set<String> findActiveTokensByStudentId(@Param("id") UUID id);
+
+    // tokens ativos de todos os alunos da viagem em uma consulta (aluno junto para mapear as falhas do FCM)
+    @Query("SELECT new com.travel_system.backend_app.model.dtos.StudentDeviceTokenDTO(dt.student.id, dt.token) " +
+            "FROM DeviceToken dt WHERE dt.student.id IN :ids AND dt.active = true")
+    List<StudentDeviceTokenDTO> findActiveTokensByStudentIds(@Param("ids") Collection<UUID> ids);
 }
@@ -1,6 +1,7 @@
 package com.travel_system.backend_app.repository;
 
 import com.travel_system.backend_app.model.StudentTravel;
+import com.travel_system.backend_app.model.dtos.RosterEntryDTO;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -20,4 +21,14 @@ public interface StudentTravelRepository extends JpaRepository<StudentTravel, UU
 
     boolean existsByIdAndTravelId(UUID studentId, UUID travelId);
 
+    // roster de proximidade em uma consulta, sem carregar as entidades
+    @Query(value = "SELECT new com.travel_system.backend_app.model.dtos.RosterEntryDTO(st.student.id, p.latitude, p.longitude) " +
+            "FROM StudentTravel st LEFT JOIN st.position p WHERE st.travel.id = :travelId")
+    List<RosterEntryDTO> findRosterByTravelId(UUID travelId);
+
+    // viagens não encerradas em que o aluno ainda está vinculado (inscrições de tópico do FCM)
+    @Query(value = "SELECT st.travel.id FROM StudentTravel st WHERE st.student.id = :studentId AND st.disembarkHour IS NULL " +
+            "AND st.travel.travelStatus <> com.travel_system.backend_app.model.enums.TravelStatus.FINISH")
+    List<UUID> findOpenTravelIdsByStudentId(UUID studentId);
+
 }
@@ -0,0 +1,121 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.exceptions.TravelException;
+import com.travel_system.backend_app.model.Travel;
+import com.travel_system.backend_app.model.dtos.ActiveTravelSnapshotDTO;
+import com.travel_system.backend_app.model.enums.TravelStatus;
+import com.travel_system.backend_app.repository.TravelRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * registro em memória das viagens em andamento: o caminho dos pings consulta aqui em vez do postgres.
+ * Preenchido depois do commit do startTravel (ou sob demanda, após restart/outra instância) e removido
+ * no fim da viagem em todas as instâncias (TravelStateReleaseService, pelo pub/sub do redis). Como o
+ * pub/sub não garante entrega, cada entrada é reconferida no set de viagens ativas depois de alguns segundos
+ */
+@Service
+public class ActiveTravelRegistryService {
+
+    public static final String INVALIDATION_CHANNEL = "active-travels:invalidate";
+
+    private final TravelRepository travelRepository;
+    private final RedisTrackingService redisTrackingService;
+    private final Clock clock;
+
+    // idade máxima de uma entrada antes de reconferir no set ACTIVE_TRAVELS_KEY
+    private final long recheckMillis;
+
+    private final Map<UUID, RegisteredTravel> activeTravels = new ConcurrentHashMap<>();
+
+    private static final Logger logger = LoggerFactory.getLogger(ActiveTravelRegistryService.class);
+
+    private record RegisteredTravel(ActiveTravelSnapshotDTO snapshot, long verifiedAt) {
+    }
+
+    public ActiveTravelRegistryService(TravelRepository travelRepository, RedisTrackingService redisTrackingService, Clock clock, @Value("${tracking.active-registry.recheck-seconds:30}") long recheckSeconds) {
+        this.travelRepository = travelRepository;
+        this.redisTrackingService = redisTrackingService;
+        this.clock = clock;
+        this.recheckMillis = recheckSeconds * 1000;
+    }
+
+    public ActiveTravelSnapshotDTO register(Travel travel) {
+        return register(snapshotOf(travel));
+    }
+
+    public ActiveTravelSnapshotDTO register(ActiveTravelSnapshotDTO snapshot) {
+        activeTravels.put(snapshot.travelId(), new RegisteredTravel(snapshot, clock.millis()));
+        return snapshot;
+    }
+
+    // só carrega do banco quando esta instância ainda não conhece a viagem (ou ela saiu do set do redis)
+    public Optional<ActiveTravelSnapshotDTO> find(UUID travelId) {
+        RegisteredTravel cached = activeTravels.get(travelId);
+        if (cached != null && isStillActive(travelId, cached)) return Optional.of(cached.snapshot());
+
+        return travelRepository.findById(travelId)
+                .filter(travel -> travel.getTravelStatus() == TravelStatus.TRAVELLING)
+                .map(this::register);
+    }
+
+    public ActiveTravelSnapshotDTO require(UUID travelId) {
+        return find(travelId)
+                .orElseThrow(() -> new TravelException("A viagem não está em andamento: " + travelId));
+    }
+
+    // chamado pelo TravelStateReleaseService, no fim da viagem em cada instância
+    public void evictLocal(UUID travelId) {
+        if (activeTravels.remove(travelId) != null) {
+            logger.info("[ActiveTravelRegistry] Viagem removida do registro: {}", travelId);
+        }
+    }
+
+    // rede de segurança para um aviso de fim de viagem perdido no pub/sub: uma consulta ao redis por entrada
+    // a cada recheckMillis. Fora do set, a entrada sai e o find decide pelo banco
+    private boolean isStillActive(UUID travelId, RegisteredTravel cached) {
+        long now = clock.millis();
+        if (now - cached.verifiedAt() < recheckMillis) return true;
+
+        try {
+            if (!redisTrackingService.isActiveTravel(travelId)) {
+                logger.info("[ActiveTravelRegistry] Viagem fora do set de ativas, removida do registro: {}", travelId);
+                activeTravels.remove(travelId, cached);
+                return false;
+            }
+        } catch (RuntimeException e) {
+            // redis fora do ar: mantém a entrada até a próxima conferência
+            logger.warn("[ActiveTravelRegistry] Falha ao reconferir a viagem {}: {}", travelId, e.getMessage());
+        }
+
+        activeTravels.replace(travelId, cached, new RegisteredTravel(cached.snapshot(), now));
+        return true;
+    }
+
+    // fotografia montada dentro da transação, com as associações ainda acessíveis
+    public ActiveTravelSnapshotDTO snapshotOf(Travel travel) {
+        String cityRoutingSegment = null;
+
+        if (travel.getCity() != null && travel.getCity().getName() != null) {
+            cityRoutingSegment = travel.getCity().getName().toLowerCase().replace(" ", "_").trim();
+        }
+
+        return new ActiveTravelSnapshotDTO(
+                travel.getId(),
+                travel.getTravelStatus(),
+                travel.getFinalLatitude(),
+                travel.getFinalLongitude(),
+                travel.getPolylineRoute(),
+                travel.getDistance(),
+                travel.getDuration(),
+                cityRoutingSegment);
+    }
+}
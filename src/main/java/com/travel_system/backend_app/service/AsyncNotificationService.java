@@ -4,7 +4,7 @@ import com.google.firebase.FirebaseException;
 import com.google.firebase.messaging.FirebaseMessagingException;
 import com.travel_system.backend_app.exceptions.EtaDataStatesInvalidException;
 import com.travel_system.backend_app.model.StudentTravel;
-import com.travel_system.backend_app.model.dtos.MovementNotificationEventDTO;
+import com.travel_system.backend_app.model.dtos.TravelNotificationEventDTO;
 import com.travel_system.backend_app.model.dtos.VehicleMovementNotificationDTO;
 import com.travel_system.backend_app.model.dtos.VelocityAnalysisDTO;
 import com.travel_system.backend_app.model.enums.MovementState;
@@ -29,13 +29,17 @@ public class AsyncNotificationService {
     private final RedisTrackingService redisTrackingService;
     private final FirebaseNotificationSender firebaseNotificationSender;
     private final StudentTravelRepository studentTravelRepository;
+    private final TravelTopicService travelTopicService;
+    private final NotificationOutboxService notificationOutboxService;
 
     private static final Logger logger = LoggerFactory.getLogger(AsyncNotificationService.class);
 
-    public AsyncNotificationService(RedisTrackingService redisTrackingService, FirebaseNotificationSender firebaseNotificationSender, StudentTravelRepository studentTravelRepository) {
+    public AsyncNotificationService(RedisTrackingService redisTrackingService, FirebaseNotificationSender firebaseNotificationSender, StudentTravelRepository studentTravelRepository, TravelTopicService travelTopicService, NotificationOutboxService notificationOutboxService) {
         this.redisTrackingService = redisTrackingService;
         this.firebaseNotificationSender = firebaseNotificationSender;
         this.studentTravelRepository = studentTravelRepository;
+        this.travelTopicService = travelTopicService;
+        this.notificationOutboxService = notificationOutboxService;
     }
 
     @Async(value = "notificationTaskExecutor")
@@ -70,16 +74,7 @@ public class AsyncNotificationService {
         // controlar cooldawn
         redisTrackingService.markNotificationAsSent(String.valueOf(travelId));
 
-        List<UUID> studentsAtTrip = studentTravelRepository.findStudentIdsByTravelIdAndDisembarkHourIsNull(travelId);
-
-        studentsAtTrip.forEach(studentId -> {
-            try {
-                // enviar notificação para cada estudante
-                firebaseNotificationSender.pushNotificationToFirebase(new MovementNotificationEventDTO(studentId, travelId, movementState, priority, message, traceId));
-            } catch (Exception e) {
-                logger.error("Falha no envio de notificação para o aluno: {} {}", studentId, e.getMessage());
-            }
-        });
+        pushTravelNotification(travelId, movementState, priority, message, traceId);
     }
 
     /*
@@ -99,15 +94,22 @@ public class AsyncNotificationService {
         // controlar cooldawn
         redisTrackingService.markNotificationAsSent(String.valueOf(travelId));
 
-        List<UUID> studentsAtTrip = studentTravelRepository.findStudentIdsByTravelIdAndDisembarkHourIsNull(travelId);
+        pushTravelNotification(travelId, movementState, priority, message, traceId);
+    }
 
-        studentsAtTrip.forEach(studentId -> {
-            try {
-                // enviar notificação para cada estudante
-                firebaseNotificationSender.pushNotificationToFirebase(new MovementNotificationEventDTO(studentId, travelId, movementState, priority, message, traceId));
-            } catch (Exception e) {
-                logger.error("Falha no envio de notificação para o aluno: {} {}", studentId, e.getMessage());
+    // modo tópico: um envio para o tópico da viagem; senão, um aviso por aluno na caixa de saída
+    private void pushTravelNotification(UUID travelId, MovementState movementState, Priority priority, String message, UUID traceId) {
+        try {
+            if (travelTopicService.isTopicMode()) {
+                firebaseNotificationSender.pushTopicNotification(new TravelNotificationEventDTO(travelId, List.of(), movementState, priority, message, traceId));
+                return;
             }
-        });
+
+            // caixa de saída: agrupa com outros avisos do aluno na janela e sai em lote de tokens
+            List<UUID> studentsAtTrip = studentTravelRepository.findStudentIdsByTravelIdAndDisembarkHourIsNull(travelId);
+            notificationOutboxService.enqueueMovement(travelId, studentsAtTrip, movementState, priority, message, traceId);
+        } catch (Exception e) {
+            logger.error("Falha no envio de notificação para a viagem: {} {}", travelId, e.getMessage());
+        }
     }
 }
@@ -0,0 +1,137 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.model.dtos.StudentDeviceTokenDTO;
+import com.travel_system.backend_app.repository.StudentRepository;
+import com.travel_system.backend_app.repository.StudentTravelRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * tokens ativos dos alunos, guardados por viagem em andamento: os avisos da viagem não consultam o postgres.
+ * Aquecido depois do commit do startTravel; aluno que ainda não está no cache é carregado na primeira leitura.
+ * Aluno registra/troca token (manageUserToken): descartado aqui e nas outras instâncias.
+ * Token desativado pelo FCM: retirado do cache local e o dono descartado nas outras instâncias
+ */
+@Service
+public class DeviceTokenCacheService {
+
+    public static final String INVALIDATION_CHANNEL = "device-tokens:invalidate";
+
+    private final StudentRepository studentRepository;
+    private final StudentTravelRepository studentTravelRepository;
+    private final ActiveTravelRegistryService activeTravelRegistryService;
+    private final RedisTemplate<String, String> redisTemplate;
+
+    // viagem -> aluno -> tokens ativos
+    private final Map<UUID, Map<UUID, Set<String>>> tokensByTravel = new ConcurrentHashMap<>();
+    // uma invalidação durante a carga descarta o resultado (a consulta pode ter lido o token antigo)
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceTokenCacheService.class);
+
+    public DeviceTokenCacheService(StudentRepository studentRepository, StudentTravelRepository studentTravelRepository, ActiveTravelRegistryService activeTravelRegistryService, RedisTemplate<String, String> redisTemplate) {
+        this.studentRepository = studentRepository;
+        this.studentTravelRepository = studentTravelRepository;
+        this.activeTravelRegistryService = activeTravelRegistryService;
+        this.redisTemplate = redisTemplate;
+    }
+
+    // carrega os tokens dos alunos a bordo de uma vez
+    public void warm(UUID travelId) {
+        List<UUID> studentIds = studentTravelRepository.findStudentIdsByTravelIdAndDisembarkHourIsNull(travelId);
+        activeTokens(travelId, studentIds);
+
+        logger.info("[DeviceTokenCache] Tokens carregados: viagem {} com {} alunos", travelId, studentIds.size());
+    }
+
+    // tokens ativos dos alunos pedidos; só os que faltam no cache vão ao banco (uma consulta)
+    public List<StudentDeviceTokenDTO> activeTokens(UUID travelId, List<UUID> studentIds) {
+        Map<UUID, Set<String>> cached = tokensByTravel.getOrDefault(travelId, Map.of());
+
+        // leitura única por aluno: uma invalidação concorrente não some com o aluno deste aviso
+        Map<UUID, Set<String>> found = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID studentId : studentIds) {
+            Set<String> studentTokens = cached.get(studentId);
+            if (studentTokens != null) found.put(studentId, studentTokens);
+            else missing.add(studentId);
+        }
+        if (!missing.isEmpty()) found.putAll(load(travelId, missing));
+
+        List<StudentDeviceTokenDTO> tokens = new ArrayList<>();
+        for (UUID studentId : studentIds) {
+            found.getOrDefault(studentId, Set.of()).forEach(token -> tokens.add(new StudentDeviceTokenDTO(studentId, token)));
+        }
+        return tokens;
+    }
+
+    // token registrado/alterado: descarta o aluno localmente e avisa as outras instâncias
+    public void evictStudent(UUID studentId) {
+        if (studentId == null) return;
+
+        evictStudentLocal(studentId);
+
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, studentId.toString());
+        } catch (RuntimeException e) {
+            logger.warn("[DeviceTokenCache] Falha ao propagar a invalidação dos tokens do aluno {}: {}", studentId, e.getMessage());
+        }
+    }
+
+    // chamado pelo listener do pub/sub
+    public void evictStudentLocal(UUID studentId) {
+        invalidations.incrementAndGet();
+        tokensByTravel.values().forEach(students -> students.remove(studentId));
+    }
+
+    // tokens desativados após falha no FCM (deactivateTokensByValue): token -> aluno dono
+    public void removeTokens(Map<String, UUID> tokenOwners) {
+        if (tokenOwners.isEmpty()) return;
+
+        invalidations.incrementAndGet();
+        Set<String> removed = new HashSet<>(tokenOwners.keySet());
+        tokensByTravel.values().forEach(students -> students.replaceAll((studentId, studentTokens) -> {
+            if (Collections.disjoint(studentTokens, removed)) return studentTokens;
+
+            Set<String> remaining = new HashSet<>(studentTokens);
+            remaining.removeAll(removed);
+            return Set.copyOf(remaining);
+        }));
+
+        // as outras instâncias recarregam os donos (o token já está inativo no banco)
+        for (UUID studentId : new HashSet<>(tokenOwners.values())) {
+            try {
+                redisTemplate.convertAndSend(INVALIDATION_CHANNEL, studentId.toString());
+            } catch (RuntimeException e) {
+                logger.warn("[DeviceTokenCache] Falha ao propagar a invalidação dos tokens do aluno {}: {}", studentId, e.getMessage());
+            }
+        }
+    }
+
+    public void release(UUID travelId) {
+        tokensByTravel.remove(travelId);
+    }
+
+    private Map<UUID, Set<String>> load(UUID travelId, List<UUID> studentIds) {
+        long invalidationsBeforeLoad = invalidations.get();
+
+        Map<UUID, Set<String>> loaded = new HashMap<>();
+        studentIds.forEach(studentId -> loaded.put(studentId, new HashSet<>()));
+        for (StudentDeviceTokenDTO studentToken : studentRepository.findActiveTokensByStudentIds(studentIds)) {
+            loaded.get(studentToken.studentId()).add(studentToken.token());
+        }
+        loaded.replaceAll((studentId, studentTokens) -> Set.copyOf(studentTokens));
+
+        // só viagem em andamento fica no cache (aviso atrasado de viagem encerrada não recria a entrada)
+        if (invalidations.get() == invalidationsBeforeLoad && activeTravelRegistryService.find(travelId).isPresent()) {
+            tokensByTravel.computeIfAbsent(travelId, id -> new ConcurrentHashMap<>()).putAll(loaded);
+        }
+        return loaded;
+    }
+}
@@ -1,13 +1,17 @@
 package com.travel_system.backend_app.service;
 
 import com.travel_system.backend_app.config.RabbitMQConfig;
+import com.travel_system.backend_app.model.dtos.request.GpsBatchPingDTO;
 import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
 import com.travel_system.backend_app.model.dtos.route.GpsPayload;
 import org.springframework.amqp.core.MessageDeliveryMode;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -16,11 +20,17 @@ public class GpsDataIngestorService {
     private final RabbitTemplate rabbitTemplate;
     private final RedisTrackingService redisTrackingService;
     private final TravelHistoryPingsService travelHistoryPingsService;
+    private final TravelTrackingService travelTrackingService;
 
-    public GpsDataIngestorService(RabbitTemplate rabbitTemplate, RedisTrackingService redisTrackingService, TravelHistoryPingsService travelHistoryPingsService) {
+    // espera máxima pela confirmação do broker para o lote inteiro
+    private final long batchConfirmTimeoutMillis;
+
+    public GpsDataIngestorService(RabbitTemplate rabbitTemplate, RedisTrackingService redisTrackingService, TravelHistoryPingsService travelHistoryPingsService, TravelTrackingService travelTrackingService, @Value("${gps.batch.confirm-timeout-ms:5000}") long batchConfirmTimeoutMillis) {
         this.rabbitTemplate = rabbitTemplate;
         this.redisTrackingService = redisTrackingService;
         this.travelHistoryPingsService = travelHistoryPingsService;
+        this.travelTrackingService = travelTrackingService;
+        this.batchConfirmTimeoutMillis = batchConfirmTimeoutMillis;
     }
 
     // envia ao rabbitmq as informações de gps da viagem + a routing_key contendo ids específicos
@@ -55,5 +65,53 @@ public class GpsDataIngestorService {
         redisTrackingService.saveHistoryPingLocation(UUID.fromString(travelId), now);
     }
 
+    // lote de pings bufferizados pelo celular: publica tudo no mesmo canal, grava todos no histórico
+    // e só o mais recente alimenta o rastreamento em tempo real
+    public void sendVehicleGpsBatch(String city, String travelId, List<GpsBatchPingDTO> pings) {
+        final String ROUTING_KEY = "v1.gps." + city + "." + travelId;
+
+        UUID travelConvertedId = UUID.fromString(travelId);
+
+        List<GpsBatchPingDTO> orderedPings = pings.stream()
+                .filter(ping -> ping.latitude() != null && ping.longitude() != null && ping.timestamp() != null)
+                .sorted(Comparator.comparingLong(GpsBatchPingDTO::timestamp))
+                .toList();
+
+        if (orderedPings.isEmpty()) return;
+
+        // um único canal para o lote inteiro em vez de um por ping, com uma única espera de confirms
+        // do broker no fim (publisher-confirm-type=simple): o lote só vai ao histórico depois de aceito
+        rabbitTemplate.invoke(operations -> {
+            for (GpsBatchPingDTO ping : orderedPings) {
+                GpsPayload gpsPayload = new GpsPayload(
+                        ping.latitude(),
+                        ping.longitude(),
+                        ping.speed(),
+                        ping.heading(),
+                        Instant.ofEpochMilli(ping.timestamp()),
+                        travelConvertedId
+                );
 
+                operations.convertAndSend(RabbitMQConfig.EXCHANGE_GPS_NAME, ROUTING_KEY, gpsPayload, location -> {
+                    location.getMessageProperties().setDeliveryMode(MessageDeliveryMode.NON_PERSISTENT);
+                    return location;
+                });
+            }
+            operations.waitForConfirmsOrDie(batchConfirmTimeoutMillis);
+            return null;
+        });
+
+        travelHistoryPingsService.saveTravelLocationHistoryBatch(city, travelId, orderedPings);
+        redisTrackingService.saveHistoryPingLocation(travelConvertedId, Instant.now());
+
+        GpsBatchPingDTO newestPing = orderedPings.getLast();
+
+        travelTrackingService.markDriverCheckpoint(new VehicleLocationRequestDTO(
+                travelConvertedId,
+                newestPing.latitude(),
+                newestPing.longitude(),
+                newestPing.speed(),
+                newestPing.heading()),
+                newestPing.timestamp());
+    }
 }
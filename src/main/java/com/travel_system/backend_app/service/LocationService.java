@@ -1,5 +1,6 @@
 package com.travel_system.backend_app.service;
 
+import com.travel_system.backend_app.events.StudentPositionChangedEvents;
 import com.travel_system.backend_app.exceptions.NoSuchCoordinates;
 import com.travel_system.backend_app.model.GeoPosition;
 import com.travel_system.backend_app.model.StudentTravel;
@@ -8,6 +9,7 @@ import com.travel_system.backend_app.repository.GeoPositionRepository;
 import com.travel_system.backend_app.repository.StudentTravelRepository;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
@@ -19,11 +21,13 @@ public class LocationService {
     private final GeoPositionRepository geoPositionRepository;
     private final StudentTravelRepository studentTravelRepository;
     private final RouteCalculationService routeCalculationService;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public LocationService(GeoPositionRepository geoPositionRepository, StudentTravelRepository studentTravelRepository, RouteCalculationService routeCalculationService) {
+    public LocationService(GeoPositionRepository geoPositionRepository, StudentTravelRepository studentTravelRepository, RouteCalculationService routeCalculationService, ApplicationEventPublisher eventPublisher) {
         this.geoPositionRepository = geoPositionRepository;
         this.studentTravelRepository = studentTravelRepository;
         this.routeCalculationService = routeCalculationService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -52,6 +56,7 @@ public class LocationService {
             studentTravel.setPosition(newPosition);
 
             geoPositionRepository.save(newPosition);
+            eventPublisher.publishEvent(new StudentPositionChangedEvents(studentTravel.getTravel().getId(), studentTravel.getStudent().getId(), actually.latitude(), actually.longitude()));
 
             return false;
         }
@@ -65,6 +70,7 @@ public class LocationService {
             anterior.setTimeStamp(Instant.now());
 
             studentTravel.setPosition(anterior);
+            eventPublisher.publishEvent(new StudentPositionChangedEvents(studentTravel.getTravel().getId(), studentTravel.getStudent().getId(), actually.latitude(), actually.longitude()));
 
             return true;
         }
@@ -2,6 +2,7 @@ package com.travel_system.backend_app.service;
 
 import com.mapbox.geojson.Point;
 import com.travel_system.backend_app.exceptions.NoSuchCoordinates;
+import com.travel_system.backend_app.exceptions.RecalculateEtaException;
 import com.travel_system.backend_app.interfaces.MapboxAPICalling;
 import com.travel_system.backend_app.model.Travel;
 import com.travel_system.backend_app.model.dtos.mapboxApi.MapboxApiResponse;
@@ -13,7 +14,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class MapboxAPIService implements MapboxAPICalling {
@@ -22,16 +29,84 @@ public class MapboxAPIService implements MapboxAPICalling {
 
     private final WebClient webClient;
     private final TravelRepository travelRepository;
+    private final RouteCacheService routeCacheService;
+
+    // limita quantas chamadas ficam em voo ao mesmo tempo
+    private final Semaphore inFlightRequests;
+    // quanto a chamada bloqueante (início de viagem, endpoint de rota) espera por uma vaga
+    private final long acquireTimeoutMillis;
 
     @Autowired
-    public MapboxAPIService(WebClient webClient, TravelRepository travelRepository) {
+    public MapboxAPIService(WebClient webClient, TravelRepository travelRepository, RouteCacheService routeCacheService, @Value("${mapbox.max-concurrent-requests:20}") int maxConcurrentRequests, @Value("${mapbox.acquire-timeout-ms:5000}") long acquireTimeoutMillis) {
         this.webClient = webClient;
         this.travelRepository = travelRepository;
+        this.routeCacheService = routeCacheService;
+        this.inFlightRequests = new Semaphore(maxConcurrentRequests);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
     }
 
-    // chamada bruta da api
+    // chamada bruta da api. Passa pelo mesmo limite de concorrência da versão assíncrona, mas espera
+    // por uma vaga: o início de viagem não pode falhar só porque os recálculos ocupam todas
     @Override
     public RouteDetailsDTO calculateRoute(Double originLong, Double originLat, Double destLong, Double destLat) {
+        try {
+            return calculateRoute(originLong, originLat, destLong, destLat, acquireTimeoutMillis).join();
+        } catch (CompletionException e) {
+            // devolve a exceção original (NoSuchCoordinates, limite atingido, erro do webclient)
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    // versão não bloqueante: não prende a thread do chamador durante a ida ao mapbox.
+    // Sem vaga no limite de concorrência falha na hora em vez de enfileirar
+    public CompletableFuture<RouteDetailsDTO> calculateRouteAsync(Double originLong, Double originLat, Double destLong, Double destLat) {
+        return calculateRoute(originLong, originLat, destLong, destLat, 0L);
+    }
+
+    private CompletableFuture<RouteDetailsDTO> calculateRoute(Double originLong, Double originLat, Double destLong, Double destLat, long waitMillis) {
+        RouteDetailsDTO cached = cachedRoute(originLong, originLat, destLong, destLat);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
+        if (!acquire(waitMillis)) {
+            return CompletableFuture.failedFuture(
+                    new RecalculateEtaException("Limite de chamadas simultâneas ao Mapbox atingido", null));
+        }
+
+        Mono<RouteDetailsDTO> route;
+        try {
+            route = requestRoute(originLong, originLat, destLong, destLat);
+        } catch (RuntimeException e) {
+            inFlightRequests.release();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // o resultado é consumido fora do event loop do netty (callbacks gravam no redis)
+        return route
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(routeDetails -> routeCacheService.put(originLong, originLat, destLong, destLat, routeDetails))
+                .doFinally(signal -> inFlightRequests.release())
+                .toFuture();
+    }
+
+    private boolean acquire(long waitMillis) {
+        if (waitMillis <= 0) return inFlightRequests.tryAcquire();
+
+        try {
+            return inFlightRequests.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // coordenada nula não entra no cache: segue para a validação de requestRoute
+    private RouteDetailsDTO cachedRoute(Double originLong, Double originLat, Double destLong, Double destLat) {
+        if (originLong == null || originLat == null || destLong == null || destLat == null) return null;
+
+        return routeCacheService.get(originLong, originLat, destLong, destLat);
+    }
+
+    private Mono<RouteDetailsDTO> requestRoute(Double originLong, Double originLat, Double destLong, Double destLat) {
         String waypoints = originLong + "," + originLat + ";" + destLong + "," + destLat;
 
         if (originLong == null || originLat == null || destLong == null || destLat == null) {
@@ -51,8 +126,7 @@ public class MapboxAPIService implements MapboxAPICalling {
                         .build(waypoints))
                 .retrieve()
                 .bodyToMono(MapboxApiResponse.class)
-                .map(this::RouteDetailsMapper)
-                .block();
+                .map(this::RouteDetailsMapper);
     }
 
     // retorna distância/tempo restante com base na localização atual
@@ -64,6 +138,14 @@ public class MapboxAPIService implements MapboxAPICalling {
         return routeDetails;
     }
 
+    public CompletableFuture<RouteDetailsDTO> recalculateETAAsync(Double currentLng, Double currentLat, Double finalLong, Double finalLat) {
+        return calculateRouteAsync(currentLng, currentLat, finalLong, finalLat)
+                .thenApply(routeDetails -> {
+                    if (routeDetails == null) throw new NoSuchCoordinates("Sem dados de rota");
+                    return routeDetails;
+                });
+    }
+
     // salva os dados de distance, duration e polyline na entidade Travel
     @Transactional
     public void getRouteDetailsDTO(Double originLong, Double originLat, Double destLong, Double destLat) {
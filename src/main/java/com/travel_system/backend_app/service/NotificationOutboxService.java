@@ -0,0 +1,111 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.model.dtos.MovementNotificationEventDTO;
+import com.travel_system.backend_app.model.dtos.ProximityNotificationDTO;
+import com.travel_system.backend_app.model.dtos.TravelNotificationEventDTO;
+import com.travel_system.backend_app.model.enums.MovementState;
+import com.travel_system.backend_app.model.enums.Priority;
+import com.travel_system.backend_app.utils.FirebaseNotificationSender;
+import com.travel_system.backend_app.utils.NotificationOutbox;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * pushs para os alunos passam pela caixa de saída: a cada janela (notification.outbox.window-ms) os avisos
+ * pendentes saem em lote. Movimento: alunos com o mesmo aviso da mesma viagem viram um envio multicast.
+ * Proximidade: uma mensagem por token, em lotes. janela 0 = envia na hora, sem agrupar
+ */
+@Service
+public class NotificationOutboxService {
+
+    private final FirebaseNotificationSender firebaseNotificationSender;
+    private final NotificationOutbox outbox = new NotificationOutbox();
+    private final long windowMillis;
+    private final ScheduledExecutorService flushScheduler;
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationOutboxService.class);
+
+    // alunos que recebem exatamente o mesmo aviso de movimento
+    private record MovementGroup(UUID travelId, MovementState movementState, Priority priority, String message) {
+    }
+
+    public NotificationOutboxService(FirebaseNotificationSender firebaseNotificationSender, @Value("${notification.outbox.window-ms:3000}") long windowMillis) {
+        this.firebaseNotificationSender = firebaseNotificationSender;
+        this.windowMillis = windowMillis;
+
+        if (windowMillis > 0) {
+            this.flushScheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "Notification-Outbox");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flushScheduler.scheduleWithFixedDelay(this::flushSafely, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.flushScheduler = null;
+        }
+    }
+
+    public void enqueueMovement(UUID travelId, List<UUID> studentIds, MovementState movementState, Priority priority, String message, UUID traceId) {
+        studentIds.forEach(studentId -> outbox.addMovement(new MovementNotificationEventDTO(studentId, travelId, movementState, priority, message, traceId)));
+        if (windowMillis <= 0) flush();
+    }
+
+    public void enqueueProximity(ProximityNotificationDTO proximityNotification) {
+        outbox.addProximity(proximityNotification);
+        if (windowMillis <= 0) flush();
+    }
+
+    public void flush() {
+        List<NotificationOutbox.PendingNotification> drained = outbox.drain();
+        if (drained.isEmpty()) return;
+
+        Map<MovementGroup, List<MovementNotificationEventDTO>> movements = new LinkedHashMap<>();
+        List<ProximityNotificationDTO> proximities = new ArrayList<>();
+
+        for (NotificationOutbox.PendingNotification notification : drained) {
+            MovementNotificationEventDTO movement = notification.movement();
+            if (movement != null) {
+                movements.computeIfAbsent(new MovementGroup(movement.travelId(), movement.movementState(), movement.priority(), movement.message()),
+                        group -> new ArrayList<>()).add(movement);
+            }
+            if (notification.proximity() != null) proximities.add(notification.proximity());
+        }
+
+        movements.forEach((group, notifications) -> firebaseNotificationSender.pushTravelNotification(new TravelNotificationEventDTO(
+                group.travelId(),
+                notifications.stream().map(MovementNotificationEventDTO::studentId).toList(),
+                group.movementState(),
+                group.priority(),
+                group.message(),
+                notifications.get(0).traceId())));
+
+        if (!proximities.isEmpty()) firebaseNotificationSender.pushProximityNotifications(proximities);
+
+        logger.info("[NotificationOutbox] {} alunos: {} envios de movimento, {} de proximidade ({} avisos agrupados até agora)",
+                drained.size(), movements.size(), proximities.size(), outbox.collapsed());
+    }
+
+    // o agendador para de rodar se uma execução lançar exceção
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("[NotificationOutbox] Falha ao esvaziar a caixa de saída: {}", e.getMessage(), e);
+        }
+    }
+
+    // envia o que ficou pendente antes de desligar
+    @PreDestroy
+    public void shutdown() {
+        if (flushScheduler != null) flushScheduler.shutdown();
+        flushSafely();
+    }
+}
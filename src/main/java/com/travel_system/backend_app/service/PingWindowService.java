@@ -0,0 +1,56 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.model.dtos.PingKinematicsDTO;
+import com.travel_system.backend_app.utils.PingWindow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * últimos N pings de cada viagem ativa em memória, no nó que recebe os pings.
+ * Movimento, parada e ETA leem a cinemática daqui, sem ir ao redis a cada ping
+ */
+@Service
+public class PingWindowService {
+
+    private final Map<UUID, PingWindow> windows = new ConcurrentHashMap<>();
+
+    private final int capacity;
+    private final double dwellRadiusMeters;
+
+    public PingWindowService(@Value("${tracking.ping-window.capacity:16}") int capacity,
+                             @Value("${tracking.ping-window.dwell-radius-meters:15}") double dwellRadiusMeters) {
+        this.capacity = capacity;
+        this.dwellRadiusMeters = dwellRadiusMeters;
+    }
+
+    public void record(UUID travelId, double latitude, double longitude, Double speed, Double heading, long timestampMillis) {
+        windows.computeIfAbsent(travelId, id -> new PingWindow(capacity, dwellRadiusMeters))
+                .add(latitude, longitude, speed, heading, timestampMillis);
+    }
+
+    // null quando a viagem ainda não recebeu pings neste nó
+    public PingKinematicsDTO kinematics(UUID travelId) {
+        PingWindow window = windows.get(travelId);
+        if (window == null) return null;
+
+        synchronized (window) {
+            return new PingKinematicsDTO(
+                    window.size(),
+                    window.windowSeconds(),
+                    window.pathMeters(),
+                    window.averageSpeed(),
+                    window.acceleration(),
+                    window.headingChange(),
+                    window.dwellSeconds());
+        }
+    }
+
+    public void release(UUID travelId) {
+        if (travelId == null) return;
+        windows.remove(travelId);
+    }
+}
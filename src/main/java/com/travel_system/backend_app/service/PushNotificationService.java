@@ -4,53 +4,61 @@ import com.travel_system.backend_app.events.StudentProximityEvents;
 import com.travel_system.backend_app.events.VehicleMovementEvents;
 import com.travel_system.backend_app.listeners.GpsMessagingListener;
 import com.travel_system.backend_app.model.dtos.AnalyzeMovementStateDTO;
+import com.travel_system.backend_app.model.dtos.PingKinematicsDTO;
 import com.travel_system.backend_app.model.dtos.VelocityAnalysisDTO;
-import com.travel_system.backend_app.model.dtos.mapboxApi.LiveLocationDTO;
-import com.travel_system.backend_app.model.dtos.mapboxApi.PreviousStateDTO;
 import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
-import com.travel_system.backend_app.model.dtos.response.DistanceResponseDTO;
-import com.travel_system.backend_app.model.dtos.response.LastLocationDTO;
 import com.travel_system.backend_app.model.dtos.response.NotificationStateDTO;
-import com.travel_system.backend_app.model.dtos.response.StudentTravelResponseDTO;
 import com.travel_system.backend_app.model.enums.MovementState;
+import com.travel_system.backend_app.model.enums.ProximityAlertType;
 import com.travel_system.backend_app.model.enums.ShouldNotify;
 import com.travel_system.backend_app.repository.TravelRepository;
+import com.travel_system.backend_app.utils.ProximityKernel;
+import com.travel_system.backend_app.utils.TravelRoster;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 public class PushNotificationService {
     private final TravelTrackingService travelTrackingService;
-    private final TravelService travelService;
-    private final RouteCalculationService routeCalculationService;
+    private final TravelRosterService travelRosterService;
     private final RedisNotificationService redisNotificationService;
     private final RedisTrackingService redisTrackingService;
     private final TravelRepository travelRepository;
     private final GpsMessagingListener gpsMessagingListener;
+    private final PingWindowService pingWindowService;
+    private final RouteProgressService routeProgressService;
 
     private final ApplicationEventPublisher eventPublisher;
 
+    private final ProximityKernel proximityKernel;
+
     private static final Logger logger = LoggerFactory.getLogger(PushNotificationService.class);
 
-    public PushNotificationService(TravelTrackingService travelTrackingService, TravelService travelService, RouteCalculationService routeCalculationService, RedisNotificationService redisNotificationService, RedisTrackingService redisTrackingService, TravelRepository travelRepository, GpsMessagingListener gpsMessagingListener, ApplicationEventPublisher eventPublisher) {
+    // buffers do kernel reaproveitados por thread (as faixas de viagem são threads fixas)
+    private static final ThreadLocal<ProximityKernel.Batch> PROXIMITY_BATCH = ThreadLocal.withInitial(ProximityKernel.Batch::new);
+
+    public PushNotificationService(TravelTrackingService travelTrackingService, TravelRosterService travelRosterService, RedisNotificationService redisNotificationService, RedisTrackingService redisTrackingService, TravelRepository travelRepository, GpsMessagingListener gpsMessagingListener, PingWindowService pingWindowService, RouteProgressService routeProgressService, ApplicationEventPublisher eventPublisher, @Value("${tracking.proximity.parallel-threshold:1024}") int proximityParallelThreshold) {
         this.travelTrackingService = travelTrackingService;
-        this.travelService = travelService;
-        this.routeCalculationService = routeCalculationService;
+        this.travelRosterService = travelRosterService;
         this.redisNotificationService = redisNotificationService;
         this.redisTrackingService = redisTrackingService;
         this.travelRepository = travelRepository;
         this.gpsMessagingListener = gpsMessagingListener;
+        this.pingWindowService = pingWindowService;
+        this.routeProgressService = routeProgressService;
         this.eventPublisher = eventPublisher;
+        this.proximityKernel = new ProximityKernel(proximityParallelThreshold);
     }
 
     /*
@@ -64,78 +72,74 @@ public class PushNotificationService {
         Double speed = vehicleLocationRequest.speed();
         Double heading = vehicleLocationRequest.heading();
 
-        LiveLocationDTO driverPosition = new LiveLocationDTO(latitude, longitude, null, 0.0, null, null);
-        Set<StudentTravelResponseDTO> linkedStudentTravel = travelService.linkedStudentTravel(travelId);
-        List<DistanceResponseDTO> differencePosition = distanceBetweenPositions(travelId, driverPosition);
+        // roster em memória (arrays de alunos/pontos de embarque): nenhum acesso ao banco por ping
+        TravelRoster roster = travelRosterService.roster(travelId);
+        long now = Instant.now().toEpochMilli();
+
+        ProximityKernel.Batch batch = PROXIMITY_BATCH.get();
+        batch.reset(roster.size());
+
+        /*
+          só quem está perto do ônibus muda de zona ou passa um passo NEAR: fora da varredura completa,
+          a grade devolve os alunos dentro do raio FAR (mais a folga do deslocamento entre varreduras)
+        */
+        boolean fullSweep = travelRosterService.claimFullSweep(travelId, latitude, longitude, now);
+        int candidateCount = fullSweep ? 0 : roster.collectWithin(latitude, longitude, travelRosterService.candidateRadiusMeters(), batch.candidates());
+
+        // estado de notificação dos alunos avaliados em uma ida ao redis; as mudanças voltam juntas no final
+        List<UUID> evaluatedStudentIds = fullSweep ? roster.positionedStudentIds() : candidateStudentIds(roster, batch.candidates(), candidateCount);
+        Map<UUID, NotificationStateDTO> notificationStates = redisNotificationService.readNotificationStates(travelId, evaluatedStudentIds);
 
-        Map<UUID, Double> distances = differencePosition.stream()
-                .collect(Collectors.toMap(DistanceResponseDTO::studentId, DistanceResponseDTO::distance));
+        if (fullSweep) {
+            for (int i = 0; i < roster.size(); i++) {
+                if (roster.hasPosition(i)) batch.loadPrevious(i, notificationStates.get(roster.studentId(i)));
+            }
+            proximityKernel.evaluate(roster, latitude, longitude, now, batch);
+        } else {
+            for (int k = 0; k < candidateCount; k++) {
+                int i = batch.candidates()[k];
+                batch.loadPrevious(i, notificationStates.get(roster.studentId(i)));
+            }
+            proximityKernel.evaluateCandidates(roster, latitude, longitude, now, batch, candidateCount);
+        }
 
-        linkedStudentTravel.forEach(student -> {
-            NotificationStateDTO readNotificationState = redisNotificationService.readNotificationState(travelId, student.studentId());
+        Map<UUID, NotificationStateDTO> changedStates = new HashMap<>();
+        String nowMillis = String.valueOf(now);
+        String timestamp = String.valueOf(Instant.ofEpochMilli(now));
 
-            Double distance = distances.get(student.studentId());
-            if (distance == null) return; // Segurança caso o aluno não tenha distância calculada
+        for (int i = 0; i < roster.size(); i++) {
+            ProximityAlertType alertType = batch.alert(i);
+            if (alertType == null) continue;
 
-            String zone = distance >= 1000 ? "FAR" : "NEAR";
-            String nowMillis = String.valueOf(Instant.now().toEpochMilli());
-            String timestamp = String.valueOf(Instant.now());
+            UUID studentId = roster.studentId(i);
+            double distance = batch.distance(i);
+            String zone = batch.zone(i);
 
-            Boolean shouldPushNotification = redisNotificationService.verifyNotificationState(
+            eventPublisher.publishEvent(new StudentProximityEvents(
                     travelId,
-                    student.studentId(),
+                    studentId,
                     distance,
-                    readNotificationState);
-
-            String alertType = "INITIAL_STATE";
-
-            if (readNotificationState != null && readNotificationState.zone() != null) {
-                // Se a zona mudou
-                if (!zone.equals(readNotificationState.zone())) {
-                    alertType = "ZONE_CHANGED";
-                } else {
-                    // Se a zona é a mesma, verifica-se o tempo ou distância percorrida
-                    try {
-                        long lastTime = Long.parseLong(readNotificationState.lastNotificationAt());
-                        long elapsedMillis = Instant.now().toEpochMilli() - lastTime;
-
-                        if (elapsedMillis >= 720000) { // 12 minutos
-                            alertType = "TIME_ELAPSED";
-                        } else {
-                            double lastDistance = Double.parseDouble(readNotificationState.lastDistanceNotified());
-                            double deltaDistance = Math.abs(distance - lastDistance);
-                            double step = zone.equals("FAR") ? 200.0 : 30.0;
-
-                            if (deltaDistance >= step) {
-                                alertType = "DISTANCE_STEP_REACHED";
-                            } else {
-                                alertType = "PERIODIC_UPDATE"; // Caso passe no verify mas não mude zona/step
-                            }
-                        }
-                    } catch (Exception e) {
-                        alertType = "STATE_RECOVERY"; // Caso o dado no Redis esteja corrompido
-                    }
-                }
-            }
+                    zone,
+                    timestamp,
+                    alertType.name()));
 
-            if (shouldPushNotification) {
-                eventPublisher.publishEvent(new StudentProximityEvents(
-                        travelId,
-                        student.studentId(),
-                        distance,
-                        zone,
-                        timestamp,
-                        alertType));
-
-                logger.info("Evento publicado [{}]: aluno {} na viagem {}", alertType, student.studentId(), travelId);
-
-                redisNotificationService.updateNotificationState(travelId, student.studentId(),
-                        new NotificationStateDTO(zone,
-                                distance.toString(),
-                                nowMillis,
-                                timestamp));
-            }
-        });
+            logger.info("Evento publicado [{}]: aluno {} na viagem {}", alertType, studentId, travelId);
+
+            changedStates.put(studentId, new NotificationStateDTO(zone,
+                    String.valueOf(distance),
+                    nowMillis,
+                    timestamp));
+        }
+
+        redisNotificationService.updateNotificationStates(travelId, changedStates);
+    }
+
+    private static List<UUID> candidateStudentIds(TravelRoster roster, int[] candidates, int candidateCount) {
+        List<UUID> studentIds = new ArrayList<>(candidateCount);
+        for (int k = 0; k < candidateCount; k++) {
+            studentIds.add(roster.studentId(candidates[k]));
+        }
+        return studentIds;
     }
 
     public void processVehicleMovement(VehicleLocationRequestDTO vehicleLocationRequest) {
@@ -243,126 +247,53 @@ public class PushNotificationService {
     */
     private VelocityAnalysisDTO analyzeVehicleMovement(VehicleLocationRequestDTO vehicleLocationRequest) {
         UUID travelId = vehicleLocationRequest.travelId();
-        Double latitude = vehicleLocationRequest.latitude();
-        Double longitude = vehicleLocationRequest.longitude();
-
-        LiveLocationDTO lastRecentPosition = redisTrackingService.getLiveLocation(String.valueOf(travelId));
-        LastLocationDTO lastLocation = redisTrackingService.getLastLocation(travelId);
-        LiveLocationDTO actuallyPosition = getLiveLocationDTO(latitude, longitude, lastRecentPosition);
-
-        VelocityAnalysisDTO result;
 
-        // Primeiro ping
-        if (lastLocation == null) {
-            return new VelocityAnalysisDTO(null, null, null, null, MovementState.INSUFFICIENT_DATA);
-        }
-
-        long elapsedSeconds = Duration
-                .between(Instant.ofEpochMilli(lastLocation.timestamp()), Instant.now())
-                .toSeconds();
+        // janela dos últimos pings em memória: sem leitura no redis por ping
+        PingKinematicsDTO kinematics = pingWindowService.kinematics(travelId);
 
         final int MIN_SECONDS = 5;
-        if (elapsedSeconds < MIN_SECONDS) {
+        if (kinematics == null || kinematics.samples() < 2 || kinematics.windowSeconds() < MIN_SECONDS) {
             return new VelocityAnalysisDTO(null, null, null, null, MovementState.INSUFFICIENT_DATA);
         }
 
-        // atualiza última posição no redis mesmo se algo falhar
-        redisTrackingService.keepMemoryBetweenDriverPings(travelId, actuallyPosition);
-
-        Double distanceBetweenPings =
-                routeCalculationService.calculateHaversineDistanceInMeters(
-                        longitude, latitude,
-                        lastLocation.longitude(),
-                        lastLocation.latitude());
-
-        PreviousStateDTO previousEta =
-                redisTrackingService.getPreviousEta(String.valueOf(travelId));
+        long elapsedSeconds = (long) kinematics.windowSeconds();
+        double distanceInWindow = kinematics.pathMeters();
+        // média da janela inteira: um ping com jitter não derruba nem dispara a classificação
+        double avgSpeed = kinematics.averageSpeed();
 
         Double newETA = null;
-        double distanceRemaining = 0;
         MovementState state;
-        double avgSpeed = distanceBetweenPings / elapsedSeconds;
         final double MIN_SPEED_THRESHOLD = 0.5;
-        final int MIN_SOLID_SPEED_DISTANCE = 1;
+        final double STOPPED_SPEED_THRESHOLD = 0.2;
+        // parado no mesmo raio por 1 minuto, mesmo com deslocamentos mínimos (fila, embarque)
+        final double DWELL_STOPPED_SECONDS = 60;
 
-        if (previousEta != null) {
-            distanceRemaining = previousEta.distanceRemaining();
-        }
+        Double lastDistanceRemaining = routeProgressService.lastDistanceRemaining(travelId);
+        double distanceRemaining = lastDistanceRemaining != null ? lastDistanceRemaining : 0;
 
-        logger.info("[ANALYSIS DEBUG] Travel: {} | Elapsed: {}s | Distance: {}m | Speed: {}m/s | Threshold: {}m/s | Lat/Lng: {} , {}",
-                travelId, elapsedSeconds, String.format("%.2f", distanceBetweenPings), String.format("%.2f", avgSpeed), MIN_SPEED_THRESHOLD, latitude, longitude);
+        logger.info("[ANALYSIS DEBUG] Travel: {} | Window: {}s | Distance: {}m | Speed: {}m/s | Accel: {}m/s2 | Turn: {} | Dwell: {}s",
+                travelId, elapsedSeconds, String.format("%.2f", distanceInWindow), String.format("%.2f", avgSpeed),
+                String.format("%.2f", kinematics.acceleration()), String.format("%.0f", kinematics.headingChange()), String.format("%.0f", kinematics.dwellSeconds()));
 
-        // moveu menos q 1m = está parado
-        if (distanceBetweenPings < MIN_SOLID_SPEED_DISTANCE) {
+        if (avgSpeed < STOPPED_SPEED_THRESHOLD || kinematics.dwellSeconds() >= DWELL_STOPPED_SECONDS) {
             state = MovementState.STOPPED;
         } else if (avgSpeed <= MIN_SPEED_THRESHOLD) {
             state = MovementState.SLOW;
         } else {
             state = MovementState.NORMAL;
-            if (distanceRemaining > 0 && avgSpeed > MIN_SPEED_THRESHOLD) {
+            // só para o alerta: o ETA gravado no redis vem do RouteProgressService, com a mesma velocidade
+            if (distanceRemaining > 0) {
                 newETA = distanceRemaining / avgSpeed;
-
-                redisTrackingService.updateTripEtaState(
-                        travelId,
-                        distanceRemaining,
-                        newETA,
-                        Instant.now()
-                );
             }
         }
 
-        result = new VelocityAnalysisDTO(
+        return new VelocityAnalysisDTO(
                 avgSpeed,
                 elapsedSeconds,
-                distanceBetweenPings,
+                distanceInWindow,
                 newETA,
                 state
         );
-
-        return result;
-    }
-
-    private LiveLocationDTO getLiveLocationDTO(Double latitude, Double longitude, LiveLocationDTO lastRecentPosition) {
-        String geometry = lastRecentPosition != null ? lastRecentPosition.geometry() : null;
-        double distance = lastRecentPosition != null ? lastRecentPosition.distance() : 0.0;
-        double lastCalcLat = lastRecentPosition != null ? lastRecentPosition.lastCalcLat() : 0.0;
-        double lastCalcLng = lastRecentPosition != null ? lastRecentPosition.lastCalcLng() : 0.0;
-
-        return new LiveLocationDTO(
-                latitude,
-                longitude,
-                geometry,
-                distance,
-                lastCalcLat,
-                lastCalcLng);
-    }
-
-    // distance between driver and student
-    protected List<DistanceResponseDTO> distanceBetweenPositions(UUID travelId, LiveLocationDTO driverPosition) {
-        Set<StudentTravelResponseDTO> linkedStudentTravel = travelService.linkedStudentTravel(travelId);
-
-        logger.info("Viagem {}: Iniciando cálculo de distância para {} alunos vinculados.", travelId, linkedStudentTravel.size());
-
-        List<DistanceResponseDTO> results = linkedStudentTravel.stream()
-                .filter(student -> {
-                    boolean hasPosition = student.position() != null;
-                    if (!hasPosition) {
-                        logger.warn("Aluno {} ignorado: Posição (GeoPosition) está nula no banco.", student.studentId());
-                    }
-                    return hasPosition;
-                })
-                .map(student -> {
-                    double distance = routeCalculationService.calculateHaversineDistanceInMeters(
-                            driverPosition.latitude(),
-                            driverPosition.longitude(),
-                            student.position().getLatitude(),
-                            student.position().getLongitude()
-                    );
-                    return new DistanceResponseDTO(student.studentId(), distance);
-                })
-                .toList();
-        logger.info("Viagem {}: Cálculo concluído. {} alunos processados com sucesso.", travelId, results.size());
-        return results;
     }
 
     private boolean hasEnoughCooldownForStopped(Instant lastEtaNotify, Instant now, long notificationCooldown) {
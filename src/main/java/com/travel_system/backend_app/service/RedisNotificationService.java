@@ -5,11 +5,14 @@ import com.travel_system.backend_app.model.dtos.mapboxApi.LiveLocationDTO;
 import com.travel_system.backend_app.model.dtos.response.NotificationStateDTO;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -19,6 +22,7 @@ public class RedisNotificationService {
     private final HashOperations<String, String, String> hashOperations;
 
     private final String HASH_KEY_PREFIX = "notification:";
+    private static final List<String> STATE_FIELDS = List.of("zone", "lastDistanceNotified", "lastNotificationAt", "timeStamp");
 
     public RedisNotificationService(RedisTemplate<String, Object> redisTemplate) {
         this.redisTemplate = redisTemplate;
@@ -39,6 +43,65 @@ public class RedisNotificationService {
         return new NotificationStateDTO(zone, lastDistanceNotified, lastNotificationAt, timeStamp);
     }
 
+    // leitura do estado de todos os alunos da viagem em um único pipeline (uma ida ao redis)
+    public Map<UUID, NotificationStateDTO> readNotificationStates(UUID travelId, List<UUID> studentIds) {
+        if (travelId == null) throw new EntityNotFoundException("Travel não encontrada");
+        if (studentIds.isEmpty()) return Map.of();
+
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                HashOperations<String, String, String> pipelinedHash = ((RedisOperations<String, Object>) operations).opsForHash();
+
+                for (UUID studentId : studentIds) {
+                    pipelinedHash.multiGet(stateKey(travelId, studentId), STATE_FIELDS);
+                }
+                return null;
+            }
+        });
+
+        Map<UUID, NotificationStateDTO> states = new HashMap<>(studentIds.size() * 2);
+
+        for (int i = 0; i < studentIds.size(); i++) {
+            List<?> values = (List<?>) results.get(i);
+
+            states.put(studentIds.get(i), new NotificationStateDTO(
+                    (String) values.get(0),
+                    (String) values.get(1),
+                    (String) values.get(2),
+                    (String) values.get(3)));
+        }
+
+        return states;
+    }
+
+    // grava de uma vez, em um pipeline, os estados que mudaram na avaliação do ping
+    public void updateNotificationStates(UUID travelId, Map<UUID, NotificationStateDTO> newStates) {
+        if (travelId == null) throw new EntityNotFoundException("Travel não encontrada");
+        if (newStates.isEmpty()) return;
+
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                HashOperations<String, String, String> pipelinedHash = ((RedisOperations<String, Object>) operations).opsForHash();
+
+                newStates.forEach((studentId, newState) -> {
+                    Map<String, String> fields = new HashMap<>();
+
+                    fields.put("zone", newState.zone());
+                    fields.put("lastDistanceNotified", newState.lastDistanceNotified());
+                    fields.put("lastNotificationAt", newState.lastNotificationAt());
+                    fields.put("timeStamp", newState.timeStamp() != null ? newState.timeStamp() : String.valueOf(Instant.now()));
+
+                    pipelinedHash.putAll(stateKey(travelId, studentId), fields);
+                });
+                return null;
+            }
+        });
+    }
+
     // verification
     public Boolean verifyNotificationState(UUID travelId, UUID studentId, Double currentDistanceMeters, NotificationStateDTO state) {
         if (state == null || state.zone() == null || state.zone().isEmpty()) return true;
@@ -115,4 +178,8 @@ public class RedisNotificationService {
         }
 
     }
+
+    private String stateKey(UUID travelId, UUID studentId) {
+        return HASH_KEY_PREFIX + travelId + ":" + studentId;
+    }
 }
@@ -1,98 +1,70 @@
 package com.travel_system.backend_app.service;
 
 import com.travel_system.backend_app.exceptions.*;
-import com.travel_system.backend_app.model.Travel;
 import com.travel_system.backend_app.model.dtos.AnalyzeMovementStateDTO;
-import com.travel_system.backend_app.model.dtos.VelocityAnalysisDTO;
+import com.travel_system.backend_app.model.dtos.TrackingPingUpdateDTO;
 import com.travel_system.backend_app.model.dtos.mapboxApi.LiveLocationDTO;
-import com.travel_system.backend_app.model.dtos.mapboxApi.PreviousStateDTO;
-import com.travel_system.backend_app.model.dtos.response.LastLocationDTO;
 import com.travel_system.backend_app.model.enums.MovementState;
-import com.travel_system.backend_app.repository.TravelRepository;
 import io.micrometer.common.util.StringUtils;
-import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.core.HashOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 
 @Service
 public class RedisTrackingService {
 
-    private final RouteCalculationService routeCalculationService;
-
     private final RedisTemplate<String, String> redisTemplate;
     private final HashOperations<String, String, String> hashOperations;
-    private final TravelRepository travelRepository;
+    private final RedisScript<String> applyPingScript;
 
     private final Logger logger = LoggerFactory.getLogger(RedisTrackingService.class);
 
     private final String SET_KEY = "ACTIVE_TRAVELS_KEY";
     private final String HASH_KEY_PREFIX = "travelId:";
 
-    public RedisTrackingService(RouteCalculationService routeCalculationService, RedisTemplate<String, String> redisTemplate, TravelRepository travelRepository) {
-        this.routeCalculationService = routeCalculationService;
+    public RedisTrackingService(RedisTemplate<String, String> redisTemplate, RedisScript<String> applyPingScript) {
         this.redisTemplate = redisTemplate;
         this.hashOperations = redisTemplate.opsForHash();
-        this.travelRepository = travelRepository;
+        this.applyPingScript = applyPingScript;
     }
 
-    // armazena a localização mais recente do motorista em cache com redisTemplate
-    public void storeLiveLocation(String travelId, String latitude, String longitude, Double distance, String geometry) {
+    /*
+     * aplica o ping inteiro (posição, distância acumulada, ETA/status e estado de movimento)
+     * em uma única chamada EVALSHA - atômico mesmo com pings da mesma viagem concorrentes
+     * retorna a distância acumulada após o ping
+     */
+    public Double applyPing(UUID travelId, TrackingPingUpdateDTO ping) {
         if (travelId == null) throw new TripNotFound("Id da viagem não encontrado " + travelId);
 
         String key = HASH_KEY_PREFIX + travelId;
-
-        Map<String, String> data = new HashMap<>();
-
-        // dados cache
-        data.put("distanceRemaining", distance.toString());
-        data.put("geometry", geometry);
-
-        // ponto de referência de onde a rota foi calculada
-        data.put("last_calc_lat", latitude);
-        data.put("last_calc_lng", longitude);
-
-        // obtem o timestamp real do servidor (ultimo ping)
-        String currentTimeStamp = String.valueOf(Instant.now().toEpochMilli());
-        data.put("timestamp", currentTimeStamp);
-
-        List<String> fields = Arrays.asList("last_calc_lat", "last_calc_lng", "accumulatedDistance");
-        List<String> values = hashOperations.multiGet(key, fields);
-
-        Map<String, String> oldData = IntStream.range(0, fields.size())
-                .filter(i -> values.get(0) != null).boxed()
-                .collect(Collectors.toMap(
-                        fields::get,
-                        values::get
-                ));
+        AnalyzeMovementStateDTO movement = ping.movementState();
+
+        String accumulatedDistance = redisTemplate.execute(applyPingScript, List.of(key),
+                scriptArg(ping.latitude()),
+                scriptArg(ping.longitude()),
+                scriptArg(ping.distanceRemaining()),
+                scriptArg(ping.durationRemaining()),
+                scriptArg(ping.geometry()),
+                scriptArg(ping.status()),
+                scriptArg(ping.timestamp()),
+                scriptArg(movement != null ? movement.movementState() : null),
+                scriptArg(movement != null ? movement.stateStartedAt() : null),
+                scriptArg(movement != null ? movement.lastNotificationSendAt() : null),
+                scriptArg(movement != null ? movement.lastEtaNotificationAt() : null));
 
         try {
-            double totalUntilNow = 0;
-            if (!oldData.isEmpty()) {
-                double oldLat = Double.parseDouble(oldData.get("last_calc_lat"));
-                double oldLng = Double.parseDouble(oldData.get("last_calc_lng"));
-
-                Double distIncremental = routeCalculationService.calculateHaversineDistanceInMeters(
-                        Double.parseDouble(longitude), Double.parseDouble(latitude), oldLat, oldLng);
-
-                double previousAccumulated = Double.parseDouble(oldData.getOrDefault("accumulatedDistance", "0"));
-                totalUntilNow = previousAccumulated + distIncremental;
-
-                data.put("accumulatedDistance", String.valueOf(totalUntilNow));
-            }
-
-            hashOperations.putAll(key, data);
-        } catch (Exception e) {
+            return accumulatedDistance != null ? Double.parseDouble(accumulatedDistance) : 0.0;
+        } catch (NumberFormatException e) {
             logger.warn("Dados de distância da viagem corrompidos ou inválidos: {}", travelId);
+            return 0.0;
         }
     }
 
@@ -107,21 +79,13 @@ public class RedisTrackingService {
         return accumulatedDistance != null ? accumulatedDistance : "0.0";
     }
 
-    // retorna o último ETA armazenado + a distância
-    public PreviousStateDTO getPreviousEta(String travelId) {
+    // geometria da rota em uso (original ou recalculada); null antes do primeiro ping processado
+    public String getActiveGeometry(UUID travelId) {
         if (travelId == null) return null;
         String key = HASH_KEY_PREFIX + travelId;
 
-        String durationRemaining = hashOperations.get(key, "durationRemaining");
-        String distance = hashOperations.get(key, "distanceRemaining");
-        String timestampLastPing = hashOperations.get(key, "timestamp");
-
-        logger.info("[getPreviousETA] - durationRemaining: {} {} {}", durationRemaining + " distance: ", distance + " timestampLastPing: ", timestampLastPing );
-
-        return new PreviousStateDTO(
-                durationRemaining != null ? Double.parseDouble(durationRemaining) : null,
-                distance != null ? Double.parseDouble(distance) : null,
-                timestampLastPing != null ? Long.parseLong(timestampLastPing) : null);
+        String geometry = hashOperations.get(key, "geometry");
+        return StringUtils.isBlank(geometry) ? null : geometry;
     }
 
     // fornece a loc mais recente e o timestamp para o front-end
@@ -161,47 +125,18 @@ public class RedisTrackingService {
         }
     }
 
-    // fornece a última loc registrada - estado de localização (antes da loc mais recente)
-    public LastLocationDTO getLastLocation(UUID travelId) {
-        String key = HASH_KEY_PREFIX + travelId;
-
-        // read hash
-        String lastPingLat = hashOperations.get(key, "last_ping_lat");
-        String lastPingLng = hashOperations.get(key, "last_ping_lng");
-        String timestamp = hashOperations.get(key, "timestamp");
-
-        // is first ping return null. Who calling this method decided create an initial state
-        if (timestamp == null) return null;
-        else {
-            if (lastPingLat == null || lastPingLng == null || timestamp.isEmpty()) {
-                // retorna null para tratar como primeiro ping
-                return null;
-            }
-
-            try {
-                double LastPingLatToDouble = Double.parseDouble(lastPingLat);
-                double LastPingLngToDouble = Double.parseDouble(lastPingLng);
-                long timestampToLong = Long.parseLong(timestamp);
-
-                logger.info("Dados da última loc registrada retornados com sucesso: {}", travelId);
-                return new LastLocationDTO(LastPingLatToDouble, LastPingLngToDouble, timestampToLong);
-            } catch (NumberFormatException e) {
-                logger.warn("Dados de localização corrompidos no Redis para a viagem: {}", travelId);
-                return null;
-            }
-        }
-    }
-
     // fornece o último estado do veículo
     public AnalyzeMovementStateDTO getLastMovementState(String travelId) {
-        Travel travel = travelRepository.findById(UUID.fromString(travelId)).orElseThrow(() -> new EntityNotFoundException("Travel não encontrada"));
+        // a chave é montada direto pelo id: sem ida ao banco a cada ping
+        String key = HASH_KEY_PREFIX + travelId;
 
-        String key = HASH_KEY_PREFIX + travel.getId();
+        List<String> values = hashOperations.multiGet(key,
+                List.of("movementState", "stateStartedAt", "lastNotificationSendAt", "lastEtaNotificationAt"));
 
-        String cacheMovementState = hashOperations.get(key, "movementState");
-        String cacheStateStartedAt = hashOperations.get(key, "stateStartedAt");
-        String cacheLastNotificationSendAt = hashOperations.get(key, "lastNotificationSendAt");
-        String cacheLastEtaNotificationAt = hashOperations.get(key, "lastEtaNotificationAt");
+        String cacheMovementState = values.get(0);
+        String cacheStateStartedAt = values.get(1);
+        String cacheLastNotificationSendAt = values.get(2);
+        String cacheLastEtaNotificationAt = values.get(3);
 
         // if not exists = first ping
         if (cacheMovementState == null || cacheStateStartedAt == null) {
@@ -220,90 +155,18 @@ public class RedisTrackingService {
         }
     }
 
-    // atualiza ETA restante, distância restante e o status atualizado
-    public void storeTravelMetadata(String travelId, Double durationRemaining, Double distance, String status) {
-        String key = HASH_KEY_PREFIX + travelId;
-
-        if (travelId == null) throw new TripNotFound("Id da viagem não encontrado " + travelId);
-
-        // HSET: vai atualizar os campos de distance, eta e status sem afetar LAT/LNG
-        hashOperations.put(key, "durationRemaining", durationRemaining.toString());
-        hashOperations.put(key, "timestamp", String.valueOf(Instant.now().toEpochMilli()));
-        hashOperations.put(key, "distanceRemaining", distance.toString());
-        hashOperations.put(key, "status", status);
-    }
-
-    // mantém memória entre os pings do driver
-    public void keepMemoryBetweenDriverPings(UUID travelId, LiveLocationDTO driverPosition) {
-        long now = Instant.now().toEpochMilli();
-
-        String key = HASH_KEY_PREFIX + travelId;
-
-        Map<String, String> data = hashOperations.entries(key);
-
-        data.put("last_ping_lat", String.valueOf(driverPosition.latitude()));
-        data.put("last_ping_lng", String.valueOf(driverPosition.longitude()));
-        data.put("timestamp", String.valueOf(now));
-
-        logger.info("[keepMemoryBetweenDriverPings] Com estado, salvando...: {}", travelId);
-
-        hashOperations.putAll(key, data);
-    }
-
-    // atualiza o estado de ETA da viagem
-    public void updateTripEtaState(UUID travelId, Double distanceRemaining, Double durationRemaining, Instant timestamp) {
-        if (travelId == null || distanceRemaining == null || durationRemaining == null || timestamp == null) {
-            throw new EtaDataStatesInvalidException("Dados do estado ETA inválidos ou corrompidos");
-        }
-
-        String distanceRemainingString = String.valueOf(distanceRemaining);
-        String durationRemainingToString = String.valueOf(durationRemaining);
-        String timestampToString = String.valueOf(timestamp.toEpochMilli());
-
-        String key = HASH_KEY_PREFIX + travelId;
-
-        Map<String, String> data = new HashMap<>();
-
-        data.put("distanceRemaining", distanceRemainingString);
-        data.put("durationRemaining", durationRemainingToString);
-        data.put("timestamp", timestampToString);
-
-        hashOperations.putAll(key, data);
-    }
-
     // armazena apenas o estado de movimento
     public void saveAnalyzedMovementState(UUID travelId, AnalyzeMovementStateDTO analyzeMovementStateDTO) {
         // primeiro ping
         if (analyzeMovementStateDTO == null) return;
 
-        String key = HASH_KEY_PREFIX + travelId;
-
-        String movementState = String.valueOf(analyzeMovementStateDTO.movementState());
-        String stateStartedAt = String.valueOf(analyzeMovementStateDTO.stateStartedAt());
-
-        Map<String, String> data = new HashMap<>();
-
-        String cacheMovementState = hashOperations.get(key, "movementState");
-        String lastNotificationSendAt = hashOperations.get(key, "lastNotificationSendAt");
-        String lastEtaNotificationAt = hashOperations.get(key, "lastEtaNotificationAt");
-
-        if (cacheMovementState == null) {
-            velocityAnalysisHelper(key, movementState, data, stateStartedAt, lastNotificationSendAt, lastEtaNotificationAt);
-        }
-        else if (!movementState.equals(cacheMovementState)) {
-            velocityAnalysisHelper(key, movementState, data, stateStartedAt, lastNotificationSendAt, lastEtaNotificationAt);
-        } else {
-            data.put("movementState", movementState);
-            hashOperations.putAll(key, data);
-        }
+        // a comparação com o estado anterior (stateStartedAt) é feita dentro do script
+        applyPing(travelId, new TrackingPingUpdateDTO(null, null, null, null, null, null, null, analyzeMovementStateDTO));
     }
 
     // marca que uma notificação foi enviada
     public void markNotificationAsSent(String travelId) {
-        Travel travel = travelRepository.findById(UUID.fromString(travelId))
-                .orElseThrow(() -> new EntityNotFoundException("Viagem não encontrada"));
-
-        String key = HASH_KEY_PREFIX + travel.getId();
+        String key = HASH_KEY_PREFIX + travelId;
 
         String lastNotificationSendAt = String.valueOf(Instant.now());
 
@@ -318,7 +181,12 @@ public class RedisTrackingService {
 
     // remove ids de viagens inativas do set do redis
     public void removeUnactiveTravel(UUID travelId) {
-        redisTemplate.opsForSet().remove(SET_KEY, travelId);
+        redisTemplate.opsForSet().remove(SET_KEY, travelId.toString());
+    }
+
+    // verifica se a viagem ainda está no set de viagens ativas (SISMEMBER)
+    public boolean isActiveTravel(UUID travelId) {
+        return Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(SET_KEY, travelId.toString()));
     }
 
     // retorna os ids de viagens ativas
@@ -376,13 +244,7 @@ public class RedisTrackingService {
         return differenceBetweenTimes.toSeconds() >= allowedSeconds;
     }
 
-    private void velocityAnalysisHelper(String key, String movementState, Map<String, String> data, String stateStartedAt, String lastNotificationSendAt, String lastEtaNotificationAt) {
-        data.put("movementState", movementState);
-        data.put("stateStartedAt", stateStartedAt);
-
-        if (lastNotificationSendAt != null) data.put("lastNotificationSendAt", lastNotificationSendAt);
-        if (lastEtaNotificationAt != null) data.put("lastEtaNotificationAt", lastEtaNotificationAt);
-
-        hashOperations.putAll(key, data);
+    private String scriptArg(Object value) {
+        return value != null ? String.valueOf(value) : "";
     }
 }
@@ -0,0 +1,143 @@
+package com.travel_system.backend_app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.travel_system.backend_app.model.dtos.mapboxApi.CachedRouteDTO;
+import com.travel_system.backend_app.model.dtos.mapboxApi.RouteDetailsDTO;
+import com.travel_system.backend_app.model.dtos.response.RouteCacheStatsDTO;
+import com.travel_system.backend_app.utils.DecodedRoute;
+import com.travel_system.backend_app.utils.GeoHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * cache das rotas do mapbox: origem e destino quantizados em células geohash,
+ * tier em memória (LRU + TTL) e tier opcional no redis compartilhado entre instâncias
+ */
+@Service
+public class RouteCacheService {
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+
+    private final int geohashPrecision;
+    private final long ttlMillis;
+    private final double maxOriginOffsetMeters;
+    private final boolean redisEnabled;
+
+    private final Map<String, CachedRouteDTO> routes;
+
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong redisHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private final String KEY_PREFIX = "route:cache:";
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteCacheService.class);
+
+    public RouteCacheService(RedisTemplate<String, String> redisTemplate,
+                             ObjectMapper objectMapper,
+                             Clock clock,
+                             @Value("${route.cache.geohash-precision:7}") int geohashPrecision,
+                             @Value("${route.cache.max-entries:1000}") int maxEntries,
+                             @Value("${route.cache.ttl-minutes:1440}") long ttlMinutes,
+                             @Value("${route.cache.max-origin-offset-meters:50}") double maxOriginOffsetMeters,
+                             @Value("${route.cache.redis-enabled:false}") boolean redisEnabled) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.geohashPrecision = geohashPrecision;
+        this.ttlMillis = Duration.ofMinutes(ttlMinutes).toMillis();
+        this.maxOriginOffsetMeters = maxOriginOffsetMeters;
+        this.redisEnabled = redisEnabled;
+        this.routes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedRouteDTO> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    // null quando não há rota válida para a célula de origem/destino
+    public RouteDetailsDTO get(Double originLong, Double originLat, Double destLong, Double destLat) {
+        String key = cacheKey(originLong, originLat, destLong, destLat);
+        long now = clock.millis();
+
+        CachedRouteDTO cached = routes.get(key);
+        if (isUsable(cached, originLat, originLong, now)) {
+            localHits.incrementAndGet();
+            return cached.route();
+        }
+
+        if (redisEnabled) {
+            CachedRouteDTO shared = readFromRedis(key);
+            if (isUsable(shared, originLat, originLong, now)) {
+                routes.put(key, shared);
+                redisHits.incrementAndGet();
+                return shared.route();
+            }
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(Double originLong, Double originLat, Double destLong, Double destLat, RouteDetailsDTO route) {
+        if (route == null || route.geometry() == null) return;
+
+        String key = cacheKey(originLong, originLat, destLong, destLat);
+        CachedRouteDTO cached = new CachedRouteDTO(originLat, originLong, clock.millis() + ttlMillis, route);
+
+        routes.put(key, cached);
+
+        if (redisEnabled) {
+            writeToRedis(key, cached);
+        }
+    }
+
+    public RouteCacheStatsDTO stats() {
+        return new RouteCacheStatsDTO(localHits.get(), redisHits.get(), misses.get(), routes.size());
+    }
+
+    // MÉTODOS AUXILIARES
+    private String cacheKey(Double originLong, Double originLat, Double destLong, Double destLat) {
+        return GeoHash.encode(originLat, originLong, geohashPrecision) + ":" + GeoHash.encode(destLat, destLong, geohashPrecision);
+    }
+
+    // a geometria começa na origem de quem gerou a rota: longe demais e o ônibus já nasce "fora da rota"
+    private boolean isUsable(CachedRouteDTO cached, double originLat, double originLng, long now) {
+        if (cached == null || cached.expiresAt() <= now) return false;
+
+        return DecodedRoute.haversine(originLat, originLng, cached.originLat(), cached.originLng()) <= maxOriginOffsetMeters;
+    }
+
+    private CachedRouteDTO readFromRedis(String key) {
+        try {
+            String json = redisTemplate.opsForValue().get(KEY_PREFIX + key);
+            return json != null ? objectMapper.readValue(json, CachedRouteDTO.class) : null;
+        } catch (Exception e) {
+            // o cache nunca pode derrubar o cálculo de rota
+            logger.warn("[RouteCache] Falha ao ler rota do redis {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToRedis(String key, CachedRouteDTO cached) {
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + key, objectMapper.writeValueAsString(cached), Duration.ofMillis(ttlMillis));
+        } catch (JsonProcessingException | RuntimeException e) {
+            logger.warn("[RouteCache] Falha ao gravar rota no redis {}: {}", key, e.getMessage());
+        }
+    }
+}
@@ -1,79 +1,117 @@
 package com.travel_system.backend_app.service;
 
-import com.mapbox.geojson.Point;
-import com.travel_system.backend_app.exceptions.NoSuchCoordinates;
 import com.travel_system.backend_app.model.dtos.mapboxApi.RouteDeviationDTO;
+import com.travel_system.backend_app.utils.DecodedRoute;
+import com.travel_system.backend_app.utils.RouteSegmentIndex;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class RouteCalculationService {
 
-    private PolylineService polylineService;
+    private final RouteGeometryCacheService routeGeometryCacheService;
+
+    // último segmento casado por viagem (vale só para a geometria em que foi calculado)
+    private final Map<UUID, MatchState> matchStates = new ConcurrentHashMap<>();
 
     private final double TOLERANCE_DISTANCE = 50.0;
     private final double EARTH_RADIUS_METERS = 6371000;
 
-    public RouteCalculationService(PolylineService polylineService) {
-        this.polylineService = polylineService;
+    // janela de busca em volta do último segmento: o ônibus só avança poucos segmentos entre pings
+    private final int WINDOW_SEGMENTS_BACKWARD = 2;
+    private final int WINDOW_SEGMENTS_FORWARD = 10;
+
+    private record MatchState(DecodedRoute route, int segmentIndex) {
     }
 
-    // verifica se a rota foi desviada da rota padrão - tolerância de 50 metros
-    public RouteDeviationDTO isRouteDeviation(Double currentLat, Double currentLong, String polylineRoute) {
+    public RouteCalculationService(RouteGeometryCacheService routeGeometryCacheService) {
+        this.routeGeometryCacheService = routeGeometryCacheService;
+    }
 
+    /*
+     * verifica se a rota da viagem foi desviada - a geometria decodificada vem do cache
+     * o casamento é incremental: tenta primeiro a janela à frente do último segmento
+     * e só faz a busca global (índice espacial) quando a janela falha
+     */
+    public RouteDeviationDTO isRouteDeviation(UUID travelId, Double currentLat, Double currentLong, String polylineRoute) {
         if (currentLat == null || currentLong == null || polylineRoute == null) {
-            return new RouteDeviationDTO(0.0, true, 0.0, 0.0);
+            return new RouteDeviationDTO(0.0, true, 0.0, 0.0, -1, 0.0, 0.0);
         }
 
-        double minDistance = Double.MAX_VALUE;
-        double projLng = 0;
-        double projLat = 0;
+        DecodedRoute route = routeGeometryCacheService.getOrDecode(travelId, polylineRoute);
+        // rota degenerada: sem segmento para projetar (-1), não é "destino alcançado"
+        if (route.pointCount() < 2) {
+            return new RouteDeviationDTO(0, false, currentLat, currentLong, -1, 0.0, 0.0);
+        }
 
-        List<Point> decodePolyline = polylineService.formattedPolylineDecoded(polylineRoute);
-        Point driverCurrentLoc = Point.fromLngLat(currentLong, currentLat);
+        RouteSegmentIndex.SegmentMatch match = null;
 
-        if (decodePolyline.size() < 2) {
-            return new RouteDeviationDTO(0, false, currentLat, currentLong);
-        }
+        MatchState lastMatch = matchStates.get(travelId);
+        if (lastMatch != null && lastMatch.route() == route) {
+            match = route.segmentIndex().nearestSegmentInRange(
+                    currentLat,
+                    currentLong,
+                    lastMatch.segmentIndex() - WINDOW_SEGMENTS_BACKWARD,
+                    lastMatch.segmentIndex() + WINDOW_SEGMENTS_FORWARD);
 
-        for (int i = 0; i < decodePolyline.size() - 1; i++) {
-            Point P_A = decodePolyline.get(i);
-            Point P_B = decodePolyline.get(i + 1);
+            if (match != null && match.distanceMeters() > TOLERANCE_DISTANCE) match = null;
+        }
 
-            double[] routeDirection = {P_B.longitude() - P_A.longitude(), P_B.latitude() - P_A.latitude()};
-            double[] routePoint = {driverCurrentLoc.longitude() - P_A.longitude(), driverCurrentLoc.latitude() - P_A.latitude()};
+        if (match == null) {
+            match = route.segmentIndex().nearestSegment(currentLat, currentLong);
+        }
 
-            double dotWV = routePoint[0] * routeDirection[0] + routePoint[1] * routeDirection[1];
-            double dotVV = routeDirection[0] * routeDirection[0] + routeDirection[1] * routeDirection[1];
+        matchStates.put(travelId, new MatchState(route, match.segmentIndex()));
 
-            double t = dotWV / dotVV;
-            if (t < 0) t = 0;
-            if (t > 1) t = 1;
+        return toRouteDeviation(route, match, currentLat, currentLong);
+    }
 
-            double projLngCandidate = P_A.longitude() + t * routeDirection[0];
-            double projLatCandidate = P_A.latitude() + t * routeDirection[1];
+    // verifica se a rota foi desviada da rota padrão - tolerância de 50 metros
+    public RouteDeviationDTO isRouteDeviation(Double currentLat, Double currentLong, String polylineRoute) {
 
-            double distance = calculateHaversineDistanceInMeters(
-                    driverCurrentLoc.latitude(),
-                    driverCurrentLoc.longitude(),
-                    projLatCandidate,
-                    projLngCandidate);
+        if (currentLat == null || currentLong == null || polylineRoute == null) {
+            return new RouteDeviationDTO(0.0, true, 0.0, 0.0, -1, 0.0, 0.0);
+        }
 
-            if (distance < minDistance) {
-                minDistance = distance;
-                projLng = projLngCandidate;
-                projLat = projLatCandidate;
-            }
+        DecodedRoute route = routeGeometryCacheService.decode(polylineRoute);
+        // rota degenerada: sem segmento para projetar (-1), não é "destino alcançado"
+        if (route.pointCount() < 2) {
+            return new RouteDeviationDTO(0, false, currentLat, currentLong, -1, 0.0, 0.0);
         }
 
-        boolean isOffRoute = minDistance > TOLERANCE_DISTANCE; // tolerância de distancia
+        return toRouteDeviation(route, route.segmentIndex().nearestSegment(currentLat, currentLong), currentLat, currentLong);
+    }
+
+    // libera o estado de casamento e a geometria em memória da viagem encerrada
+    public void releaseTravel(UUID travelId) {
+        if (travelId == null) return;
+
+        matchStates.remove(travelId);
+        routeGeometryCacheService.evict(travelId);
+    }
+
+    private RouteDeviationDTO toRouteDeviation(DecodedRoute route, RouteSegmentIndex.SegmentMatch match, double currentLat, double currentLong) {
+        int segment = match.segmentIndex();
+        double projLat = route.latitude(segment) + match.fraction() * route.segmentDeltaLat(segment);
+        double projLng = route.longitude(segment) + match.fraction() * route.segmentDeltaLng(segment);
+
+        double distanceToRoute = calculateHaversineDistanceInMeters(currentLong, currentLat, projLng, projLat);
+
+        boolean isOffRoute = distanceToRoute > TOLERANCE_DISTANCE; // tolerância de distancia
+
+        double distanceAlongRoute = route.distanceAlongRoute(segment, match.fraction());
 
         return new RouteDeviationDTO(
-                minDistance,
+                distanceToRoute,
                 isOffRoute,
                 projLat,
-                projLng
+                projLng,
+                segment,
+                distanceAlongRoute,
+                Math.max(0.0, route.totalLength() - distanceAlongRoute)
         );
     }
 
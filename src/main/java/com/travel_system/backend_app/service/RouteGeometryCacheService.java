@@ -0,0 +1,69 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.utils.DecodedRoute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+public class RouteGeometryCacheService {
+
+    private final PolylineService polylineService;
+
+    // LRU limitado: uma rota ativa por viagem, a menos usada sai primeiro
+    private final Map<UUID, DecodedRoute> routes;
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteGeometryCacheService.class);
+
+    public RouteGeometryCacheService(PolylineService polylineService, @Value("${route.geometry-cache.max-entries:500}") int maxEntries) {
+        this.polylineService = polylineService;
+        this.routes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, DecodedRoute> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    // retorna a rota decodificada da viagem, decodificando só quando o polyline mudou
+    public DecodedRoute getOrDecode(UUID travelId, String polylineRoute) {
+        DecodedRoute cached = routes.get(travelId);
+
+        if (cached != null && cached.matches(polylineRoute)) return cached;
+
+        DecodedRoute decoded = decode(polylineRoute);
+        routes.put(travelId, decoded);
+
+        return decoded;
+    }
+
+    // rota atualmente em uso pela viagem (pode ser a recalculada), null se não houver
+    public DecodedRoute getActiveRoute(UUID travelId) {
+        return routes.get(travelId);
+    }
+
+    // recálculo mudou a geometria: descarta a rota antiga e já deixa a nova decodificada
+    public DecodedRoute replace(UUID travelId, String polylineRoute) {
+        evict(travelId);
+        return getOrDecode(travelId, polylineRoute);
+    }
+
+    public void evict(UUID travelId) {
+        if (travelId == null) return;
+
+        if (routes.remove(travelId) != null) {
+            logger.info("[RouteGeometryCache] Rota decodificada removida da memória: {}", travelId);
+        }
+    }
+
+    // decodificação sem cache (polylines avulsos que não pertencem a uma viagem)
+    public DecodedRoute decode(String polylineRoute) {
+        return DecodedRoute.fromPoints(polylineRoute, polylineService.formattedPolylineDecoded(polylineRoute));
+    }
+}
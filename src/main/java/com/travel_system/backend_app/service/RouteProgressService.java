@@ -0,0 +1,65 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.model.dtos.PingKinematicsDTO;
+import com.travel_system.backend_app.model.dtos.mapboxApi.RouteDeviationDTO;
+import com.travel_system.backend_app.model.dtos.mapboxApi.RouteProgressDTO;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * motor de progresso da viagem: distância restante vem do ponto projetado na rota (O(1))
+ * e o ETA da velocidade média da janela de pings - única fonte de ETA gravada no redis
+ */
+@Service
+public class RouteProgressService {
+
+    private final PingWindowService pingWindowService;
+
+    private final Map<UUID, Double> distancesRemaining = new ConcurrentHashMap<>();
+
+    // abaixo disso (parado no semáforo, embarque) a velocidade recente não serve para o ETA
+    private final double MIN_RELIABLE_SPEED = 1.0;
+    // acima disso a média é salto de GPS, não deslocamento real (~144 km/h)
+    private final double MAX_PLAUSIBLE_SPEED = 40.0;
+    // ~30 km/h quando a viagem não tem duração/distância planejadas
+    private final double DEFAULT_PLANNED_SPEED = 8.33;
+
+    public RouteProgressService(PingWindowService pingWindowService) {
+        this.pingWindowService = pingWindowService;
+    }
+
+    public RouteProgressDTO estimate(UUID travelId, RouteDeviationDTO deviation, Double plannedDistance, Double plannedDuration) {
+        double distanceRemaining = deviation.distanceRemainingMeters();
+        distancesRemaining.put(travelId, distanceRemaining);
+
+        // mesma cinemática que classifica o movimento: uma velocidade só para ETA e alertas
+        PingKinematicsDTO kinematics = pingWindowService.kinematics(travelId);
+        double speed = kinematics != null && kinematics.samples() >= 2 ? kinematics.averageSpeed() : 0.0;
+
+        double effectiveSpeed = speed >= MIN_RELIABLE_SPEED && speed <= MAX_PLAUSIBLE_SPEED
+                ? speed
+                : plannedSpeed(plannedDistance, plannedDuration);
+
+        return new RouteProgressDTO(distanceRemaining, distanceRemaining / effectiveSpeed, speed);
+    }
+
+    // distância restante da última estimativa; null antes do primeiro ping processado
+    public Double lastDistanceRemaining(UUID travelId) {
+        return distancesRemaining.get(travelId);
+    }
+
+    public void release(UUID travelId) {
+        if (travelId == null) return;
+        distancesRemaining.remove(travelId);
+    }
+
+    private double plannedSpeed(Double plannedDistance, Double plannedDuration) {
+        if (plannedDistance == null || plannedDistance <= 0 || plannedDuration == null || plannedDuration <= 0) {
+            return DEFAULT_PLANNED_SPEED;
+        }
+        return plannedDistance / plannedDuration;
+    }
+}
@@ -0,0 +1,217 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.model.dtos.ActiveTravelSnapshotDTO;
+import com.travel_system.backend_app.model.dtos.TrackingPingUpdateDTO;
+import com.travel_system.backend_app.model.dtos.mapboxApi.RouteDetailsDTO;
+import com.travel_system.backend_app.model.dtos.mapboxApi.RouteDeviationDTO;
+import com.travel_system.backend_app.model.dtos.response.RerouteStatsDTO;
+import com.travel_system.backend_app.model.enums.RerouteDecision;
+import com.travel_system.backend_app.utils.DecodedRoute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * recálculo de rota por viagem:
+ * - histerese: só recalcula com N pings consecutivos fora da rota ou uma distância mínima percorrida fora dela
+ * - orçamento (token bucket) de chamadas ao mapbox por viagem
+ * - single-flight: no máximo uma chamada em voo por viagem, quem chegar depois recebe o mesmo resultado
+ */
+@Service
+public class RouteRecalculationService {
+
+    private final MapboxAPIService mapboxAPIService;
+    private final RedisTrackingService redisTrackingService;
+    private final RouteGeometryCacheService routeGeometryCacheService;
+    private final Clock clock;
+
+    private final int minConsecutiveOffRoutePings;
+    private final double minOffRouteDistanceMeters;
+    private final double budgetCapacity;
+    private final double tokensPerMillis;
+
+    private final Map<UUID, CompletableFuture<RouteDetailsDTO>> inFlightRecalculations = new ConcurrentHashMap<>();
+    private final Map<UUID, DeviationState> deviationStates = new ConcurrentHashMap<>();
+    private final Map<RerouteDecision, LongAdder> decisionCounters = new EnumMap<>(RerouteDecision.class);
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteRecalculationService.class);
+
+    // estado imutável por viagem, trocado atomicamente via compute()
+    private record DeviationState(
+            int consecutiveOffRoute,
+            double offRouteDistance,
+            double lastLat,
+            double lastLng,
+            double tokens,
+            long lastRefillMillis,
+            RerouteDecision decision) {
+    }
+
+    public RouteRecalculationService(MapboxAPIService mapboxAPIService,
+                                     RedisTrackingService redisTrackingService,
+                                     RouteGeometryCacheService routeGeometryCacheService,
+                                     Clock clock,
+                                     @Value("${route.reroute.min-consecutive-pings:3}") int minConsecutiveOffRoutePings,
+                                     @Value("${route.reroute.min-off-route-distance-meters:150}") double minOffRouteDistanceMeters,
+                                     @Value("${route.reroute.budget-capacity:3}") int budgetCapacity,
+                                     @Value("${route.reroute.budget-refill-seconds:60}") long budgetRefillSeconds) {
+        this.mapboxAPIService = mapboxAPIService;
+        this.redisTrackingService = redisTrackingService;
+        this.routeGeometryCacheService = routeGeometryCacheService;
+        this.clock = clock;
+        this.minConsecutiveOffRoutePings = minConsecutiveOffRoutePings;
+        this.minOffRouteDistanceMeters = minOffRouteDistanceMeters;
+        this.budgetCapacity = budgetCapacity;
+        this.tokensPerMillis = 1.0 / (budgetRefillSeconds * 1000.0);
+
+        for (RerouteDecision decision : RerouteDecision.values()) {
+            decisionCounters.put(decision, new LongAdder());
+        }
+    }
+
+    // decide, a cada ping, se o desvio justifica recalcular a rota - e dispara o recálculo se sim
+    public RerouteDecision evaluateDeviation(ActiveTravelSnapshotDTO travel, RouteDeviationDTO deviation, double currentLat, double currentLng) {
+        UUID travelId = travel.travelId();
+        long now = clock.millis();
+
+        DeviationState state = deviationStates.compute(travelId, (id, previous) ->
+                nextState(id, previous, deviation.isOffRoute(), currentLat, currentLng, now));
+
+        RerouteDecision decision = state.decision();
+        decisionCounters.get(decision).increment();
+
+        if (decision == RerouteDecision.EXECUTED) {
+            recalculate(travel, currentLat, currentLng);
+        }
+
+        return decision;
+    }
+
+    // recalcula a rota da posição atual até o destino e grava geometry/ETA no redis quando chegar
+    public CompletableFuture<RouteDetailsDTO> recalculate(ActiveTravelSnapshotDTO travel, Double currentLat, Double currentLng) {
+        UUID travelId = travel.travelId();
+
+        CompletableFuture<RouteDetailsDTO> created = new CompletableFuture<>();
+        CompletableFuture<RouteDetailsDTO> inFlight = inFlightRecalculations.putIfAbsent(travelId, created);
+
+        if (inFlight != null) return inFlight;
+
+        CompletableFuture<RouteDetailsDTO> mapboxCall;
+        try {
+            mapboxCall = mapboxAPIService.recalculateETAAsync(
+                    currentLng,
+                    currentLat,
+                    travel.finalLongitude(),
+                    travel.finalLatitude());
+        } catch (RuntimeException e) {
+            // falha antes de existir o future (ex.: montagem da requisição): sem isso a vaga ficaria presa para sempre
+            inFlightRecalculations.remove(travelId, created);
+            logger.warn("Falha ao recalcular a rota da viagem {}: {}", travelId, e.getMessage());
+            created.completeExceptionally(e);
+            return created;
+        }
+
+        mapboxCall
+                .thenApply(routeDetails -> applyRecalculatedRoute(travelId, routeDetails))
+                .whenComplete((routeDetails, e) -> {
+                    // libera a vaga antes de completar: quem chegar depois já dispara um recálculo novo
+                    inFlightRecalculations.remove(travelId, created);
+
+                    if (e != null) {
+                        logger.warn("Falha ao recalcular a rota da viagem {}: {}", travelId, e.getMessage());
+                        created.completeExceptionally(e);
+                    } else {
+                        created.complete(routeDetails);
+                    }
+                });
+
+        return created;
+    }
+
+    // recálculo em andamento da viagem, null se não houver
+    public CompletableFuture<RouteDetailsDTO> inFlightRecalculation(UUID travelId) {
+        return inFlightRecalculations.get(travelId);
+    }
+
+    public RerouteStatsDTO stats() {
+        return new RerouteStatsDTO(
+                decisionCounters.get(RerouteDecision.EXECUTED).sum(),
+                decisionCounters.get(RerouteDecision.SUPPRESSED_HYSTERESIS).sum(),
+                decisionCounters.get(RerouteDecision.SUPPRESSED_BUDGET).sum(),
+                decisionCounters.get(RerouteDecision.COALESCED).sum());
+    }
+
+    public void release(UUID travelId) {
+        if (travelId == null) return;
+        deviationStates.remove(travelId);
+    }
+
+    // MÉTODOS AUXILIARES
+    private DeviationState nextState(UUID travelId, DeviationState previous, boolean offRoute, double lat, double lng, long now) {
+        double tokens = budgetCapacity;
+        int consecutiveOffRoute = 0;
+        double offRouteDistance = 0.0;
+
+        if (previous != null) {
+            tokens = Math.min(budgetCapacity, previous.tokens() + (now - previous.lastRefillMillis()) * tokensPerMillis);
+            consecutiveOffRoute = previous.consecutiveOffRoute();
+            offRouteDistance = previous.offRouteDistance();
+        }
+
+        // voltou para a rota: o jitter passou, zera a histerese
+        if (!offRoute) {
+            return new DeviationState(0, 0.0, lat, lng, tokens, now, RerouteDecision.ON_ROUTE);
+        }
+
+        if (consecutiveOffRoute > 0) {
+            offRouteDistance += DecodedRoute.haversine(previous.lastLat(), previous.lastLng(), lat, lng);
+        }
+        consecutiveOffRoute++;
+
+        boolean confirmed = consecutiveOffRoute >= minConsecutiveOffRoutePings || offRouteDistance >= minOffRouteDistanceMeters;
+
+        if (!confirmed) {
+            return new DeviationState(consecutiveOffRoute, offRouteDistance, lat, lng, tokens, now, RerouteDecision.SUPPRESSED_HYSTERESIS);
+        }
+
+        if (inFlightRecalculations.containsKey(travelId)) {
+            return new DeviationState(consecutiveOffRoute, offRouteDistance, lat, lng, tokens, now, RerouteDecision.COALESCED);
+        }
+
+        if (tokens < 1.0) {
+            return new DeviationState(consecutiveOffRoute, offRouteDistance, lat, lng, tokens, now, RerouteDecision.SUPPRESSED_BUDGET);
+        }
+
+        // recalcula e reinicia a histerese: a rota nova precisa ser desviada de novo para outro recálculo
+        return new DeviationState(0, 0.0, lat, lng, tokens - 1.0, now, RerouteDecision.EXECUTED);
+    }
+
+    private RouteDetailsDTO applyRecalculatedRoute(UUID travelId, RouteDetailsDTO routeDetails) {
+        // a viagem pode ter sido encerrada enquanto o mapbox respondia
+        if (!redisTrackingService.isActiveTravel(travelId)) return routeDetails;
+
+        // geometria mudou: a rota decodificada antiga deixa de valer
+        routeGeometryCacheService.replace(travelId, routeDetails.geometry());
+
+        redisTrackingService.applyPing(travelId, new TrackingPingUpdateDTO(
+                null,
+                null,
+                routeDetails.distance(),
+                routeDetails.duration(),
+                routeDetails.geometry(),
+                null,
+                null,
+                null));
+
+        return routeDetails;
+    }
+}
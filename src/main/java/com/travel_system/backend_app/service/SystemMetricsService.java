@@ -1,12 +1,21 @@
 package com.travel_system.backend_app.service;
 
+import com.travel_system.backend_app.events.TravelFinishedEvents;
 import com.travel_system.backend_app.model.Travel;
+import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
+import com.travel_system.backend_app.model.dtos.response.RerouteStatsDTO;
+import com.travel_system.backend_app.model.dtos.response.RouteCacheStatsDTO;
 import com.travel_system.backend_app.model.enums.TravelStatus;
 import com.travel_system.backend_app.repository.TravelRepository;
+import com.travel_system.backend_app.utils.FcmSendWindow;
+import com.travel_system.backend_app.utils.LatestWinsMailbox;
+import com.travel_system.backend_app.utils.TravelLaneExecutor;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
@@ -19,20 +28,32 @@ public class SystemMetricsService {
     private final ThreadPoolTaskExecutor threadPoolExecutor;
     private final RedisTrackingService redisTrackingService;
     private final TravelRepository travelRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RouteCacheService routeCacheService;
+    private final RouteRecalculationService routeRecalculationService;
+    private final TravelLaneExecutor travelLaneExecutor;
+    private final LatestWinsMailbox<VehicleLocationRequestDTO> liveTrackingMailbox;
+    private final FcmSendWindow fcmSendWindow;
 
     private static final Logger logger = LoggerFactory.getLogger(SystemMetricsService.class);
 
-    public SystemMetricsService(ThreadPoolTaskExecutor threadPoolExecutor, RedisTrackingService redisTrackingService, TravelRepository travelRepository) {
+    public SystemMetricsService(@Qualifier("notificationTaskExecutor") ThreadPoolTaskExecutor threadPoolExecutor, RedisTrackingService redisTrackingService, TravelRepository travelRepository, ApplicationEventPublisher eventPublisher, RouteCacheService routeCacheService, RouteRecalculationService routeRecalculationService, TravelLaneExecutor travelLaneExecutor, LatestWinsMailbox<VehicleLocationRequestDTO> liveTrackingMailbox, FcmSendWindow fcmSendWindow) {
         this.threadPoolExecutor = threadPoolExecutor;
         this.redisTrackingService = redisTrackingService;
         this.travelRepository = travelRepository;
+        this.eventPublisher = eventPublisher;
+        this.routeCacheService = routeCacheService;
+        this.routeRecalculationService = routeRecalculationService;
+        this.travelLaneExecutor = travelLaneExecutor;
+        this.liveTrackingMailbox = liveTrackingMailbox;
+        this.fcmSendWindow = fcmSendWindow;
     }
 
     @Scheduled(fixedRate = 60000)
     public void getExecutorMetrics() {
         // original values
         int MAXIMUM_QUEUE_CAPACITY = 100;
-        int CORE_POOL_SIZE = 5;
+        int CORE_POOL_SIZE = 2;
 
         int activeCount = threadPoolExecutor.getActiveCount();
         int queueSize = threadPoolExecutor.getQueueSize();
@@ -45,7 +66,7 @@ public class SystemMetricsService {
         if (queueSize >= maxQueueEightyPercent) {
             logger.warn("RED ALERT: A fila ultrapassou 80% das tarefas. Prestes a ativar a CallerRunsPolicy");
         } else if (queueSize >= maxQueueFiftyPercent) {
-            logger.warn("YELLOW ALERT: A fila ultrapassou 50% das tarefas. Firebase lento ou volume de ônibus cresceu muito");
+            logger.warn("YELLOW ALERT: A fila ultrapassou 50% das tarefas. Volume de ônibus cresceu muito");
         } else {
             logger.info("Status: OK.");
         }
@@ -56,6 +77,41 @@ public class SystemMetricsService {
         } else {
             logger.info("Status: OK.");
         }
+
+        // faixas de processamento de pings por viagem
+        logger.info("[TravelLane] faixas: {}, maior fila: {}, pings descartados por faixa cheia: {}",
+                travelLaneExecutor.laneCount(),
+                travelLaneExecutor.maxQueueSize(),
+                travelLaneExecutor.droppedTasks());
+
+        // envios assíncronos ao FCM: em voo agora e descartados por janela cheia (FCM lento)
+        logger.info("[FcmSendWindow] envios em voo: {}, descartados por janela cheia: {}",
+                fcmSendWindow.inFlight(),
+                fcmSendWindow.droppedSends());
+
+        // pings substituídos por um mais novo antes de chegar ao rastreamento (pipeline atrasado)
+        liveTrackingMailbox.coalescedCounts().forEach((travelId, coalesced) ->
+                logger.info("[LiveTracking] viagem {}: {} pings coalescidos", travelId, coalesced));
+    }
+
+    // acertos/erros do cache de rotas e recálculos executados/suprimidos, para calibrar precisão e histerese
+    @Scheduled(fixedRate = 300000)
+    public void getRouteMetrics() {
+        RouteCacheStatsDTO stats = routeCacheService.stats();
+        RerouteStatsDTO rerouteStats = routeRecalculationService.stats();
+
+        logger.info("[RouteCache] hits locais: {}, hits redis: {}, misses: {}, entradas: {}, taxa de acerto: {}%",
+                stats.localHits(),
+                stats.redisHits(),
+                stats.misses(),
+                stats.localEntries(),
+                Math.round(stats.hitRatio() * 100));
+
+        logger.info("[Reroute] executados: {}, suprimidos por histerese: {}, suprimidos por orçamento: {}, agrupados: {}",
+                rerouteStats.executed(),
+                rerouteStats.suppressedByHysteresis(),
+                rerouteStats.suppressedByBudget(),
+                rerouteStats.coalesced());
     }
 
     // Auto-healing (Detecção de Offline)
@@ -86,6 +142,7 @@ public class SystemMetricsService {
 
         redisTrackingService.removeUnactiveTravel(travelId);
         redisTrackingService.clearTravelLocationCache(travelId);
+        eventPublisher.publishEvent(new TravelFinishedEvents(travelId));
 
         logger.info("[AUTO-HEALING] Viagem {} encerrada por inatividade.", travelId);
     }
@@ -1,12 +1,14 @@
 package com.travel_system.backend_app.service;
 
 import com.travel_system.backend_app.model.TravelLocationHistory;
+import com.travel_system.backend_app.model.dtos.request.GpsBatchPingDTO;
 import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
 import com.travel_system.backend_app.repository.TravelLocationHistoryRepository;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -31,4 +33,24 @@ public class TravelHistoryPingsService {
 
         travelLocationHistoryRepository.save(travelLocationHistory);
     }
+
+    // lote reenviado pelo celular: todos os pings vão para o histórico com o horário do aparelho
+    @Async
+    public void saveTravelLocationHistoryBatch(String city, String travelId, List<GpsBatchPingDTO> pings) {
+        if (city == null || travelId == null || pings.isEmpty()) return;
+
+        UUID travelConvertedId = UUID.fromString(travelId);
+        UUID cityConvertedId = UUID.fromString(city);
+
+        List<TravelLocationHistory> history = pings.stream()
+                .map(ping -> new TravelLocationHistory(
+                        travelConvertedId,
+                        cityConvertedId,
+                        ping.latitude(),
+                        ping.longitude(),
+                        Instant.ofEpochMilli(ping.timestamp())))
+                .toList();
+
+        travelLocationHistoryRepository.saveAll(history);
+    }
 }
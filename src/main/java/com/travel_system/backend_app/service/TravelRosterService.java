@@ -0,0 +1,151 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.repository.StudentTravelRepository;
+import com.travel_system.backend_app.utils.ProximityKernel;
+import com.travel_system.backend_app.utils.TravelRoster;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * roster em memória por viagem (alunos + pontos de embarque): a proximidade é avaliada a cada ping sem JPA.
+ * Carregado com uma única consulta na primeira leitura e descartado quando o vínculo muda
+ * (joinTravel, leaveTravel) ou a viagem termina, avisando as outras instâncias. Troca de ponto de embarque
+ * só corrige o aluno no roster local (e na grade); as outras instâncias descartam e recarregam
+ */
+@Service
+public class TravelRosterService {
+
+    public static final String INVALIDATION_CHANNEL = "travel-roster:invalidate";
+
+    private final StudentTravelRepository studentTravelRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final double gridCellMeters;
+    private final double fullSweepMeters;
+    private final long fullSweepMillis;
+
+    // identifica as mensagens desta instância no canal (não descarta o roster que acabou de corrigir)
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Map<UUID, TravelRoster> rosters = new ConcurrentHashMap<>();
+    private final Map<UUID, SweepMark> sweepMarks = new ConcurrentHashMap<>();
+    // uma invalidação durante a carga descarta o resultado (a consulta pode ter lido o estado antigo)
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private static final Logger logger = LoggerFactory.getLogger(TravelRosterService.class);
+
+    // onde estava o ônibus na última avaliação de todos os alunos da viagem
+    private record SweepMark(double latitude, double longitude, long timestampMillis) {
+    }
+
+    public TravelRosterService(StudentTravelRepository studentTravelRepository, RedisTemplate<String, String> redisTemplate,
+                               @Value("${tracking.proximity.grid-cell-meters:500}") double gridCellMeters,
+                               @Value("${tracking.proximity.full-sweep-meters:100}") double fullSweepMeters,
+                               @Value("${tracking.proximity.full-sweep-seconds:60}") long fullSweepSeconds) {
+        this.studentTravelRepository = studentTravelRepository;
+        this.redisTemplate = redisTemplate;
+        this.gridCellMeters = gridCellMeters;
+        this.fullSweepMeters = fullSweepMeters;
+        this.fullSweepMillis = fullSweepSeconds * 1000L;
+    }
+
+    public TravelRoster roster(UUID travelId) {
+        TravelRoster cached = rosters.get(travelId);
+        if (cached != null) return cached;
+
+        long invalidationsBeforeLoad = invalidations.get();
+        TravelRoster loaded = TravelRoster.of(studentTravelRepository.findRosterByTravelId(travelId), gridCellMeters);
+
+        if (invalidations.get() == invalidationsBeforeLoad) {
+            TravelRoster concurrent = rosters.putIfAbsent(travelId, loaded);
+            if (concurrent != null) return concurrent;
+        }
+
+        logger.info("[TravelRoster] Roster carregado: viagem {} com {} alunos", travelId, loaded.size());
+        return loaded;
+    }
+
+    /*
+     * true quando o ping deve avaliar todos os alunos (e não só os candidatos da grade): primeira avaliação,
+     * ônibus andou fullSweepMeters ou passaram fullSweepSeconds desde a última. Garante os avisos de passo
+     * FAR e de repetição de quem está longe com no máximo esse atraso
+     */
+    public boolean claimFullSweep(UUID travelId, double latitude, double longitude, long nowMillis) {
+        boolean[] claimed = new boolean[1];
+
+        sweepMarks.compute(travelId, (id, mark) -> {
+            if (mark != null && nowMillis - mark.timestampMillis() < fullSweepMillis
+                    && approximateMeters(mark.latitude(), mark.longitude(), latitude, longitude) < fullSweepMeters) {
+                return mark;
+            }
+            claimed[0] = true;
+            return new SweepMark(latitude, longitude, nowMillis);
+        });
+
+        return claimed[0];
+    }
+
+    /*
+      raio da consulta à grade fora da varredura completa: FAR mais duas vezes o deslocamento tolerado, já que
+      entre o último ping em que o aluno estava perto e o atual o ônibus andou até 2x fullSweepMeters
+    */
+    public double candidateRadiusMeters() {
+        return ProximityKernel.FAR_DISTANCE_METERS + 2 * fullSweepMeters;
+    }
+
+    // ponto de embarque trocado: corrige o aluno no roster local e avisa as outras instâncias
+    public void updatePosition(UUID travelId, UUID studentId, double latitude, double longitude) {
+        if (travelId == null) return;
+
+        invalidations.incrementAndGet();
+        TravelRoster updated = rosters.computeIfPresent(travelId, (id, roster) -> roster.withPosition(studentId, latitude, longitude));
+        // aluno ausente do roster carregado: withPosition devolve null e o roster é descartado
+        if (updated == null) sweepMarks.remove(travelId);
+
+        broadcast(travelId);
+    }
+
+    // remove localmente e avisa as outras instâncias
+    public void evict(UUID travelId) {
+        if (travelId == null) return;
+
+        evictLocal(travelId);
+        broadcast(travelId);
+    }
+
+    // chamado pelo listener do pub/sub
+    public void evictLocal(UUID travelId) {
+        invalidations.incrementAndGet();
+        rosters.remove(travelId);
+        sweepMarks.remove(travelId);
+    }
+
+    // mensagem "<instância>:<viagem>"; as da própria instância são ignoradas
+    public void handleInvalidationMessage(String message) {
+        int separator = message.indexOf(':');
+        if (separator >= 0 && message.substring(0, separator).equals(instanceId)) return;
+
+        evictLocal(UUID.fromString(message.substring(separator + 1)));
+    }
+
+    private void broadcast(UUID travelId) {
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, instanceId + ":" + travelId);
+        } catch (RuntimeException e) {
+            logger.warn("[TravelRoster] Falha ao propagar a invalidação do roster da viagem {}: {}", travelId, e.getMessage());
+        }
+    }
+
+    // equirretangular: suficiente para o limiar de algumas centenas de metros
+    private static double approximateMeters(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        double x = Math.toRadians(toLongitude - fromLongitude) * Math.cos(Math.toRadians((fromLatitude + toLatitude) / 2));
+        double y = Math.toRadians(toLatitude - fromLatitude);
+        return Math.sqrt(x * x + y * y) * 6371000.0;
+    }
+}
@@ -1,6 +1,10 @@
 package com.travel_system.backend_app.service;
 
 import com.mapbox.geojson.Point;
+import com.travel_system.backend_app.events.TravelFinishedEvents;
+import com.travel_system.backend_app.events.TravelMembershipChangedEvents;
+import com.travel_system.backend_app.events.TravelRosterChangedEvents;
+import com.travel_system.backend_app.events.TravelStartedEvents;
 import com.travel_system.backend_app.exceptions.*;
 import com.travel_system.backend_app.model.*;
 import com.travel_system.backend_app.model.dtos.request.TravelRequestDTO;
@@ -16,6 +20,7 @@ import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
@@ -35,8 +40,10 @@ public class TravelService {
     private final TravelReportsRepository travelReportsRepository;
     private final TravelLocationHistoryRepository travelLocationHistoryRepository;
     private final PolylineService polylineService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ActiveTravelRegistryService activeTravelRegistryService;
 
-    public TravelService(TravelRepository travelRepository, StudentTravelRepository studentTravelRepository, StudentRepository studentRepository, DriverRepository driverRepository, MapboxAPIService mapboxAPIService, RedisTrackingService redisTrackingService, TravelReportsRepository travelReportsRepository, TravelLocationHistoryRepository travelLocationHistoryRepository, PolylineService polylineService) {
+    public TravelService(TravelRepository travelRepository, StudentTravelRepository studentTravelRepository, StudentRepository studentRepository, DriverRepository driverRepository, MapboxAPIService mapboxAPIService, RedisTrackingService redisTrackingService, TravelReportsRepository travelReportsRepository, TravelLocationHistoryRepository travelLocationHistoryRepository, PolylineService polylineService, ApplicationEventPublisher eventPublisher, ActiveTravelRegistryService activeTravelRegistryService) {
         this.travelRepository = travelRepository;
         this.studentTravelRepository = studentTravelRepository;
         this.studentRepository = studentRepository;
@@ -46,6 +53,8 @@ public class TravelService {
         this.travelReportsRepository = travelReportsRepository;
         this.travelLocationHistoryRepository = travelLocationHistoryRepository;
         this.polylineService = polylineService;
+        this.eventPublisher = eventPublisher;
+        this.activeTravelRegistryService = activeTravelRegistryService;
     }
 
     @Transactional
@@ -101,6 +110,10 @@ public class TravelService {
 
         // adiciona viagem ativa ao redis para métricas de self-health do sistema
         redisTrackingService.addActiveTravel(travelId);
+
+        // fotografia da viagem para o caminho dos pings não consultar o banco; o registro
+        // e o aquecimento dos tokens acontecem só depois do commit (TravelStartedListener)
+        eventPublisher.publishEvent(new TravelStartedEvents(travelId, activeTravelRegistryService.snapshotOf(actualTrip)));
     }
 
     @Transactional
@@ -167,6 +180,7 @@ public class TravelService {
         travelRepository.save(actualTrip);
 
         redisTrackingService.clearTravelLocationCache(travelId);
+        eventPublisher.publishEvent(new TravelFinishedEvents(travelId));
     }
 
     @Transactional
@@ -186,6 +200,8 @@ public class TravelService {
         }
 
         persistStudentLink(trip, studentId);
+        eventPublisher.publishEvent(new TravelRosterChangedEvents(travelId));
+        eventPublisher.publishEvent(new TravelMembershipChangedEvents(travelId, studentId, true));
     }
 
     @Transactional
@@ -204,6 +220,8 @@ public class TravelService {
         if (!studentTravel) throw new TravelStudentAssociationNotFoundException("Estudante não está ATIVO na viagem.");
 
         deactivateStudentLink(trip, studentId);
+        eventPublisher.publishEvent(new TravelRosterChangedEvents(travelId));
+        eventPublisher.publishEvent(new TravelMembershipChangedEvents(travelId, studentId, false));
     }
 
     public Set<StudentTravelResponseDTO> linkedStudentTravel(UUID travelId) {
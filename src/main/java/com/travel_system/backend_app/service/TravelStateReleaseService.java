@@ -0,0 +1,75 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.interfaces.GpsFixFilter;
+import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
+import com.travel_system.backend_app.utils.LatestWinsMailbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/*
+ * libera o estado em memória de uma viagem encerrada em todas as instâncias: qualquer nó pode ter
+ * recebido pings da viagem (registro, filtro, janela, progresso, recálculo, roster, tokens, caixa de pings).
+ * O nó que encerrou libera na hora e avisa os outros pelo canal de invalidação do registro
+ */
+@Service
+public class TravelStateReleaseService {
+
+    private final ActiveTravelRegistryService activeTravelRegistryService;
+    private final RouteCalculationService routeCalculationService;
+    private final RouteProgressService routeProgressService;
+    private final RouteRecalculationService routeRecalculationService;
+    private final LatestWinsMailbox<VehicleLocationRequestDTO> liveTrackingMailbox;
+    private final GpsFixFilter gpsFixFilter;
+    private final PingWindowService pingWindowService;
+    private final TravelRosterService travelRosterService;
+    private final DeviceTokenCacheService deviceTokenCacheService;
+    private final RedisTemplate<String, String> redisTemplate;
+
+    private static final Logger logger = LoggerFactory.getLogger(TravelStateReleaseService.class);
+
+    public TravelStateReleaseService(ActiveTravelRegistryService activeTravelRegistryService, RouteCalculationService routeCalculationService, RouteProgressService routeProgressService, RouteRecalculationService routeRecalculationService, LatestWinsMailbox<VehicleLocationRequestDTO> liveTrackingMailbox, GpsFixFilter gpsFixFilter, PingWindowService pingWindowService, TravelRosterService travelRosterService, DeviceTokenCacheService deviceTokenCacheService, RedisTemplate<String, String> redisTemplate) {
+        this.activeTravelRegistryService = activeTravelRegistryService;
+        this.routeCalculationService = routeCalculationService;
+        this.routeProgressService = routeProgressService;
+        this.routeRecalculationService = routeRecalculationService;
+        this.liveTrackingMailbox = liveTrackingMailbox;
+        this.gpsFixFilter = gpsFixFilter;
+        this.pingWindowService = pingWindowService;
+        this.travelRosterService = travelRosterService;
+        this.deviceTokenCacheService = deviceTokenCacheService;
+        this.redisTemplate = redisTemplate;
+    }
+
+    // libera localmente e avisa as outras instâncias
+    public void release(UUID travelId) {
+        if (travelId == null) return;
+
+        releaseLocal(travelId);
+
+        try {
+            redisTemplate.convertAndSend(ActiveTravelRegistryService.INVALIDATION_CHANNEL, travelId.toString());
+        } catch (RuntimeException e) {
+            // sem o aviso, o registro das outras instâncias ainda cai na reconferência com o set de ativas
+            logger.warn("[TravelStateRelease] Falha ao propagar o fim da viagem {}: {}", travelId, e.getMessage());
+        }
+    }
+
+    // chamado pelo listener do pub/sub (inclusive no nó que publicou: liberar de novo não tem efeito)
+    public void releaseLocal(UUID travelId) {
+        if (travelId == null) return;
+
+        activeTravelRegistryService.evictLocal(travelId);
+        routeCalculationService.releaseTravel(travelId);
+        routeProgressService.release(travelId);
+        routeRecalculationService.release(travelId);
+        liveTrackingMailbox.release(travelId);
+        gpsFixFilter.release(travelId);
+        pingWindowService.release(travelId);
+        travelRosterService.evictLocal(travelId);
+        deviceTokenCacheService.release(travelId);
+    }
+}
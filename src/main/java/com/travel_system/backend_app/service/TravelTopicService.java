@@ -0,0 +1,109 @@
+package com.travel_system.backend_app.service;
+
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.TopicManagementResponse;
+import com.travel_system.backend_app.model.dtos.RosterEntryDTO;
+import com.travel_system.backend_app.model.dtos.StudentDeviceTokenDTO;
+import com.travel_system.backend_app.repository.StudentTravelRepository;
+import com.travel_system.backend_app.utils.FcmSendWindow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * modo tópico do FCM (notification.fcm.fan-out=topic): cada viagem tem o tópico travel-{id}.
+ * Os tokens dos alunos entram no joinTravel e saem no leaveTravel/endTravel (lotes assíncronos de até 1000 tokens),
+ * e o aviso de movimento vira um único envio para o tópico, sem buscar tokens
+ */
+@Service
+public class TravelTopicService {
+
+    // limite de tokens por chamada do subscribeToTopic/unsubscribeFromTopic
+    public static final int TOPIC_MANAGEMENT_TOKEN_LIMIT = 1000;
+
+    private final FirebaseMessaging firebaseMessaging;
+    private final DeviceTokenCacheService deviceTokenCacheService;
+    private final StudentTravelRepository studentTravelRepository;
+    private final FcmSendWindow fcmSendWindow;
+    private final boolean topicMode;
+
+    private static final Logger logger = LoggerFactory.getLogger(TravelTopicService.class);
+
+    public TravelTopicService(FirebaseMessaging firebaseMessaging, DeviceTokenCacheService deviceTokenCacheService, StudentTravelRepository studentTravelRepository, FcmSendWindow fcmSendWindow, @Value("${notification.fcm.fan-out:multicast}") String fanOut) {
+        this.firebaseMessaging = firebaseMessaging;
+        this.deviceTokenCacheService = deviceTokenCacheService;
+        this.studentTravelRepository = studentTravelRepository;
+        this.fcmSendWindow = fcmSendWindow;
+        this.topicMode = "topic".equalsIgnoreCase(fanOut);
+    }
+
+    public static String topic(UUID travelId) {
+        return "travel-" + travelId;
+    }
+
+    public boolean isTopicMode() {
+        return topicMode;
+    }
+
+    public void subscribe(UUID travelId, List<UUID> studentIds) {
+        manage(travelId, tokensOf(travelId, studentIds), true);
+    }
+
+    public void unsubscribe(UUID travelId, List<UUID> studentIds) {
+        manage(travelId, tokensOf(travelId, studentIds), false);
+    }
+
+    // fim da viagem: todos os alunos que passaram por ela saem do tópico
+    public void unsubscribeTravel(UUID travelId) {
+        List<UUID> studentIds = studentTravelRepository.findRosterByTravelId(travelId).stream()
+                .map(RosterEntryDTO::studentId)
+                .toList();
+
+        unsubscribe(travelId, studentIds);
+    }
+
+    // token novo entra nos tópicos das viagens abertas do aluno; se trocou de aluno, sai dos do dono anterior
+    public void registerToken(UUID studentId, UUID previousStudentId, String token) {
+        if (previousStudentId != null && !previousStudentId.equals(studentId)) {
+            studentTravelRepository.findOpenTravelIdsByStudentId(previousStudentId)
+                    .forEach(travelId -> manage(travelId, List.of(token), false));
+        }
+
+        studentTravelRepository.findOpenTravelIdsByStudentId(studentId)
+                .forEach(travelId -> manage(travelId, List.of(token), true));
+    }
+
+    private List<String> tokensOf(UUID travelId, List<UUID> studentIds) {
+        return deviceTokenCacheService.activeTokens(travelId, studentIds).stream()
+                .map(StudentDeviceTokenDTO::token)
+                .distinct()
+                .toList();
+    }
+
+    private void manage(UUID travelId, List<String> tokens, boolean subscribe) {
+        String topic = topic(travelId);
+
+        for (int from = 0; from < tokens.size(); from += TOPIC_MANAGEMENT_TOKEN_LIMIT) {
+            List<String> batch = tokens.subList(from, Math.min(from + TOPIC_MANAGEMENT_TOKEN_LIMIT, tokens.size()));
+            int offset = from;
+
+            fcmSendWindow.submit((subscribe ? "inscrição" : "remoção") + " de " + batch.size() + " tokens no tópico " + topic,
+                    () -> subscribe
+                            ? firebaseMessaging.subscribeToTopicAsync(batch, topic)
+                            : firebaseMessaging.unsubscribeFromTopicAsync(batch, topic),
+                    response -> logFailures(response, topic, offset),
+                    failure -> logger.error("[TravelTopic] Erro ao {} {} tokens no tópico {}: {}", subscribe ? "inscrever" : "remover", batch.size(), topic, failure.getMessage()));
+        }
+    }
+
+    private static void logFailures(TopicManagementResponse response, String topic, int offset) {
+        if (response.getFailureCount() == 0) return;
+
+        response.getErrors().forEach(error ->
+                logger.warn("[TravelTopic] Falha no token {} do tópico {}: {}", error.getIndex() + offset, topic, error.getReason()));
+    }
+}
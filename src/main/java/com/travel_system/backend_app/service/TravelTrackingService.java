@@ -3,28 +3,36 @@ package com.travel_system.backend_app.service;
 
 import com.travel_system.backend_app.events.NewLocationReceivedEvents;
 import com.travel_system.backend_app.exceptions.*;
+import com.travel_system.backend_app.interfaces.GpsFixFilter;
 import com.travel_system.backend_app.model.StudentTravel;
-import com.travel_system.backend_app.model.Travel;
+import com.travel_system.backend_app.model.dtos.ActiveTravelSnapshotDTO;
+import com.travel_system.backend_app.model.dtos.TrackingPingUpdateDTO;
 import com.travel_system.backend_app.model.dtos.mapboxApi.*;
 import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
-import com.travel_system.backend_app.model.enums.TravelStatus;
+import com.travel_system.backend_app.model.enums.RerouteDecision;
 import com.travel_system.backend_app.repository.StudentTravelRepository;
-import com.travel_system.backend_app.repository.TravelRepository;
-import jakarta.persistence.EntityNotFoundException;
+import com.travel_system.backend_app.utils.DecodedRoute;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.Clock;
 import java.time.Instant;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class TravelTrackingService {
 
-    private final TravelRepository travelRepository;
+    private final ActiveTravelRegistryService activeTravelRegistryService;
+    private final GpsFixFilter gpsFixFilter;
+    private final PingWindowService pingWindowService;
     private final RedisTrackingService redisTrackingService;
-    private final MapboxAPIService mapboxAPIService;
     private final RouteCalculationService routeCalculationService;
+    private final RouteGeometryCacheService routeGeometryCacheService;
+    private final RouteProgressService routeProgressService;
+    private final RouteRecalculationService routeRecalculationService;
     private final StudentTravelRepository studentTravelRepository;
 
     private final ApplicationEventPublisher eventPublisher;
@@ -32,11 +40,15 @@ public class TravelTrackingService {
     // usar no lugar de Instant.now() para ajudar nos testes unitários
     private final Clock clock;
 
-    public TravelTrackingService(TravelRepository travelRepository, RedisTrackingService redisTrackingService, MapboxAPIService mapboxAPIService, RouteCalculationService routeCalculationService, StudentTravelRepository studentTravelRepository, ApplicationEventPublisher eventPublisher, Clock clock) {
-        this.travelRepository = travelRepository;
+    public TravelTrackingService(ActiveTravelRegistryService activeTravelRegistryService, GpsFixFilter gpsFixFilter, PingWindowService pingWindowService, RedisTrackingService redisTrackingService, RouteCalculationService routeCalculationService, RouteGeometryCacheService routeGeometryCacheService, RouteProgressService routeProgressService, RouteRecalculationService routeRecalculationService, StudentTravelRepository studentTravelRepository, ApplicationEventPublisher eventPublisher, Clock clock) {
+        this.activeTravelRegistryService = activeTravelRegistryService;
+        this.gpsFixFilter = gpsFixFilter;
+        this.pingWindowService = pingWindowService;
         this.redisTrackingService = redisTrackingService;
-        this.mapboxAPIService = mapboxAPIService;
         this.routeCalculationService = routeCalculationService;
+        this.routeGeometryCacheService = routeGeometryCacheService;
+        this.routeProgressService = routeProgressService;
+        this.routeRecalculationService = routeRecalculationService;
         this.studentTravelRepository = studentTravelRepository;
         this.eventPublisher = eventPublisher;
         this.clock = clock;
@@ -44,37 +56,52 @@ public class TravelTrackingService {
 
     // Anota que o motorista passou pela localização atual e libera o celular o mais rápido possível
     public void markDriverCheckpoint(VehicleLocationRequestDTO vehicleLocationRequest) {
+        markDriverCheckpoint(vehicleLocationRequest, clock.millis());
+    }
+
+    // ping com horário do aparelho (lote offline): filtro e janela usam o momento em que a posição foi
+    // registrada, não o da chegada. Limitado ao relógio do servidor para um aparelho adiantado não fazer
+    // os pings ao vivo seguintes parecerem fora de ordem
+    public void markDriverCheckpoint(VehicleLocationRequestDTO vehicleLocationRequest, long recordedAtMillis) {
         UUID travelId = vehicleLocationRequest.travelId();
-        Double latitude = vehicleLocationRequest.latitude();
-        Double longitude = vehicleLocationRequest.longitude();
-        Double speed = vehicleLocationRequest.speed();
-        Double heading = vehicleLocationRequest.heading();
 
-        Travel travel = travelRepository.findById(travelId)
-                .orElseThrow(() -> new TripNotFound("Trip not found"));
+        // registro em memória: o ping não vai ao banco
+        ActiveTravelSnapshotDTO travel = activeTravelRegistryService.require(travelId);
 
-        if (travel.getTravelStatus() != TravelStatus.TRAVELLING) {
-            throw new TravelException("A viagem não está em andamento");
-        }
+        // a partir daqui todos os consumidores (redis, desvio, movimento, mapa) recebem a posição filtrada.
+        // Salto impossível é descartado sem evento; o ping bruto continua no histórico gravado na entrada
+        long now = clock.millis();
+        long recordedAt = Math.min(recordedAtMillis, now);
+        Optional<VehicleLocationRequestDTO> filteredLocation = gpsFixFilter.filter(vehicleLocationRequest, recordedAt);
+        if (filteredLocation.isEmpty()) return;
 
-        // salva no redis como última posição conhecida matendo a distance e o geometry antigos
-        LiveLocationDTO liveLocation = redisTrackingService.getLiveLocation(String.valueOf(travelId));
+        Double latitude = filteredLocation.get().latitude();
+        Double longitude = filteredLocation.get().longitude();
+        Double speed = filteredLocation.get().speed();
+        Double heading = filteredLocation.get().heading();
 
-        // Se liveLocation for null (primeiro ping)
-        Double distance = (liveLocation != null) ? liveLocation.distance() : null;
-        String geometry = (liveLocation != null) ? liveLocation.geometry() : null;
+        // janela em memória de onde sai a cinemática (velocidade média, parada, giro)
+        pingWindowService.record(travelId, latitude, longitude, speed, heading, recordedAt);
 
-        String strLatitude = String.valueOf(latitude);
-        String strLongitude = String.valueOf(longitude);
-        redisTrackingService.storeLiveLocation(String.valueOf(travelId), strLatitude, strLongitude, distance, geometry);
+        // salva no redis como última posição conhecida matendo a distance e o geometry antigos;
+        // o timestamp da hash é o da chegada (o auto-healing mede por ele se a viagem ainda recebe pings)
+        redisTrackingService.applyPing(travelId, new TrackingPingUpdateDTO(
+                latitude,
+                longitude,
+                null,
+                null,
+                null,
+                null,
+                now,
+                null));
 
         // dispara evento de domínio
         NewLocationReceivedEvents event = new NewLocationReceivedEvents(
                 travelId,
                 latitude,
                 longitude,
-                Instant.now(),
-                travel.getTravelStatus(),
+                Instant.ofEpochMilli(recordedAt),
+                travel.travelStatus(),
                 speed, heading);
 
         eventPublisher.publishEvent(event);
@@ -87,70 +114,58 @@ public class TravelTrackingService {
         Double currentLat = vehicleLocationRequest.latitude();
         Double currentLng = vehicleLocationRequest.longitude();
 
-        Travel travel = travelRepository.findById(travelId)
-                .orElseThrow(() -> new TripNotFound("Trip not found"));
-
-        if (travel.getTravelStatus() != TravelStatus.TRAVELLING) {
-            throw new TravelException("A viagem não está em andamento");
-        }
-
-        RouteDeviationDTO routeDeviation = routeCalculationService.isRouteDeviation(currentLat, currentLng, travel.getPolylineRoute());
-
-        RouteDetailsDTO newEtaRecalculateByApi;
-        PreviousStateDTO previousEta;
+        ActiveTravelSnapshotDTO travel = activeTravelRegistryService.require(travelId);
 
-        double newETARecalculateByInternally;
-
-        Double currentDuration;
-        Double currentDistance;
-        String currentPolyline;
-
-        try {
-            // se está fora da rota, chama o metodo para recalcular a distância entre os pontos
-            if (routeDeviation.isOffRoute()) {
-                newEtaRecalculateByApi = mapboxAPIService.recalculateETA(
-                        currentLng,
-                        currentLat,
-                        travel.getFinalLongitude(),
-                        travel.getFinalLatitude());
+        // compara com a rota em uso (recalculada, se houve desvio) e não só com a rota original
+        String activePolyline = activePolyline(travel);
 
-                currentDuration = newEtaRecalculateByApi.duration();
-                currentDistance = newEtaRecalculateByApi.distance();
-                currentPolyline = newEtaRecalculateByApi.geometry();
+        RouteDeviationDTO routeDeviation = routeCalculationService.isRouteDeviation(travelId, currentLat, currentLng, activePolyline);
 
-            } else {
-                previousEta = redisTrackingService.getPreviousEta(travel.getId().toString());
+        Double currentDuration = null;
+        Double currentDistance = null;
+        String currentPolyline = null;
 
-                long currentTimeMillis = clock.millis();
-                long timeElapsedMillis = currentTimeMillis - previousEta.timeStamp();
-                double timeElapsedSeconds = (double) timeElapsedMillis / 1000.0;
+        // fora da rota só recalcula com desvio confirmado (histerese + orçamento por viagem). O recálculo
+        // segue de forma assíncrona e grava no redis quando chegar; até lá o ETA vem da projeção na rota atual
+        RerouteDecision rerouteDecision = routeRecalculationService.evaluateDeviation(travel, routeDeviation, currentLat, currentLng);
 
-                newETARecalculateByInternally = previousEta.durationRemaining() - timeElapsedSeconds;
+        // sem rota para projetar (polyline nula/vazia ou de um ponto só): distância e ETA ficam como estão no redis
+        boolean projected = routeDeviation.matchedSegmentIndex() >= 0;
 
-                // nunca deixa ser valor negativo
-                newETARecalculateByInternally = Math.max(0.0, newETARecalculateByInternally);
+        if (rerouteDecision != RerouteDecision.EXECUTED && projected) {
+            // distância restante pelo ponto projetado e ETA pela velocidade da janela de pings, sem chamada externa
+            RouteProgressDTO progress = routeProgressService.estimate(
+                    travelId,
+                    routeDeviation,
+                    travel.distance(),
+                    travel.duration());
 
-                currentDuration = newETARecalculateByInternally;
-                currentDistance = travel.getDistance();
-                currentPolyline = travel.getPolylineRoute();
-            }
-        } catch (Exception e) {
-            throw new RecalculateEtaException(e.getMessage(), e.getCause());
+            currentDuration = progress.durationRemaining();
+            currentDistance = progress.distanceRemaining();
+            currentPolyline = activePolyline;
         }
 
-        redisTrackingService.storeLiveLocation(
-                travel.getId().toString(),
-                currentLat.toString(),
-                currentLng.toString(),
+        // só ETA/distância/rota/status: a posição já foi gravada no checkpoint. Regravar aqui, fora de
+        // ordem com o checkpoint do ping seguinte, voltaria lat/lng e somaria o trecho de novo na distância
+        redisTrackingService.applyPing(travelId, new TrackingPingUpdateDTO(
+                null,
+                null,
+                currentDistance,
                 currentDuration,
-                currentPolyline);
+                currentPolyline,
+                travel.travelStatus().toString(),
+                clock.millis(),
+                null));
+    }
 
-        redisTrackingService.storeTravelMetadata(
-                travel.getId().toString(),
-                currentDuration,
-                currentDistance,
-                travel.getTravelStatus().toString()
-        );
+    // rota em memória; se saiu do LRU (ou o ping caiu em outra instância), a geometria ativa
+    // fica na hash da viagem no redis. A rota original só vale antes de qualquer recálculo
+    private String activePolyline(ActiveTravelSnapshotDTO travel) {
+        DecodedRoute activeRoute = routeGeometryCacheService.getActiveRoute(travel.travelId());
+        if (activeRoute != null) return activeRoute.polyline();
+
+        String storedGeometry = redisTrackingService.getActiveGeometry(travel.travelId());
+        return storedGeometry != null ? storedGeometry : travel.polylineRoute();
     }
 
     // haverá um popup no front que perguntará se o estudante irá participar da viagem
@@ -169,11 +184,7 @@ public class TravelTrackingService {
 
     // endpoint de fastview - provê a loc do driver
     public LiveLocationDTO getDriverPosition(UUID travelId) {
-        Travel travel = travelRepository.findById(travelId).orElseThrow(() -> new EntityNotFoundException("Viagem não encontrada: " + travelId));
-
-        if (!(travel.getTravelStatus() == TravelStatus.TRAVELLING)) {
-            throw new TravelException("Viagem " + travelId + " não está em andamento.");
-        }
+        ActiveTravelSnapshotDTO travel = activeTravelRegistryService.require(travelId);
 
         LiveLocationDTO liveCoordinates = extractLiveCoordinates(travelId);
 
@@ -182,32 +193,35 @@ public class TravelTrackingService {
         Double lastCalcLatitude = liveCoordinates.lastCalcLat();
         Double lastCalcLongitude = liveCoordinates.lastCalcLng();
 
-        RouteDeviationDTO isDeviation = routeCalculationService.isRouteDeviation(
-                liveCoordinates.lastCalcLat(),
-                liveCoordinates.lastCalcLng(),
-                geometry);
+        CompletableFuture<RouteDetailsDTO> recalculation;
 
-        RouteDetailsDTO routeDetailsDTO;
-
-        if (geometry == null || isDeviation.isOffRoute()) {
-            routeDetailsDTO = mapboxAPIService.calculateRoute(
-                    liveCoordinates.longitude(),
+        if (geometry == null) {
+            // vários alunos consultando ao mesmo tempo compartilham o mesmo recálculo
+            recalculation = routeRecalculationService.recalculate(
+                    travel,
                     liveCoordinates.latitude(),
-                    travel.getFinalLongitude(),
-                    travel.getFinalLatitude());
+                    liveCoordinates.longitude());
+        } else {
+            // quem decide recalcular é o caminho dos pings (histerese/orçamento); a leitura só
+            // aguarda um recálculo que já esteja em voo, senão devolve a geometria atual
+            recalculation = routeRecalculationService.inFlightRecalculation(travelId);
+        }
 
-            geometry = routeDetailsDTO.geometry();
-            distance = routeDetailsDTO.distance();
+        if (recalculation != null) {
+            try {
+                RouteDetailsDTO routeDetailsDTO = recalculation.join();
 
-            lastCalcLatitude = liveCoordinates.latitude();
-            lastCalcLongitude = liveCoordinates.longitude();
+                geometry = routeDetailsDTO.geometry();
+                distance = routeDetailsDTO.distance();
 
-            redisTrackingService.storeLiveLocation(
-                    String.valueOf(travelId),
-                    String.valueOf(lastCalcLatitude),
-                    String.valueOf(lastCalcLongitude),
-                    distance,
-                    geometry);
+                lastCalcLatitude = liveCoordinates.latitude();
+                lastCalcLongitude = liveCoordinates.longitude();
+            } catch (CompletionException e) {
+                // sem rota nenhuma não há o que mostrar; com a antiga, devolve ela até o próximo recálculo
+                if (geometry == null) {
+                    throw e.getCause() instanceof RuntimeException cause ? cause : e;
+                }
+            }
         }
 
         return new LiveLocationDTO(
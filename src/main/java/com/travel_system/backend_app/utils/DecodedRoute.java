@@ -0,0 +1,119 @@
+package com.travel_system.backend_app.utils;
+
+import com.mapbox.geojson.Point;
+
+import java.util.List;
+
+// rota decodificada uma única vez em arrays primitivos (lat/lng + vetores de cada segmento)
+public final class DecodedRoute {
+
+    private final String polyline;
+    private final int polylineHash;
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    // vetor A -> B de cada segmento (em graus)
+    private final double[] segmentDeltaLat;
+    private final double[] segmentDeltaLng;
+
+    // distância acumulada (metros) do início da rota até cada vértice
+    private final double[] cumulativeDistance;
+
+    private final RouteSegmentIndex segmentIndex;
+
+    private static final double EARTH_RADIUS_METERS = 6371000;
+
+    private DecodedRoute(String polyline, double[] latitudes, double[] longitudes) {
+        this.polyline = polyline;
+        this.polylineHash = polyline.hashCode();
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+
+        int segments = Math.max(0, latitudes.length - 1);
+        this.segmentDeltaLat = new double[segments];
+        this.segmentDeltaLng = new double[segments];
+
+        this.cumulativeDistance = new double[latitudes.length];
+
+        for (int i = 0; i < segments; i++) {
+            cumulativeDistance[i + 1] = cumulativeDistance[i] + haversine(latitudes[i], longitudes[i], latitudes[i + 1], longitudes[i + 1]);
+
+            segmentDeltaLat[i] = latitudes[i + 1] - latitudes[i];
+            segmentDeltaLng[i] = longitudes[i + 1] - longitudes[i];
+        }
+
+        this.segmentIndex = new RouteSegmentIndex(latitudes, longitudes);
+    }
+
+    public static DecodedRoute fromPoints(String polyline, List<Point> points) {
+        double[] latitudes = new double[points.size()];
+        double[] longitudes = new double[points.size()];
+
+        for (int i = 0; i < points.size(); i++) {
+            latitudes[i] = points.get(i).latitude();
+            longitudes[i] = points.get(i).longitude();
+        }
+
+        return new DecodedRoute(polyline, latitudes, longitudes);
+    }
+
+    // verifica se a rota em memória corresponde ao polyline recebido
+    public boolean matches(String otherPolyline) {
+        return otherPolyline != null
+                && polylineHash == otherPolyline.hashCode()
+                && polyline.equals(otherPolyline);
+    }
+
+    public String polyline() {
+        return polyline;
+    }
+
+    public RouteSegmentIndex segmentIndex() {
+        return segmentIndex;
+    }
+
+    // distância percorrida ao longo da rota até o ponto projetado no segmento
+    public double distanceAlongRoute(int segment, double fraction) {
+        double segmentLength = cumulativeDistance[segment + 1] - cumulativeDistance[segment];
+        return cumulativeDistance[segment] + fraction * segmentLength;
+    }
+
+    public double totalLength() {
+        return cumulativeDistance.length > 0 ? cumulativeDistance[cumulativeDistance.length - 1] : 0;
+    }
+
+    public int pointCount() {
+        return latitudes.length;
+    }
+
+    public int segmentCount() {
+        return segmentDeltaLat.length;
+    }
+
+    public double latitude(int index) {
+        return latitudes[index];
+    }
+
+    public double longitude(int index) {
+        return longitudes[index];
+    }
+
+    public double segmentDeltaLat(int segment) {
+        return segmentDeltaLat[segment];
+    }
+
+    public double segmentDeltaLng(int segment) {
+        return segmentDeltaLng[segment];
+    }
+
+    public static double haversine(double lat1, double lng1, double lat2, double lng2) {
+        double deltaLat = Math.toRadians(lat2 - lat1);
+        double deltaLng = Math.toRadians(lng2 - lng1);
+
+        double a = Math.pow(Math.sin(deltaLat / 2), 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(deltaLng / 2), 2);
+
+        return EARTH_RADIUS_METERS * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
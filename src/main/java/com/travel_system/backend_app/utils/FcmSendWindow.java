@@ -0,0 +1,84 @@
+package com.travel_system.backend_app.utils;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/*
+ * janela de envios assíncronos ao FCM: no máximo maxInFlight chamadas em voo; a thread que envia só
+ * espera por uma vaga (até acquireTimeoutMillis), nunca pela resposta do FCM. O resultado é tratado
+ * no callbackExecutor (desativação de token vai ao banco, não roda na thread de I/O do FCM)
+ */
+public class FcmSendWindow {
+
+    private final Semaphore permits;
+    private final int maxInFlight;
+    private final long acquireTimeoutMillis;
+    private final Executor callbackExecutor;
+    private final LongAdder droppedSends = new LongAdder();
+
+    private static final Logger logger = LoggerFactory.getLogger(FcmSendWindow.class);
+
+    public FcmSendWindow(int maxInFlight, long acquireTimeoutMillis, Executor callbackExecutor) {
+        this.permits = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    // false quando a janela continuou cheia até o timeout (envio descartado)
+    public <T> boolean submit(String description, Supplier<ApiFuture<T>> send, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                droppedSends.increment();
+                logger.warn("[FcmSendWindow] Janela cheia ({} envios em voo), descartando: {}", maxInFlight, description);
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedSends.increment();
+            return false;
+        }
+
+        ApiFuture<T> future;
+        try {
+            future = send.get();
+        } catch (RuntimeException e) {
+            permits.release();
+            onFailure.accept(e);
+            return true;
+        }
+
+        ApiFutures.addCallback(future, new ApiFutureCallback<>() {
+            @Override
+            public void onSuccess(T result) {
+                permits.release();
+                onSuccess.accept(result);
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                permits.release();
+                onFailure.accept(throwable);
+            }
+        }, callbackExecutor);
+        return true;
+    }
+
+    public int inFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    public long droppedSends() {
+        return droppedSends.sum();
+    }
+}
@@ -1,26 +1,30 @@
 package com.travel_system.backend_app.utils;
 
 import com.google.firebase.messaging.*;
+import com.travel_system.backend_app.events.DeviceTokenRegisteredEvents;
 import com.travel_system.backend_app.exceptions.DomainValidationException;
 import com.travel_system.backend_app.model.DeviceToken;
 import com.travel_system.backend_app.model.Student;
-import com.travel_system.backend_app.model.dtos.MovementNotificationEventDTO;
+import com.travel_system.backend_app.model.dtos.ProximityNotificationDTO;
+import com.travel_system.backend_app.model.dtos.StudentDeviceTokenDTO;
 import com.travel_system.backend_app.model.dtos.StudentTokensDTO;
+import com.travel_system.backend_app.model.dtos.TravelNotificationEventDTO;
 import com.travel_system.backend_app.model.dtos.VehicleMovementNotificationDTO;
 import com.travel_system.backend_app.model.enums.MovementState;
 import com.travel_system.backend_app.model.enums.Platform;
 import com.travel_system.backend_app.model.enums.Priority;
 import com.travel_system.backend_app.repository.DeviceTokenRepository;
-import com.travel_system.backend_app.repository.StudentRepository;
+import com.travel_system.backend_app.service.DeviceTokenCacheService;
+import com.travel_system.backend_app.service.TravelTopicService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static io.lettuce.core.pubsub.PubSubOutput.Type.message;
 import static java.util.stream.Collectors.toList;
@@ -29,14 +33,25 @@ import static java.util.stream.Collectors.toList;
 public class FirebaseNotificationSender {
 
     private final DeviceTokenRepository deviceTokenRepository;
-    private final StudentRepository studentRepository;
+    private final DeviceTokenCacheService deviceTokenCacheService;
     private final FirebaseMessaging firebaseMessaging;
+    private final FcmSendWindow fcmSendWindow;
+    private final ApplicationEventPublisher eventPublisher;
     private static final Logger logger = LoggerFactory.getLogger(FirebaseNotificationSender.class);
 
-    public FirebaseNotificationSender(DeviceTokenRepository deviceTokenRepository, StudentRepository studentRepository, FirebaseMessaging firebaseMessaging) {
+    // limite de tokens por chamada do sendEachForMulticast
+    public static final int MULTICAST_TOKEN_LIMIT = 500;
+
+    // aviso novo do mesmo tipo substitui o anterior no aparelho em vez de empilhar
+    private static final String MOVEMENT_COLLAPSE = "movement";
+    private static final String PROXIMITY_COLLAPSE = "proximity";
+
+    public FirebaseNotificationSender(DeviceTokenRepository deviceTokenRepository, DeviceTokenCacheService deviceTokenCacheService, FirebaseMessaging firebaseMessaging, FcmSendWindow fcmSendWindow, ApplicationEventPublisher eventPublisher) {
         this.deviceTokenRepository = deviceTokenRepository;
-        this.studentRepository = studentRepository;
+        this.deviceTokenCacheService = deviceTokenCacheService;
         this.firebaseMessaging = firebaseMessaging;
+        this.fcmSendWindow = fcmSendWindow;
+        this.eventPublisher = eventPublisher;
     }
 
     // registra/atualiza os tokens do usuário
@@ -46,9 +61,12 @@ public class FirebaseNotificationSender {
         Optional<DeviceToken> existingDeviceToken = deviceTokenRepository.findDeviceTokenByToken(token);
 
         DeviceToken deviceToken;
+        UUID previousStudentId = null;
         if (existingDeviceToken.isPresent()) {
             deviceToken = existingDeviceToken.get();
 
+            // aparelho trocou de aluno: o dono anterior também perde o token no cache
+            previousStudentId = deviceToken.getStudent().getId();
             deviceToken.setStudent(student);
         } else {
             deviceToken = new DeviceToken();
@@ -58,47 +76,141 @@ public class FirebaseNotificationSender {
         }
         deviceToken.setPlatform(platform);
         deviceTokenRepository.save(deviceToken);
+
+        // só depois do save: uma carga concorrente não lê o dono antigo de volta para o cache
+        deviceTokenCacheService.evictStudent(previousStudentId);
+        deviceTokenCacheService.evictStudent(student.getId());
+        eventPublisher.publishEvent(new DeviceTokenRegisteredEvents(student.getId(), previousStudentId, deviceToken.getToken()));
     }
 
-    // enviar notificação ao firebase
-    public VehicleMovementNotificationDTO pushNotificationToFirebase(MovementNotificationEventDTO movementNotificationEvent) {
-        UUID studentId = movementNotificationEvent.studentId();
-        UUID travelId = movementNotificationEvent.travelId();
-        UUID traceId = movementNotificationEvent.traceId();
-        MovementState movementState = movementNotificationEvent.movementState();
-        Priority priority = movementNotificationEvent.priority();
-        String message = movementNotificationEvent.message();
+    /*
+     * aviso para a viagem inteira: tokens de todos os alunos em uma leitura e lotes de até 500 tokens
+     * enviados pela janela assíncrona; cada lote desativa os seus tokens inválidos ao completar
+     */
+    public VehicleMovementNotificationDTO pushTravelNotification(TravelNotificationEventDTO travelNotificationEvent) {
+        UUID travelId = travelNotificationEvent.travelId();
+        UUID traceId = travelNotificationEvent.traceId();
+        MovementState movementState = travelNotificationEvent.movementState();
+        Priority priority = travelNotificationEvent.priority();
+        String message = travelNotificationEvent.message();
 
-        Set<String> studentActiveTokens = studentActiveTokens(studentId);
+        if (travelNotificationEvent.studentIds().isEmpty()) return null;
 
-        if (studentActiveTokens.isEmpty()) {
-            logger.info("Nenhum token ativo para o aluno {}, pulando notificação.", studentId);
+        // token -> aluno (o mesmo aparelho pode estar em mais de um aluno: envia uma vez)
+        Map<String, UUID> tokenOwners = new LinkedHashMap<>();
+        for (StudentDeviceTokenDTO studentToken : deviceTokenCacheService.activeTokens(travelId, travelNotificationEvent.studentIds())) {
+            tokenOwners.putIfAbsent(studentToken.token(), studentToken.studentId());
+        }
+
+        if (tokenOwners.isEmpty()) {
+            logger.info("[Trace: {}] Nenhum token ativo na viagem {}, pulando notificação.", traceId, travelId);
             return null;
         }
 
-        List<String> deviceTokens = studentActiveTokens.stream().toList();
+        List<String> deviceTokens = new ArrayList<>(tokenOwners.keySet());
+        int batches = 0;
 
-        MulticastMessage payload = convertMovementNotifyToFcmFormat(travelId, movementState, priority, message, deviceTokens);
+        for (int from = 0; from < deviceTokens.size(); from += MULTICAST_TOKEN_LIMIT) {
+            List<String> batchTokens = deviceTokens.subList(from, Math.min(from + MULTICAST_TOKEN_LIMIT, deviceTokens.size()));
+            MulticastMessage payload = convertMovementNotifyToFcmFormat(travelId, movementState, priority, message, batchTokens);
 
-        try {
-            BatchResponse response = FirebaseMessaging.getInstance().sendEachForMulticast(payload);
+            sendMulticast(payload, batchTokens, tokenOwners, traceId);
+            batches++;
+        }
 
-            logger.info("[Trace: {}] Tokens enviados ao firebase: {}", traceId, response.getSuccessCount());
-            if (response.getFailureCount() > 0) {
-                List<String> failureTokens = getFailureDeviceTokens(response, deviceTokens);
-                logger.error("Falha crítica no FCM para o aluno: {} {}", studentId, response.getFailureCount());
-                if (!failureTokens.isEmpty()) {
-                    logger.warn("Desativando {} tokens inválidos no banco.", failureTokens.size());
-                    deviceTokenRepository.deactivateTokensByValue(failureTokens);
-                }
+        logger.info("[Trace: {}] Viagem {}: {} tokens em {} lotes", traceId, travelId, deviceTokens.size(), batches);
+
+        return new VehicleMovementNotificationDTO(travelId, movementState, Instant.now(), message, priority);
+    }
+
+    /*
+     * avisos de proximidade já agrupados pela caixa de saída: cada aluno tem a sua distância, então é uma
+     * mensagem por token, enviadas em lotes de até 500 pelo sendEachAsync
+     */
+    public void pushProximityNotifications(List<ProximityNotificationDTO> proximityNotifications) {
+        Map<UUID, List<ProximityNotificationDTO>> byTravel = new LinkedHashMap<>();
+        proximityNotifications.forEach(notification -> byTravel.computeIfAbsent(notification.travelId(), id -> new ArrayList<>()).add(notification));
+
+        List<Message> messages = new ArrayList<>();
+        List<String> messageTokens = new ArrayList<>();
+        Map<String, UUID> tokenOwners = new HashMap<>();
+
+        byTravel.forEach((travelId, notifications) -> {
+            Map<UUID, ProximityNotificationDTO> byStudent = new HashMap<>();
+            notifications.forEach(notification -> byStudent.put(notification.studentId(), notification));
+
+            for (StudentDeviceTokenDTO studentToken : deviceTokenCacheService.activeTokens(travelId, new ArrayList<>(byStudent.keySet()))) {
+                messages.add(convertProximityToFcmFormat(byStudent.get(studentToken.studentId()), studentToken.token()));
+                messageTokens.add(studentToken.token());
+                tokenOwners.put(studentToken.token(), studentToken.studentId());
             }
-        } catch (FirebaseMessagingException e) {
-            logger.error("Erro no envio da mensagem para o Firebase: {} {}", e.getMessagingErrorCode(), traceId);
+        });
+
+        for (int from = 0; from < messages.size(); from += MULTICAST_TOKEN_LIMIT) {
+            int to = Math.min(from + MULTICAST_TOKEN_LIMIT, messages.size());
+            List<Message> batch = messages.subList(from, to);
+            List<String> batchTokens = messageTokens.subList(from, to);
+
+            fcmSendWindow.submit("lote de " + batch.size() + " avisos de proximidade",
+                    () -> firebaseMessaging.sendEachAsync(batch),
+                    response -> handleMulticastResponse(response, batchTokens, tokenOwners, null),
+                    failure -> logger.error("Erro no envio dos avisos de proximidade para o Firebase: {}", errorCode(failure)));
         }
+    }
+
+    // modo tópico: um envio para travel-{id}, sem buscar tokens (inválidos saem do tópico pelo próprio FCM)
+    public VehicleMovementNotificationDTO pushTopicNotification(TravelNotificationEventDTO travelNotificationEvent) {
+        UUID travelId = travelNotificationEvent.travelId();
+        UUID traceId = travelNotificationEvent.traceId();
+        MovementState movementState = travelNotificationEvent.movementState();
+        Priority priority = travelNotificationEvent.priority();
+        String message = travelNotificationEvent.message();
+
+        Message payload = Message.builder()
+                .putAllData(movementNotificationData(travelId, movementState, priority, message))
+                .setTopic(TravelTopicService.topic(travelId))
+                .setAndroidConfig(androidCollapse(collapseKey(travelId, MOVEMENT_COLLAPSE)))
+                .setApnsConfig(apnsCollapse(collapseKey(travelId, MOVEMENT_COLLAPSE)))
+                .build();
+
+        boolean submitted = fcmSendWindow.submit("tópico da viagem " + travelId,
+                () -> firebaseMessaging.sendAsync(payload),
+                messageId -> logger.info("[Trace: {}] Aviso enviado ao tópico da viagem {}: {}", traceId, travelId, messageId),
+                failure -> logger.error("Erro no envio para o tópico da viagem {}: {} {}", travelId, errorCode(failure), traceId));
+        if (!submitted) return null;
 
         return new VehicleMovementNotificationDTO(travelId, movementState, Instant.now(), message, priority);
     }
 
+    // um lote do multicast pela janela; os tokens inválidos são desativados no callback (tokenOwners: donos a invalidar)
+    private void sendMulticast(MulticastMessage payload, List<String> batchTokens, Map<String, UUID> tokenOwners, UUID traceId) {
+        fcmSendWindow.submit("lote de " + batchTokens.size() + " tokens [Trace: " + traceId + "]",
+                () -> firebaseMessaging.sendEachForMulticastAsync(payload),
+                response -> handleMulticastResponse(response, batchTokens, tokenOwners, traceId),
+                failure -> logger.error("Erro no envio do lote para o Firebase: {} {}", errorCode(failure), traceId));
+    }
+
+    private void handleMulticastResponse(BatchResponse response, List<String> batchTokens, Map<String, UUID> tokenOwners, UUID traceId) {
+        logger.info("[Trace: {}] Tokens enviados ao firebase: {}", traceId, response.getSuccessCount());
+        if (response.getFailureCount() == 0) return;
+
+        logger.warn("[Trace: {}] Falhas no lote do FCM: {} de {}", traceId, response.getFailureCount(), batchTokens.size());
+        List<String> failureTokens = getFailureDeviceTokens(response, batchTokens);
+
+        if (!failureTokens.isEmpty()) {
+            Map<String, UUID> failureOwners = new HashMap<>();
+            failureTokens.forEach(token -> failureOwners.put(token, tokenOwners.get(token)));
+            failureOwners.forEach((token, studentId) -> logger.info("Token inválido do aluno {} desativado", studentId));
+
+            deviceTokenRepository.deactivateTokensByValue(failureTokens);
+            deviceTokenCacheService.removeTokens(failureOwners);
+        }
+    }
+
+    private static Object errorCode(Throwable failure) {
+        return failure instanceof FirebaseMessagingException e ? e.getMessagingErrorCode() : failure.getMessage();
+    }
+
     // retorna os tokens que falharam da response
     private static List<String> getFailureDeviceTokens(BatchResponse response, List<String> deviceTokens) {
         List<SendResponse> responses = response.getResponses();
@@ -113,14 +225,14 @@ public class FirebaseNotificationSender {
                         .getMessagingErrorCode();
 
                 // usuário removeu o app ou limpou os dados ou formato incorreto do token
-                if (messagingErrorCode.equals(MessagingErrorCode.UNREGISTERED) || messagingErrorCode.equals(MessagingErrorCode.INVALID_ARGUMENT)) {
+                if (MessagingErrorCode.UNREGISTERED.equals(messagingErrorCode) || MessagingErrorCode.INVALID_ARGUMENT.equals(messagingErrorCode)) {
                     logger.info("Processo de desativação do token... motivo: {}", messagingErrorCode);
 
                     // lista temporária para desativar os tokens
                     failureTokens.add(failedToken);
                 }
 
-                if (messagingErrorCode.equals(MessagingErrorCode.QUOTA_EXCEEDED)) {
+                if (MessagingErrorCode.QUOTA_EXCEEDED.equals(messagingErrorCode)) {
                     logger.warn("Limite do firebase atingido: {}", messagingErrorCode);
                 }
             }
@@ -130,6 +242,50 @@ public class FirebaseNotificationSender {
 
     // converte dto para formato fcm
     private MulticastMessage convertMovementNotifyToFcmFormat(UUID travelId, MovementState movementState, Priority priority, String message, List<String> studentActiveTokens) {
+        Map<String, String> data = movementNotificationData(travelId, movementState, priority, message);
+
+        // mesma ordem da lista: as respostas do FCM são mapeadas de volta por índice
+        return MulticastMessage.builder()
+                .putAllData(data)
+                .addAllTokens(studentActiveTokens)
+                .setAndroidConfig(androidCollapse(collapseKey(travelId, MOVEMENT_COLLAPSE)))
+                .setApnsConfig(apnsCollapse(collapseKey(travelId, MOVEMENT_COLLAPSE)))
+                .build();
+    }
+
+    private Message convertProximityToFcmFormat(ProximityNotificationDTO proximityNotification, String token) {
+        String collapseKey = collapseKey(proximityNotification.travelId(), PROXIMITY_COLLAPSE);
+
+        return Message.builder()
+                .putData("travelId", String.valueOf(proximityNotification.travelId()))
+                .putData("studentId", String.valueOf(proximityNotification.studentId()))
+                .putData("distance", String.valueOf(proximityNotification.distance()))
+                .putData("zone", String.valueOf(proximityNotification.zone()))
+                .putData("alertType", String.valueOf(proximityNotification.alertType()))
+                .putData("timestamp", String.valueOf(proximityNotification.timestamp()))
+                .setToken(token)
+                .setAndroidConfig(androidCollapse(collapseKey))
+                .setApnsConfig(apnsCollapse(collapseKey))
+                .build();
+    }
+
+    private static String collapseKey(UUID travelId, String type) {
+        return "travel-" + travelId + "-" + type;
+    }
+
+    private static AndroidConfig androidCollapse(String collapseKey) {
+        return AndroidConfig.builder().setCollapseKey(collapseKey).build();
+    }
+
+    // equivalente no iOS: apns-collapse-id
+    private static ApnsConfig apnsCollapse(String collapseKey) {
+        return ApnsConfig.builder()
+                .putHeader("apns-collapse-id", collapseKey)
+                .setAps(Aps.builder().build())
+                .build();
+    }
+
+    private static Map<String, String> movementNotificationData(UUID travelId, MovementState movementState, Priority priority, String message) {
         Map<String, String> data = new HashMap<>();
 
         data.put("travelId", String.valueOf(travelId));
@@ -137,16 +293,6 @@ public class FirebaseNotificationSender {
         data.put("priority", String.valueOf(priority));
         data.put("message", message);
 
-        Set<String> convertedTokens = new HashSet<>(studentActiveTokens);
-
-        return MulticastMessage.builder()
-                .putAllData(data)
-                .addAllTokens(convertedTokens)
-                .build();
-    }
-
-    // pega todos os tokens ativos do usuário
-    private Set<String> studentActiveTokens(UUID studentId) {
-        return studentRepository.findActiveTokensByStudentId(studentId);
+        return data;
     }
 }
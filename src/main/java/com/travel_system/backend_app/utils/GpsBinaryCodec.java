@@ -0,0 +1,73 @@
+package com.travel_system.backend_app.utils;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.UUID;
+
+/*
+ * layout binário fixo de um ponto de GPS (big-endian, 37 bytes):
+ *  [0]      versão do layout
+ *  [1..16]  travelId (UUID, 16 bytes)
+ *  [17..20] latitude  em ponto fixo (graus * 1e7, int32) - ~1 cm de resolução
+ *  [21..24] longitude em ponto fixo (graus * 1e7, int32)
+ *  [25..26] velocidade em meia precisão (float16), NaN quando ausente
+ *  [27..28] heading em meia precisão (float16), NaN quando ausente
+ *  [29..36] timestamp em epoch ms (int64), Long.MIN_VALUE quando ausente
+ */
+public final class GpsBinaryCodec {
+
+    public static final byte VERSION = 1;
+    public static final int ENCODED_SIZE = 37;
+
+    private static final double FIXED_POINT_SCALE = 1e7;
+    // 0 seria lido como 1970-01-01 (Instant.EPOCH)
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private GpsBinaryCodec() {
+    }
+
+    public record GpsFix(UUID travelId, Double latitude, Double longitude, Double speed, Double heading, Instant timestamp) {
+    }
+
+    public static byte[] encode(GpsFix fix) {
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_SIZE);
+
+        buffer.put(VERSION);
+        buffer.putLong(fix.travelId().getMostSignificantBits());
+        buffer.putLong(fix.travelId().getLeastSignificantBits());
+        buffer.putInt((int) Math.round(fix.latitude() * FIXED_POINT_SCALE));
+        buffer.putInt((int) Math.round(fix.longitude() * FIXED_POINT_SCALE));
+        buffer.putShort(toHalf(fix.speed()));
+        buffer.putShort(toHalf(fix.heading()));
+        buffer.putLong(fix.timestamp() != null ? fix.timestamp().toEpochMilli() : NO_TIMESTAMP);
+
+        return buffer.array();
+    }
+
+    public static GpsFix decode(byte[] body) {
+        if (body == null || body.length != ENCODED_SIZE || body[0] != VERSION) {
+            throw new IllegalArgumentException("Payload binário de GPS inválido");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(body, 1, ENCODED_SIZE - 1);
+
+        UUID travelId = new UUID(buffer.getLong(), buffer.getLong());
+        double latitude = buffer.getInt() / FIXED_POINT_SCALE;
+        double longitude = buffer.getInt() / FIXED_POINT_SCALE;
+        Double speed = fromHalf(buffer.getShort());
+        Double heading = fromHalf(buffer.getShort());
+        long epochMillis = buffer.getLong();
+        Instant timestamp = epochMillis != NO_TIMESTAMP ? Instant.ofEpochMilli(epochMillis) : null;
+
+        return new GpsFix(travelId, latitude, longitude, speed, heading, timestamp);
+    }
+
+    private static short toHalf(Double value) {
+        return Float.floatToFloat16(value != null ? value.floatValue() : Float.NaN);
+    }
+
+    private static Double fromHalf(short value) {
+        float decoded = Float.float16ToFloat(value);
+        return Float.isNaN(decoded) ? null : (double) decoded;
+    }
+}
@@ -0,0 +1,242 @@
+package com.travel_system.backend_app.utils;
+
+import com.travel_system.backend_app.interfaces.GpsFixFilter;
+import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+  Filtro de Kalman de velocidade constante por viagem, em metros num plano local centrado no primeiro ping.
+  Os eixos leste/norte são independentes (ruído isotrópico), então cada um carrega só [posição, velocidade]
+  e uma covariância 2x2. A velocidade e o rumo enviados pelo aparelho entram como medição de velocidade.
+  Pings que exigiriam velocidade acima do limite físico são descartados; depois de alguns descartes seguidos
+  (ou de um longo intervalo sem pings) o filtro reinicia na posição medida.
+*/
+public class KalmanGpsFilter implements GpsFixFilter {
+    private static final double EARTH_RADIUS_METERS = 6371000.0;
+    private static final double METERS_PER_DEGREE = EARTH_RADIUS_METERS * Math.PI / 180.0;
+
+    // abaixo disso o aparelho está parado e o rumo não significa nada
+    private static final double STATIONARY_SPEED_MPS = 0.5;
+    private static final double INITIAL_VELOCITY_VARIANCE = 100.0;
+    private static final int MAX_CONSECUTIVE_REJECTIONS = 3;
+    private static final long RESET_GAP_MILLIS = 120_000;
+
+    private final double positionVariance;
+    private final double speedVariance;
+    private final double accelerationVariance;
+    private final double maxSpeedMps;
+
+    private final ConcurrentHashMap<UUID, TrackState> tracks = new ConcurrentHashMap<>();
+
+    public KalmanGpsFilter(double positionNoiseMeters, double speedNoiseMps, double accelerationNoiseMps2, double maxSpeedMps) {
+        this.positionVariance = positionNoiseMeters * positionNoiseMeters;
+        this.speedVariance = speedNoiseMps * speedNoiseMps;
+        this.accelerationVariance = accelerationNoiseMps2 * accelerationNoiseMps2;
+        this.maxSpeedMps = maxSpeedMps;
+    }
+
+    @Override
+    public Optional<VehicleLocationRequestDTO> filter(VehicleLocationRequestDTO fix, long timestampMillis) {
+        if (fix.latitude() == null || fix.longitude() == null) return Optional.of(fix);
+
+        // compute serializa os pings da mesma viagem; o estado só é lido e mutado aqui dentro
+        VehicleLocationRequestDTO[] filtered = new VehicleLocationRequestDTO[1];
+        tracks.compute(fix.travelId(), (travelId, current) -> {
+            TrackState state = current != null ? current : newTrack(fix, timestampMillis);
+            if (current == null || update(state, fix, timestampMillis)) {
+                filtered[0] = state.snapshot(fix);
+            }
+            return state;
+        });
+
+        return Optional.ofNullable(filtered[0]);
+    }
+
+    @Override
+    public void release(UUID travelId) {
+        tracks.remove(travelId);
+    }
+
+    private TrackState newTrack(VehicleLocationRequestDTO fix, long timestampMillis) {
+        TrackState state = new TrackState(fix.latitude(), fix.longitude());
+        state.reset(0.0, 0.0, timestampMillis, positionVariance);
+        measureVelocity(state, fix);
+        return state;
+    }
+
+    // true quando o ping foi incorporado; false quando foi descartado como salto
+    private boolean update(TrackState state, VehicleLocationRequestDTO fix, long timestampMillis) {
+        double measuredX = state.toX(fix.longitude());
+        double measuredY = state.toY(fix.latitude());
+        long elapsedMillis = timestampMillis - state.timestampMillis;
+
+        // ping atrasado (fora de ordem): a posição já avançou além dele
+        if (elapsedMillis < 0) return false;
+
+        if (elapsedMillis > RESET_GAP_MILLIS) {
+            state.reset(measuredX, measuredY, timestampMillis, positionVariance);
+            measureVelocity(state, fix);
+            return true;
+        }
+
+        double dt = elapsedMillis / 1000.0;
+        double jump = Math.hypot(measuredX - state.east.position, measuredY - state.north.position);
+
+        // velocidade implícita do salto; piso de 1s para pings quase simultâneos
+        if (jump / Math.max(dt, 1.0) > maxSpeedMps) {
+            state.consecutiveRejections++;
+            if (state.consecutiveRejections < MAX_CONSECUTIVE_REJECTIONS) return false;
+
+            // o veículo realmente está lá (ex.: GPS voltou depois de um túnel)
+            state.reset(measuredX, measuredY, timestampMillis, positionVariance);
+            measureVelocity(state, fix);
+            return true;
+        }
+
+        state.consecutiveRejections = 0;
+        state.timestampMillis = timestampMillis;
+        state.east.predict(dt, accelerationVariance);
+        state.north.predict(dt, accelerationVariance);
+        state.east.measurePosition(measuredX, positionVariance);
+        state.north.measurePosition(measuredY, positionVariance);
+        measureVelocity(state, fix);
+        return true;
+    }
+
+    // usa a velocidade/rumo do aparelho (Doppler), bem mais estáveis que a diferença entre posições
+    private void measureVelocity(TrackState state, VehicleLocationRequestDTO fix) {
+        Double speed = fix.speed();
+        if (speed == null || speed < 0) return;
+
+        if (speed < STATIONARY_SPEED_MPS) {
+            state.east.measureVelocity(0.0, speedVariance);
+            state.north.measureVelocity(0.0, speedVariance);
+            return;
+        }
+
+        Double heading = fix.heading();
+        if (heading == null) return;
+
+        double headingRad = Math.toRadians(heading);
+        state.east.measureVelocity(speed * Math.sin(headingRad), speedVariance);
+        state.north.measureVelocity(speed * Math.cos(headingRad), speedVariance);
+    }
+
+    private static final class TrackState {
+        private final double originLat;
+        private final double originLng;
+        private final double metersPerDegreeLng;
+
+        private final AxisState east = new AxisState();
+        private final AxisState north = new AxisState();
+        private long timestampMillis;
+        private int consecutiveRejections;
+
+        private TrackState(double originLat, double originLng) {
+            this.originLat = originLat;
+            this.originLng = originLng;
+            this.metersPerDegreeLng = METERS_PER_DEGREE * Math.cos(Math.toRadians(originLat));
+        }
+
+        private void reset(double measuredX, double measuredY, long timestampMillis, double positionVariance) {
+            east.reset(measuredX, positionVariance);
+            north.reset(measuredY, positionVariance);
+            this.timestampMillis = timestampMillis;
+            this.consecutiveRejections = 0;
+        }
+
+        private double toX(double longitude) {
+            return (longitude - originLng) * metersPerDegreeLng;
+        }
+
+        private double toY(double latitude) {
+            return (latitude - originLat) * METERS_PER_DEGREE;
+        }
+
+        private VehicleLocationRequestDTO snapshot(VehicleLocationRequestDTO fix) {
+            double speed = Math.hypot(east.velocity, north.velocity);
+            // parado, o rumo calculado é ruído: mantém o que o aparelho mandou
+            Double heading = fix.heading();
+            if (speed >= STATIONARY_SPEED_MPS) {
+                heading = (Math.toDegrees(Math.atan2(east.velocity, north.velocity)) + 360.0) % 360.0;
+            }
+
+            return new VehicleLocationRequestDTO(
+                    fix.travelId(),
+                    originLat + north.position / METERS_PER_DEGREE,
+                    originLng + east.position / metersPerDegreeLng,
+                    speed,
+                    heading);
+        }
+    }
+
+    // [posição, velocidade] de um eixo e a covariância simétrica 2x2 (p00, p01, p11)
+    private static final class AxisState {
+        private double position;
+        private double velocity;
+        private double p00;
+        private double p01;
+        private double p11;
+
+        private void reset(double measuredPosition, double positionVariance) {
+            position = measuredPosition;
+            velocity = 0.0;
+            p00 = positionVariance;
+            p01 = 0.0;
+            p11 = INITIAL_VELOCITY_VARIANCE;
+        }
+
+        // modelo de velocidade constante com aceleração como ruído branco
+        private void predict(double dt, double accelerationVariance) {
+            position += velocity * dt;
+
+            double dt2 = dt * dt;
+            double n00 = p00 + 2 * dt * p01 + dt2 * p11 + dt2 * dt2 / 4 * accelerationVariance;
+            double n01 = p01 + dt * p11 + dt2 * dt / 2 * accelerationVariance;
+            double n11 = p11 + dt2 * accelerationVariance;
+
+            p00 = n00;
+            p01 = n01;
+            p11 = n11;
+        }
+
+        private void measurePosition(double measured, double variance) {
+            double s = p00 + variance;
+            double k0 = p00 / s;
+            double k1 = p01 / s;
+            double innovation = measured - position;
+
+            position += k0 * innovation;
+            velocity += k1 * innovation;
+
+            double n00 = (1 - k0) * p00;
+            double n01 = (1 - k0) * p01;
+            double n11 = p11 - k1 * p01;
+
+            p00 = n00;
+            p01 = n01;
+            p11 = n11;
+        }
+
+        private void measureVelocity(double measured, double variance) {
+            double s = p11 + variance;
+            double k0 = p01 / s;
+            double k1 = p11 / s;
+            double innovation = measured - velocity;
+
+            position += k0 * innovation;
+            velocity += k1 * innovation;
+
+            double n00 = p00 - k0 * p01;
+            double n01 = (1 - k1) * p01;
+            double n11 = (1 - k1) * p11;
+
+            p00 = n00;
+            p01 = n01;
+            p11 = n11;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.travel_system.backend_app.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * caixa de correio "o último vence" por viagem: guarda no máximo um item pendente por viagem.
+ * Se um item novo chega antes do anterior começar a ser processado, o anterior é descartado (coalescido)
+ */
+public class LatestWinsMailbox<T> {
+
+    private final Map<UUID, AtomicReference<T>> pending = new ConcurrentHashMap<>();
+    private final Map<UUID, LongAdder> coalesced = new ConcurrentHashMap<>();
+
+    // true quando a caixa estava vazia; false quando substituiu um item ainda não processado
+    public boolean offer(UUID travelId, T item) {
+        T replaced = pending.computeIfAbsent(travelId, id -> new AtomicReference<>()).getAndSet(item);
+
+        if (replaced != null) {
+            coalesced.computeIfAbsent(travelId, id -> new LongAdder()).increment();
+            return false;
+        }
+        return true;
+    }
+
+    // retira o item mais recente; null se outro processamento já o consumiu
+    public T poll(UUID travelId) {
+        AtomicReference<T> slot = pending.get(travelId);
+        return slot != null ? slot.getAndSet(null) : null;
+    }
+
+    public long coalescedCount(UUID travelId) {
+        LongAdder counter = coalesced.get(travelId);
+        return counter != null ? counter.sum() : 0L;
+    }
+
+    // viagens que já tiveram itens coalescidos e quantos
+    public Map<UUID, Long> coalescedCounts() {
+        Map<UUID, Long> counts = new HashMap<>();
+        coalesced.forEach((travelId, counter) -> counts.put(travelId, counter.sum()));
+        return counts;
+    }
+
+    public void release(UUID travelId) {
+        if (travelId == null) return;
+        pending.remove(travelId);
+        coalesced.remove(travelId);
+    }
+}
@@ -0,0 +1,76 @@
+package com.travel_system.backend_app.utils;
+
+import com.travel_system.backend_app.model.dtos.MovementNotificationEventDTO;
+import com.travel_system.backend_app.model.dtos.ProximityNotificationDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * caixa de saída por aluno: guarda no máximo um aviso de movimento (SLOW/STOPPED, o mais recente vence)
+ * e um de proximidade (só a distância mais recente) até o próximo drain. Avisos em sequência viram um
+ * único push por tipo
+ */
+public class NotificationOutbox {
+
+    private final Map<UUID, PendingNotification> pending = new ConcurrentHashMap<>();
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    // avisos pendentes de um aluno; null = nada daquele tipo
+    public record PendingNotification(UUID studentId, MovementNotificationEventDTO movement, ProximityNotificationDTO proximity) {
+
+        private PendingNotification merge(PendingNotification newer) {
+            return new PendingNotification(studentId,
+                    newer.movement() != null ? newer.movement() : movement,
+                    newer.proximity() != null ? newer.proximity() : proximity);
+        }
+    }
+
+    public void addMovement(MovementNotificationEventDTO movement) {
+        add(new PendingNotification(movement.studentId(), movement, null));
+    }
+
+    public void addProximity(ProximityNotificationDTO proximity) {
+        add(new PendingNotification(proximity.studentId(), null, proximity));
+    }
+
+    // retira tudo o que está pendente; avisos que chegam durante o drain ficam para o próximo
+    public List<PendingNotification> drain() {
+        List<PendingNotification> drained = new ArrayList<>();
+
+        for (UUID studentId : pending.keySet()) {
+            PendingNotification notification = pending.remove(studentId);
+            if (notification != null) drained.add(notification);
+        }
+        return drained;
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    public long enqueued() {
+        return enqueued.sum();
+    }
+
+    // avisos substituídos por um mais novo do mesmo tipo antes de sair
+    public long collapsed() {
+        return collapsed.sum();
+    }
+
+    private void add(PendingNotification notification) {
+        enqueued.increment();
+
+        pending.merge(notification.studentId(), notification, (current, newer) -> {
+            if ((current.movement() != null && newer.movement() != null) || (current.proximity() != null && newer.proximity() != null)) {
+                collapsed.increment();
+            }
+            return current.merge(newer);
+        });
+    }
+}
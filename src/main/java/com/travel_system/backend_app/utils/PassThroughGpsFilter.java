@@ -0,0 +1,20 @@
+package com.travel_system.backend_app.utils;
+
+import com.travel_system.backend_app.interfaces.GpsFixFilter;
+import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
+
+import java.util.Optional;
+import java.util.UUID;
+
+// gps.filter.mode=none: repassa o ping bruto, como antes do estágio de filtragem
+public class PassThroughGpsFilter implements GpsFixFilter {
+
+    @Override
+    public Optional<VehicleLocationRequestDTO> filter(VehicleLocationRequestDTO fix, long timestampMillis) {
+        return Optional.of(fix);
+    }
+
+    @Override
+    public void release(UUID travelId) {
+    }
+}
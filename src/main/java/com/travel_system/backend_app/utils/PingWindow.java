@@ -0,0 +1,156 @@
+package com.travel_system.backend_app.utils;
+
+/*
+  Janela deslizante dos últimos N pings de uma viagem em arrays primitivos (buffer circular).
+  Coordenadas em ponto fixo (graus * 1e7), sem objeto por ping. Distância percorrida e giro acumulado
+  da janela são somas móveis: entra o trecho novo, sai o trecho do ping despejado - tudo O(1).
+*/
+public final class PingWindow {
+    private static final double FIXED_POINT_SCALE = 1e7;
+    private static final double METERS_PER_DEGREE = 6371000.0 * Math.PI / 180.0;
+
+    private final long[] timestamps;
+    private final int[] latitudesE7;
+    private final int[] longitudesE7;
+    private final float[] speeds;
+    private final float[] headings;
+    // trecho/giro entre o ping e o anterior a ele
+    private final float[] segmentMeters;
+    private final float[] turnDegrees;
+
+    private final double dwellRadiusMeters;
+
+    private int newest = -1;
+    private int size;
+    private double pathMeters;
+    private double turnSum;
+
+    // âncora da parada: enquanto o veículo não sai do raio, o tempo parado só cresce
+    private int dwellLatE7;
+    private int dwellLngE7;
+    private long dwellStartedAt;
+
+    public PingWindow(int capacity, double dwellRadiusMeters) {
+        if (capacity < 2) throw new IllegalArgumentException("A janela precisa de pelo menos 2 pings");
+
+        this.timestamps = new long[capacity];
+        this.latitudesE7 = new int[capacity];
+        this.longitudesE7 = new int[capacity];
+        this.speeds = new float[capacity];
+        this.headings = new float[capacity];
+        this.segmentMeters = new float[capacity];
+        this.turnDegrees = new float[capacity];
+        this.dwellRadiusMeters = dwellRadiusMeters;
+    }
+
+    // speed/heading do aparelho (ou do filtro) são opcionais; sem eles, derivam do trecho
+    public synchronized void add(double latitude, double longitude, Double speed, Double heading, long timestampMillis) {
+        int latE7 = (int) Math.round(latitude * FIXED_POINT_SCALE);
+        int lngE7 = (int) Math.round(longitude * FIXED_POINT_SCALE);
+
+        if (size == 0) {
+            write(0, timestampMillis, latE7, lngE7, speed != null ? speed : 0.0, heading != null ? heading : Double.NaN, 0.0, 0.0);
+            newest = 0;
+            size = 1;
+            dwellLatE7 = latE7;
+            dwellLngE7 = lngE7;
+            dwellStartedAt = timestampMillis;
+            return;
+        }
+
+        // ping fora de ordem não entra: quebraria as somas móveis
+        if (timestampMillis <= timestamps[newest]) return;
+
+        int capacity = timestamps.length;
+        int slot = (newest + 1) % capacity;
+
+        double segment = distanceMeters(latitudesE7[newest], longitudesE7[newest], latE7, lngE7);
+        double elapsedSeconds = (timestampMillis - timestamps[newest]) / 1000.0;
+        double sampleSpeed = speed != null ? speed : segment / elapsedSeconds;
+        double sampleHeading = heading != null ? heading : Double.NaN;
+        double previousHeading = headings[newest];
+        double turn = Double.isNaN(sampleHeading) || Double.isNaN(previousHeading) ? 0.0 : angleBetween(previousHeading, sampleHeading);
+
+        if (size == capacity) {
+            // o slot é o mais antigo; o trecho do próximo (que vira o mais antigo) ligava ao despejado
+            int nextOldest = (slot + 1) % capacity;
+            pathMeters -= segmentMeters[nextOldest];
+            turnSum -= turnDegrees[nextOldest];
+        } else {
+            size++;
+        }
+
+        write(slot, timestampMillis, latE7, lngE7, sampleSpeed, sampleHeading, segment, turn);
+        newest = slot;
+        pathMeters = Math.max(0.0, pathMeters + segment);
+        turnSum = Math.max(0.0, turnSum + turn);
+
+        if (distanceMeters(dwellLatE7, dwellLngE7, latE7, lngE7) > dwellRadiusMeters) {
+            dwellLatE7 = latE7;
+            dwellLngE7 = lngE7;
+            dwellStartedAt = timestampMillis;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized double windowSeconds() {
+        return size < 2 ? 0.0 : (timestamps[newest] - timestamps[oldest()]) / 1000.0;
+    }
+
+    // distância percorrida na janela (soma dos trechos)
+    public synchronized double pathMeters() {
+        return size < 2 ? 0.0 : pathMeters;
+    }
+
+    public synchronized double averageSpeed() {
+        double windowSeconds = windowSeconds();
+        return windowSeconds > 0 ? pathMeters / windowSeconds : 0.0;
+    }
+
+    // m/s² entre a velocidade do ping mais antigo e a do mais novo
+    public synchronized double acceleration() {
+        double windowSeconds = windowSeconds();
+        return windowSeconds > 0 ? (speeds[newest] - speeds[oldest()]) / windowSeconds : 0.0;
+    }
+
+    // giro acumulado na janela, em graus
+    public synchronized double headingChange() {
+        return size < 2 ? 0.0 : turnSum;
+    }
+
+    // há quanto tempo o veículo não sai do raio de parada
+    public synchronized double dwellSeconds() {
+        return size == 0 ? 0.0 : (timestamps[newest] - dwellStartedAt) / 1000.0;
+    }
+
+    private int oldest() {
+        int capacity = timestamps.length;
+        return (newest - size + 1 + capacity) % capacity;
+    }
+
+    private void write(int slot, long timestampMillis, int latE7, int lngE7, double speed, double heading, double segment, double turn) {
+        timestamps[slot] = timestampMillis;
+        latitudesE7[slot] = latE7;
+        longitudesE7[slot] = lngE7;
+        speeds[slot] = (float) speed;
+        headings[slot] = (float) heading;
+        segmentMeters[slot] = (float) segment;
+        turnDegrees[slot] = (float) turn;
+    }
+
+    // equiretangular: exato o bastante entre pings de poucos segundos
+    private static double distanceMeters(int lat1E7, int lng1E7, int lat2E7, int lng2E7) {
+        double meanLatRad = Math.toRadians((lat1E7 + (double) lat2E7) / 2 / FIXED_POINT_SCALE);
+        double dx = (lng2E7 - lng1E7) / FIXED_POINT_SCALE * METERS_PER_DEGREE * Math.cos(meanLatRad);
+        double dy = (lat2E7 - lat1E7) / FIXED_POINT_SCALE * METERS_PER_DEGREE;
+        return Math.hypot(dx, dy);
+    }
+
+    private static double angleBetween(double from, double to) {
+        double delta = Math.abs(to - from) % 360.0;
+        return delta > 180.0 ? 360.0 - delta : delta;
+    }
+}
@@ -0,0 +1,223 @@
+package com.travel_system.backend_app.utils;
+
+import com.travel_system.backend_app.model.dtos.response.NotificationStateDTO;
+import com.travel_system.backend_app.model.enums.ProximityAlertType;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+  Avaliação de proximidade motorista x alunos em um laço só sobre os arrays do TravelRoster:
+  distância (haversine com cos(lat) pré-calculado), zona FAR/NEAR e a decisão de aviso (mesmas regras
+  do RedisNotificationService.verifyNotificationState). Sem alocação por aluno: os resultados vão para
+  um Batch reaproveitado. Rosters muito grandes (ex.: fretados de evento) são divididos no ForkJoinPool.
+  Pode avaliar só um subconjunto de índices (candidatos da grade); os demais ficam sem aviso
+*/
+public final class ProximityKernel {
+    public static final double FAR_DISTANCE_METERS = 1000.0;
+    public static final double FAR_STEP_METERS = 200.0;
+    public static final double NEAR_STEP_METERS = 30.0;
+    // evita spam de aviso com o ônibus parado (12 min)
+    public static final long REPEAT_AFTER_MILLIS = 720_000L;
+
+    public static final byte ZONE_UNKNOWN = -1;
+    public static final byte ZONE_NEAR = 0;
+    public static final byte ZONE_FAR = 1;
+    // zona gravada com valor inesperado
+    public static final byte ZONE_CORRUPT = 2;
+    public static final byte NO_ALERT = -1;
+    public static final long NOT_NOTIFIED = Long.MIN_VALUE;
+
+    private static final double EARTH_RADIUS_METERS = 6371000.0;
+    private static final ProximityAlertType[] ALERT_TYPES = ProximityAlertType.values();
+    // menor faixa que ainda compensa virar tarefa do fork-join
+    private static final int MIN_PARALLEL_CHUNK = 256;
+
+    private final int parallelThreshold;
+
+    public ProximityKernel(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    // entradas (estado anterior) e saídas (distância, zona, aviso) alinhadas aos índices do roster
+    public static final class Batch {
+        private double[] distances = new double[0];
+        private byte[] zones = new byte[0];
+        private byte[] alerts = new byte[0];
+        private byte[] previousZones = new byte[0];
+        private double[] previousDistances = new double[0];
+        private long[] previousNotifiedAt = new long[0];
+        private int[] candidates = new int[0];
+        private int size;
+
+        public void reset(int size) {
+            if (distances.length < size) {
+                int capacity = Math.max(size, distances.length * 2);
+                distances = new double[capacity];
+                zones = new byte[capacity];
+                alerts = new byte[capacity];
+                previousZones = new byte[capacity];
+                previousDistances = new double[capacity];
+                previousNotifiedAt = new long[capacity];
+                candidates = new int[capacity];
+            }
+
+            Arrays.fill(alerts, 0, size, NO_ALERT);
+            Arrays.fill(previousZones, 0, size, ZONE_UNKNOWN);
+            Arrays.fill(previousDistances, 0, size, Double.NaN);
+            Arrays.fill(previousNotifiedAt, 0, size, NOT_NOTIFIED);
+            this.size = size;
+        }
+
+        // converte o estado lido do redis; campo ausente ou inválido vira "sem estado"/corrompido
+        public void loadPrevious(int index, NotificationStateDTO state) {
+            if (state == null || state.zone() == null || state.zone().isEmpty()) return;
+
+            previousZones[index] = switch (state.zone()) {
+                case "FAR" -> ZONE_FAR;
+                case "NEAR" -> ZONE_NEAR;
+                default -> ZONE_CORRUPT;
+            };
+
+            try {
+                previousNotifiedAt[index] = Long.parseLong(state.lastNotificationAt());
+            } catch (NumberFormatException e) {
+                previousNotifiedAt[index] = NOT_NOTIFIED;
+            }
+
+            try {
+                previousDistances[index] = Double.parseDouble(state.lastDistanceNotified());
+            } catch (NullPointerException | NumberFormatException e) {
+                previousDistances[index] = Double.NaN;
+            }
+        }
+
+        // destino da consulta à grade (TravelRoster.collectWithin); cabe o roster inteiro
+        public int[] candidates() {
+            return candidates;
+        }
+
+        public double distance(int index) {
+            return distances[index];
+        }
+
+        public String zone(int index) {
+            return zones[index] == ZONE_FAR ? "FAR" : "NEAR";
+        }
+
+        // null quando o aluno não deve ser avisado neste ping
+        public ProximityAlertType alert(int index) {
+            byte alert = alerts[index];
+            return alert == NO_ALERT ? null : ALERT_TYPES[alert];
+        }
+    }
+
+    // avalia o roster inteiro
+    public void evaluate(TravelRoster roster, double driverLatitude, double driverLongitude, long nowMillis, Batch batch) {
+        evaluate(roster, driverLatitude, driverLongitude, nowMillis, batch, null, roster.size());
+    }
+
+    // avalia só os primeiros candidateCount índices de batch.candidates()
+    public void evaluateCandidates(TravelRoster roster, double driverLatitude, double driverLongitude, long nowMillis, Batch batch, int candidateCount) {
+        evaluate(roster, driverLatitude, driverLongitude, nowMillis, batch, batch.candidates, candidateCount);
+    }
+
+    private void evaluate(TravelRoster roster, double driverLatitude, double driverLongitude, long nowMillis, Batch batch, int[] indices, int count) {
+        if (batch.size != roster.size()) throw new IllegalArgumentException("Batch não corresponde ao roster");
+
+        double driverLatRad = Math.toRadians(driverLatitude);
+        double driverLngRad = Math.toRadians(driverLongitude);
+        double cosDriverLat = Math.cos(driverLatRad);
+
+        if (count >= parallelThreshold) {
+            ForkJoinPool.commonPool().invoke(new RangeTask(roster, driverLatRad, driverLngRad, cosDriverLat, nowMillis, batch, indices, 0, count));
+            return;
+        }
+
+        evaluateRange(roster, driverLatRad, driverLngRad, cosDriverLat, nowMillis, batch, indices, 0, count);
+    }
+
+    // indices null = posições [from, to) do próprio roster
+    private static void evaluateRange(TravelRoster roster, double driverLatRad, double driverLngRad, double cosDriverLat,
+                                      long nowMillis, Batch batch, int[] indices, int from, int to) {
+        for (int k = from; k < to; k++) {
+            int i = indices == null ? k : indices[k];
+
+            if (!roster.hasPosition(i)) {
+                batch.distances[i] = Double.NaN;
+                batch.alerts[i] = NO_ALERT;
+                continue;
+            }
+
+            double sinHalfLat = Math.sin((roster.latitudeRad(i) - driverLatRad) * 0.5);
+            double sinHalfLng = Math.sin((roster.longitudeRad(i) - driverLngRad) * 0.5);
+            double a = sinHalfLat * sinHalfLat + cosDriverLat * roster.cosLatitude(i) * sinHalfLng * sinHalfLng;
+            double distance = 2 * EARTH_RADIUS_METERS * Math.asin(Math.sqrt(Math.min(1.0, a)));
+
+            byte zone = distance >= FAR_DISTANCE_METERS ? ZONE_FAR : ZONE_NEAR;
+            byte previousZone = batch.previousZones[i];
+            double previousDistance = batch.previousDistances[i];
+            long previousNotifiedAt = batch.previousNotifiedAt[i];
+
+            ProximityAlertType alert;
+            if (previousZone == ZONE_UNKNOWN) {
+                alert = ProximityAlertType.INITIAL_STATE;
+            } else if (previousZone == ZONE_CORRUPT) {
+                alert = ProximityAlertType.STATE_RECOVERY;
+            } else if (previousZone != zone) {
+                alert = ProximityAlertType.ZONE_CHANGED;
+            } else if (previousNotifiedAt == NOT_NOTIFIED || Double.isNaN(previousDistance)) {
+                alert = ProximityAlertType.STATE_RECOVERY;
+            } else if (nowMillis - previousNotifiedAt >= REPEAT_AFTER_MILLIS) {
+                alert = ProximityAlertType.TIME_ELAPSED;
+            } else if (Math.abs(distance - previousDistance) >= (zone == ZONE_FAR ? FAR_STEP_METERS : NEAR_STEP_METERS)) {
+                alert = ProximityAlertType.DISTANCE_STEP_REACHED;
+            } else {
+                alert = null;
+            }
+
+            batch.distances[i] = distance;
+            batch.zones[i] = zone;
+            batch.alerts[i] = alert == null ? NO_ALERT : (byte) alert.ordinal();
+        }
+    }
+
+    // cada tarefa escreve só nos índices da sua faixa (candidatos são distintos)
+    private static final class RangeTask extends RecursiveAction {
+        private final TravelRoster roster;
+        private final double driverLatRad;
+        private final double driverLngRad;
+        private final double cosDriverLat;
+        private final long nowMillis;
+        private final Batch batch;
+        private final int[] indices;
+        private final int from;
+        private final int to;
+
+        private RangeTask(TravelRoster roster, double driverLatRad, double driverLngRad, double cosDriverLat, long nowMillis, Batch batch, int[] indices, int from, int to) {
+            this.roster = roster;
+            this.driverLatRad = driverLatRad;
+            this.driverLngRad = driverLngRad;
+            this.cosDriverLat = cosDriverLat;
+            this.nowMillis = nowMillis;
+            this.batch = batch;
+            this.indices = indices;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MIN_PARALLEL_CHUNK) {
+                evaluateRange(roster, driverLatRad, driverLngRad, cosDriverLat, nowMillis, batch, indices, from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new RangeTask(roster, driverLatRad, driverLngRad, cosDriverLat, nowMillis, batch, indices, from, middle),
+                    new RangeTask(roster, driverLatRad, driverLngRad, cosDriverLat, nowMillis, batch, indices, middle, to));
+        }
+    }
+}
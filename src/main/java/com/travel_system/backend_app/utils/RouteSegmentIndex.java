@@ -0,0 +1,116 @@
+package com.travel_system.backend_app.utils;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.strtree.ItemBoundable;
+import org.locationtech.jts.index.strtree.STRtree;
+
+/*
+ * índice espacial (STRtree) dos segmentos da rota - construído uma vez por geometria
+ * as coordenadas são projetadas em metros (equiretangular na latitude média da rota)
+ * para que as distâncias do índice sejam comparáveis entre si
+ */
+public final class RouteSegmentIndex {
+
+    private static final double EARTH_RADIUS_METERS = 6371000;
+
+    private final double cosReferenceLat;
+    private final double[] x;
+    private final double[] y;
+    private final int segmentCount;
+    private final STRtree tree;
+
+    // segmento encontrado: índice, fração (0..1) ao longo do segmento e distância planar em metros
+    public record SegmentMatch(int segmentIndex, double fraction, double distanceMeters) {
+    }
+
+    public RouteSegmentIndex(double[] latitudes, double[] longitudes) {
+        double latSum = 0;
+        for (double latitude : latitudes) latSum += latitude;
+        double referenceLat = latitudes.length > 0 ? latSum / latitudes.length : 0;
+
+        this.cosReferenceLat = Math.cos(Math.toRadians(referenceLat));
+        this.x = new double[latitudes.length];
+        this.y = new double[latitudes.length];
+        this.segmentCount = Math.max(0, latitudes.length - 1);
+
+        for (int i = 0; i < latitudes.length; i++) {
+            x[i] = projectX(longitudes[i]);
+            y[i] = projectY(latitudes[i]);
+        }
+
+        this.tree = new STRtree();
+        for (int i = 0; i < segmentCount; i++) {
+            tree.insert(new Envelope(x[i], x[i + 1], y[i], y[i + 1]), i);
+        }
+        // constrói já na criação: depois disso o índice é só leitura (seguro entre threads)
+        tree.build();
+    }
+
+    // busca logarítmica do segmento mais próximo do ponto
+    public SegmentMatch nearestSegment(double latitude, double longitude) {
+        if (segmentCount == 0) return null;
+
+        double[] point = {projectX(longitude), projectY(latitude)};
+
+        Object nearest = tree.nearestNeighbour(new Envelope(point[0], point[0], point[1], point[1]), point,
+                (first, second) -> distanceToItem(first, second));
+
+        return nearest != null ? project((Integer) nearest, point[0], point[1]) : null;
+    }
+
+    // varredura apenas nos segmentos [fromSegment, toSegment] - janela curta em volta do último match
+    public SegmentMatch nearestSegmentInRange(double latitude, double longitude, int fromSegment, int toSegment) {
+        int from = Math.max(0, fromSegment);
+        int to = Math.min(segmentCount - 1, toSegment);
+        if (from > to) return null;
+
+        double px = projectX(longitude);
+        double py = projectY(latitude);
+
+        SegmentMatch best = null;
+        for (int i = from; i <= to; i++) {
+            SegmentMatch candidate = project(i, px, py);
+            if (best == null || candidate.distanceMeters() < best.distanceMeters()) best = candidate;
+        }
+        return best;
+    }
+
+    public int segmentCount() {
+        return segmentCount;
+    }
+
+    // projeção perpendicular do ponto no segmento, limitada às extremidades
+    private SegmentMatch project(int segment, double px, double py) {
+        double dx = x[segment + 1] - x[segment];
+        double dy = y[segment + 1] - y[segment];
+        double lengthSquared = dx * dx + dy * dy;
+
+        double t = lengthSquared == 0 ? 0 : ((px - x[segment]) * dx + (py - y[segment]) * dy) / lengthSquared;
+        if (t < 0) t = 0;
+        if (t > 1) t = 1;
+
+        double projX = x[segment] + t * dx;
+        double projY = y[segment] + t * dy;
+
+        return new SegmentMatch(segment, t, Math.hypot(px - projX, py - projY));
+    }
+
+    // um dos itens é o ponto consultado (double[]) e o outro o índice de um segmento
+    private double distanceToItem(ItemBoundable first, ItemBoundable second) {
+        Object firstItem = first.getItem();
+        Object secondItem = second.getItem();
+
+        double[] point = firstItem instanceof double[] p ? p : (double[]) secondItem;
+        int segment = firstItem instanceof Integer s ? s : (Integer) secondItem;
+
+        return project(segment, point[0], point[1]).distanceMeters();
+    }
+
+    private double projectX(double longitude) {
+        return EARTH_RADIUS_METERS * Math.toRadians(longitude) * cosReferenceLat;
+    }
+
+    private double projectY(double latitude) {
+        return EARTH_RADIUS_METERS * Math.toRadians(latitude);
+    }
+}
@@ -0,0 +1,134 @@
+package com.travel_system.backend_app.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+  Grade uniforme (células de N metros) sobre os pontos de embarque de uma viagem, guardando o índice do
+  aluno no TravelRoster. Projeção equiretangular fixa na origem da viagem: a consulta por raio só visita
+  as células que cobrem o círculo. Imutável; mover um aluno copia só as duas células envolvidas
+*/
+public final class StudentGridIndex {
+    private static final double METERS_PER_DEGREE = 6371000.0 * Math.PI / 180.0;
+    private static final int[] EMPTY_CELL = new int[0];
+
+    private final double cellMeters;
+    private final double originLat;
+    private final double originLng;
+    private final double metersPerDegreeLng;
+    private final Map<Long, int[]> cells;
+
+    private StudentGridIndex(double cellMeters, double originLat, double originLng, Map<Long, int[]> cells) {
+        this.cellMeters = cellMeters;
+        this.originLat = originLat;
+        this.originLng = originLng;
+        this.metersPerDegreeLng = METERS_PER_DEGREE * Math.cos(Math.toRadians(originLat));
+        this.cells = cells;
+    }
+
+    // coordenadas NaN (aluno sem posição) ficam fora da grade
+    public static StudentGridIndex build(double[] latitudes, double[] longitudes, double cellMeters) {
+        double originLat = 0.0;
+        double originLng = 0.0;
+        for (int i = 0; i < latitudes.length; i++) {
+            if (!Double.isNaN(latitudes[i])) {
+                originLat = latitudes[i];
+                originLng = longitudes[i];
+                break;
+            }
+        }
+
+        StudentGridIndex empty = new StudentGridIndex(cellMeters, originLat, originLng, Map.of());
+        Map<Long, List<Integer>> buckets = new HashMap<>();
+        for (int i = 0; i < latitudes.length; i++) {
+            if (Double.isNaN(latitudes[i])) continue;
+            buckets.computeIfAbsent(empty.cellKey(latitudes[i], longitudes[i]), key -> new ArrayList<>()).add(i);
+        }
+
+        Map<Long, int[]> cells = new HashMap<>(buckets.size() * 2);
+        buckets.forEach((key, members) -> cells.put(key, members.stream().mapToInt(Integer::intValue).toArray()));
+
+        return new StudentGridIndex(cellMeters, originLat, originLng, cells);
+    }
+
+    // nova grade com o aluno na célula da posição nova (posição antiga NaN = aluno ainda não estava na grade)
+    public StudentGridIndex move(int index, double oldLat, double oldLng, double newLat, double newLng) {
+        Map<Long, int[]> updated = new HashMap<>(cells);
+
+        if (!Double.isNaN(oldLat)) {
+            long oldKey = cellKey(oldLat, oldLng);
+            int[] members = updated.getOrDefault(oldKey, EMPTY_CELL);
+            int[] remaining = Arrays.stream(members).filter(member -> member != index).toArray();
+
+            if (remaining.length == 0) updated.remove(oldKey);
+            else updated.put(oldKey, remaining);
+        }
+
+        long newKey = cellKey(newLat, newLng);
+        int[] members = updated.getOrDefault(newKey, EMPTY_CELL);
+        int[] added = Arrays.copyOf(members, members.length + 1);
+        added[members.length] = index;
+        updated.put(newKey, added);
+
+        return new StudentGridIndex(cellMeters, originLat, originLng, updated);
+    }
+
+    // índices dos alunos das células que cobrem o raio (superconjunto do círculo); devolve quantos foram escritos
+    public int collectWithin(double latitude, double longitude, double radiusMeters, int[] out) {
+        if (cells.isEmpty()) return 0;
+
+        double deltaLat = radiusMeters / METERS_PER_DEGREE;
+        double deltaLng = radiusMeters / (METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(latitude)), 0.01));
+
+        int minX = cellX(longitude - deltaLng);
+        int maxX = cellX(longitude + deltaLng);
+        int minY = cellY(latitude - deltaLat);
+        int maxY = cellY(latitude + deltaLat);
+
+        int count = 0;
+
+        // raio grande demais para a grade: mais barato filtrar as células existentes
+        if ((long) (maxX - minX + 1) * (maxY - minY + 1) > cells.size()) {
+            for (Map.Entry<Long, int[]> cell : cells.entrySet()) {
+                int x = (int) (cell.getKey() >> 32);
+                int y = (int) (long) cell.getKey();
+                if (x < minX || x > maxX || y < minY || y > maxY) continue;
+
+                int[] members = cell.getValue();
+                System.arraycopy(members, 0, out, count, members.length);
+                count += members.length;
+            }
+            return count;
+        }
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                int[] members = cells.get(key(x, y));
+                if (members == null) continue;
+
+                System.arraycopy(members, 0, out, count, members.length);
+                count += members.length;
+            }
+        }
+        return count;
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        return key(cellX(longitude), cellY(latitude));
+    }
+
+    private int cellX(double longitude) {
+        return (int) Math.floor((longitude - originLng) * metersPerDegreeLng / cellMeters);
+    }
+
+    private int cellY(double latitude) {
+        return (int) Math.floor((latitude - originLat) * METERS_PER_DEGREE / cellMeters);
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+}
@@ -0,0 +1,88 @@
+package com.travel_system.backend_app.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * faixas seriais por viagem: o travelId sempre cai na mesma faixa (uma thread, fila limitada),
+ * então os pings de uma viagem são processados em ordem e nunca em paralelo, enquanto viagens
+ * diferentes seguem em paralelo nas outras faixas
+ */
+public class TravelLaneExecutor {
+
+    private final ThreadPoolExecutor[] lanes;
+    private final LongAdder droppedTasks = new LongAdder();
+
+    private static final Logger logger = LoggerFactory.getLogger(TravelLaneExecutor.class);
+
+    public TravelLaneExecutor(int laneCount, int queueCapacityPerLane) {
+        this.lanes = new ThreadPoolExecutor[laneCount];
+
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new ThreadPoolExecutor(
+                    1, 1,
+                    0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacityPerLane),
+                    laneThreadFactory(i),
+                    // faixa cheia: recusa a tarefa que chegou. A fila é compartilhada por várias viagens, então
+                    // tirar a mais antiga descartaria a tarefa de outra viagem. CallerRuns quebraria a ordem da viagem
+                    (task, executor) -> droppedTasks.increment());
+        }
+    }
+
+    public void execute(UUID travelId, Runnable task) {
+        lanes[laneOf(travelId)].execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // a exceção de um ping não pode derrubar a faixa inteira
+                logger.error("[TravelLane] Falha ao processar ping da viagem {}: {}", travelId, e.getMessage(), e);
+            }
+        });
+    }
+
+    public int laneOf(UUID travelId) {
+        return Math.floorMod(travelId.hashCode(), lanes.length);
+    }
+
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    // maior fila entre as faixas (viagem "quente" ou faixa travada)
+    public int maxQueueSize() {
+        int max = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            max = Math.max(max, lane.getQueue().size());
+        }
+        return max;
+    }
+
+    public long droppedTasks() {
+        return droppedTasks.sum();
+    }
+
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    private static ThreadFactory laneThreadFactory(int laneIndex) {
+        AtomicInteger counter = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, "Travel-Lane-" + laneIndex + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
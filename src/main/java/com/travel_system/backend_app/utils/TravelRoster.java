@@ -0,0 +1,136 @@
+package com.travel_system.backend_app.utils;
+
+import com.travel_system.backend_app.model.dtos.RosterEntryDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/*
+  Fotografia imutável dos alunos de uma viagem e dos pontos de embarque em arrays paralelos.
+  Aluno sem posição fica com NaN nas coordenadas; a avaliação de proximidade só percorre os arrays.
+  Latitude em radianos e cos(lat) já vêm calculados para o haversine do ProximityKernel, e a grade
+  (StudentGridIndex) deixa a consulta por raio visitar só os alunos próximos do ônibus
+*/
+public final class TravelRoster {
+    private final UUID[] studentIds;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] latitudesRad;
+    private final double[] longitudesRad;
+    private final double[] cosLatitudes;
+    private final List<UUID> positionedStudentIds;
+    private final StudentGridIndex grid;
+
+    private TravelRoster(UUID[] studentIds, double[] latitudes, double[] longitudes, double[] latitudesRad,
+                         double[] longitudesRad, double[] cosLatitudes, List<UUID> positionedStudentIds, StudentGridIndex grid) {
+        this.studentIds = studentIds;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.latitudesRad = latitudesRad;
+        this.longitudesRad = longitudesRad;
+        this.cosLatitudes = cosLatitudes;
+        this.positionedStudentIds = positionedStudentIds;
+        this.grid = grid;
+    }
+
+    public static TravelRoster of(List<RosterEntryDTO> entries, double gridCellMeters) {
+        int size = entries.size();
+        UUID[] studentIds = new UUID[size];
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        double[] latitudesRad = new double[size];
+        double[] longitudesRad = new double[size];
+        double[] cosLatitudes = new double[size];
+        List<UUID> positioned = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            RosterEntryDTO entry = entries.get(i);
+            boolean hasPosition = entry.latitude() != null && entry.longitude() != null;
+
+            studentIds[i] = entry.studentId();
+            latitudes[i] = hasPosition ? entry.latitude() : Double.NaN;
+            longitudes[i] = hasPosition ? entry.longitude() : Double.NaN;
+            latitudesRad[i] = Math.toRadians(latitudes[i]);
+            longitudesRad[i] = Math.toRadians(longitudes[i]);
+            cosLatitudes[i] = Math.cos(latitudesRad[i]);
+            if (hasPosition) positioned.add(studentIds[i]);
+        }
+
+        return new TravelRoster(studentIds, latitudes, longitudes, latitudesRad, longitudesRad, cosLatitudes,
+                List.copyOf(positioned), StudentGridIndex.build(latitudes, longitudes, gridCellMeters));
+    }
+
+    // roster novo só com o ponto de embarque do aluno trocado (sem recarregar do banco); null se o aluno não está nele
+    public TravelRoster withPosition(UUID studentId, double latitude, double longitude) {
+        int index = Arrays.asList(studentIds).indexOf(studentId);
+        if (index < 0) return null;
+
+        double[] newLatitudes = latitudes.clone();
+        double[] newLongitudes = longitudes.clone();
+        double[] newLatitudesRad = latitudesRad.clone();
+        double[] newLongitudesRad = longitudesRad.clone();
+        double[] newCosLatitudes = cosLatitudes.clone();
+
+        newLatitudes[index] = latitude;
+        newLongitudes[index] = longitude;
+        newLatitudesRad[index] = Math.toRadians(latitude);
+        newLongitudesRad[index] = Math.toRadians(longitude);
+        newCosLatitudes[index] = Math.cos(newLatitudesRad[index]);
+
+        List<UUID> positioned = positionedStudentIds;
+        if (!hasPosition(index)) {
+            List<UUID> added = new ArrayList<>(positionedStudentIds);
+            added.add(studentId);
+            positioned = List.copyOf(added);
+        }
+
+        StudentGridIndex movedGrid = grid.move(index, latitudes[index], longitudes[index], latitude, longitude);
+
+        return new TravelRoster(studentIds, newLatitudes, newLongitudes, newLatitudesRad, newLongitudesRad,
+                newCosLatitudes, positioned, movedGrid);
+    }
+
+    public int size() {
+        return studentIds.length;
+    }
+
+    public UUID studentId(int index) {
+        return studentIds[index];
+    }
+
+    public double latitude(int index) {
+        return latitudes[index];
+    }
+
+    public double longitude(int index) {
+        return longitudes[index];
+    }
+
+    public boolean hasPosition(int index) {
+        return !Double.isNaN(latitudes[index]);
+    }
+
+    // só quem já enviou o ponto de embarque participa da proximidade
+    public List<UUID> positionedStudentIds() {
+        return positionedStudentIds;
+    }
+
+    // alunos com ponto de embarque nas células que cobrem o raio; out precisa comportar size()
+    public int collectWithin(double latitude, double longitude, double radiusMeters, int[] out) {
+        return grid.collectWithin(latitude, longitude, radiusMeters, out);
+    }
+
+    double latitudeRad(int index) {
+        return latitudesRad[index];
+    }
+
+    double longitudeRad(int index) {
+        return longitudesRad[index];
+    }
+
+    double cosLatitude(int index) {
+        return cosLatitudes[index];
+    }
+}
@@ -0,0 +1,73 @@
+-- aplica um ping completo na hash da viagem em uma única ida ao redis (atômico)
+-- KEYS[1] = travelId:<id>
+-- ARGV[1..2]  = lat, lng (posição atual do motorista)
+-- ARGV[3..6]  = distanceRemaining, durationRemaining, geometry, status
+-- ARGV[7]     = timestamp (epoch ms do servidor)
+-- ARGV[8..11] = movementState, stateStartedAt, lastNotificationSendAt, lastEtaNotificationAt
+-- argumentos vazios são ignorados, mantendo o valor que já está na hash
+-- retorna a distância acumulada da viagem
+
+local key = KEYS[1]
+local EARTH_RADIUS_METERS = 6371000
+
+local function haversine(lat1, lng1, lat2, lng2)
+    local lat1Rad = math.rad(lat1)
+    local lat2Rad = math.rad(lat2)
+    local deltaLat = lat2Rad - lat1Rad
+    local deltaLng = math.rad(lng2 - lng1)
+
+    local a = math.sin(deltaLat / 2) ^ 2 + math.cos(lat1Rad) * math.cos(lat2Rad) * math.sin(deltaLng / 2) ^ 2
+    return EARTH_RADIUS_METERS * 2 * math.atan2(math.sqrt(a), math.sqrt(1 - a))
+end
+
+local function setIfPresent(field, value)
+    if value ~= nil and value ~= '' then
+        redis.call('HSET', key, field, value)
+    end
+end
+
+local accumulated = tonumber(redis.call('HGET', key, 'accumulatedDistance')) or 0
+
+-- posição + distância acumulada (a partir da última posição conhecida)
+-- sem lat/lng (escrita só de ETA/status) a posição e a distância acumulada ficam como estão
+local lat = tonumber(ARGV[1])
+local lng = tonumber(ARGV[2])
+if lat ~= nil and lng ~= nil then
+    local previous = redis.call('HMGET', key, 'lat', 'lng', 'last_calc_lat', 'last_calc_lng')
+    local oldLat = tonumber(previous[1]) or tonumber(previous[3])
+    local oldLng = tonumber(previous[2]) or tonumber(previous[4])
+
+    if oldLat ~= nil and oldLng ~= nil then
+        accumulated = accumulated + haversine(oldLat, oldLng, lat, lng)
+    end
+
+    redis.call('HSET', key,
+            'lat', ARGV[1],
+            'lng', ARGV[2],
+            'last_calc_lat', ARGV[1],
+            'last_calc_lng', ARGV[2],
+            'accumulatedDistance', tostring(accumulated))
+end
+
+-- ETA, distância restante, rota e status
+setIfPresent('distanceRemaining', ARGV[3])
+setIfPresent('durationRemaining', ARGV[4])
+setIfPresent('geometry', ARGV[5])
+setIfPresent('status', ARGV[6])
+setIfPresent('timestamp', ARGV[7])
+
+-- estado de movimento: stateStartedAt só muda quando o estado muda
+local movementState = ARGV[8]
+if movementState ~= nil and movementState ~= '' then
+    local currentState = redis.call('HGET', key, 'movementState')
+
+    redis.call('HSET', key, 'movementState', movementState)
+    if currentState ~= movementState then
+        setIfPresent('stateStartedAt', ARGV[9])
+    end
+end
+
+setIfPresent('lastNotificationSendAt', ARGV[10])
+setIfPresent('lastEtaNotificationAt', ARGV[11])
+
+return tostring(accumulated)
@@ -0,0 +1,85 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.model.Travel;
+import com.travel_system.backend_app.model.dtos.ActiveTravelSnapshotDTO;
+import com.travel_system.backend_app.model.enums.TravelStatus;
+import com.travel_system.backend_app.repository.TravelRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActiveTravelRegistryServiceTest {
+    @Mock
+    private TravelRepository travelRepository;
+    @Mock
+    private RedisTrackingService redisTrackingService;
+    @Mock
+    private Clock clock;
+
+    private final UUID travelId = UUID.randomUUID();
+    private ActiveTravelRegistryService activeTravelRegistryService;
+
+    @BeforeEach
+    void setUp() {
+        // reconfere a entrada depois de 30 s
+        activeTravelRegistryService = new ActiveTravelRegistryService(travelRepository, redisTrackingService, clock, 30);
+    }
+
+    private ActiveTravelSnapshotDTO snapshot() {
+        return new ActiveTravelSnapshotDTO(travelId, TravelStatus.TRAVELLING, -23.50, -46.60, "polyline", 5000.0, 600.0, "sao_paulo");
+    }
+
+    @Nested
+    class find {
+        @Test
+        @DisplayName("Should serve a recently verified entry without touching Redis or the database")
+        void shouldServeFreshEntry() {
+            when(clock.millis()).thenReturn(0L, 10_000L);
+            activeTravelRegistryService.register(snapshot());
+
+            assertTrue(activeTravelRegistryService.find(travelId).isPresent());
+            verifyNoInteractions(redisTrackingService, travelRepository);
+        }
+
+        @Test
+        @DisplayName("Should drop a stale entry whose trip left the active set after a lost invalidation")
+        void shouldDropEntryMissingFromActiveSet() {
+            Travel finished = new Travel();
+            finished.setId(travelId);
+            finished.setTravelStatus(TravelStatus.FINISH);
+
+            when(clock.millis()).thenReturn(0L, 31_000L);
+            when(redisTrackingService.isActiveTravel(travelId)).thenReturn(false);
+            when(travelRepository.findById(travelId)).thenReturn(Optional.of(finished));
+            activeTravelRegistryService.register(snapshot());
+
+            assertTrue(activeTravelRegistryService.find(travelId).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should keep a stale entry that is still in the active set")
+        void shouldKeepEntryStillActive() {
+            when(clock.millis()).thenReturn(0L, 31_000L, 32_000L);
+            when(redisTrackingService.isActiveTravel(travelId)).thenReturn(true);
+            activeTravelRegistryService.register(snapshot());
+
+            assertTrue(activeTravelRegistryService.find(travelId).isPresent());
+            // reconferida há 1 s: não volta ao redis
+            assertTrue(activeTravelRegistryService.find(travelId).isPresent());
+            verify(redisTrackingService, times(1)).isActiveTravel(travelId);
+            verifyNoInteractions(travelRepository);
+        }
+    }
+}
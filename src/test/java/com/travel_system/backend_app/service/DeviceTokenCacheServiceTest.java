@@ -0,0 +1,83 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.model.dtos.ActiveTravelSnapshotDTO;
+import com.travel_system.backend_app.model.dtos.StudentDeviceTokenDTO;
+import com.travel_system.backend_app.repository.StudentRepository;
+import com.travel_system.backend_app.repository.StudentTravelRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceTokenCacheServiceTest {
+    @Mock
+    private StudentRepository studentRepository;
+    @Mock
+    private StudentTravelRepository studentTravelRepository;
+    @Mock
+    private ActiveTravelRegistryService activeTravelRegistryService;
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @InjectMocks
+    private DeviceTokenCacheService deviceTokenCacheService;
+
+    private final UUID travelId = UUID.randomUUID();
+    private final UUID firstStudent = UUID.randomUUID();
+    private final UUID secondStudent = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(activeTravelRegistryService.find(travelId)).thenReturn(Optional.of(mock(ActiveTravelSnapshotDTO.class)));
+    }
+
+    @Nested
+    class activeTokens {
+        @Test
+        @DisplayName("Should warm the trip at start and serve the alerts without querying the tokens again")
+        void shouldServeWarmedTokens() {
+            when(studentTravelRepository.findStudentIdsByTravelIdAndDisembarkHourIsNull(travelId)).thenReturn(List.of(firstStudent, secondStudent));
+            when(studentRepository.findActiveTokensByStudentIds(List.of(firstStudent, secondStudent))).thenReturn(List.of(
+                    new StudentDeviceTokenDTO(firstStudent, "phone")));
+
+            deviceTokenCacheService.warm(travelId);
+            List<StudentDeviceTokenDTO> tokens = deviceTokenCacheService.activeTokens(travelId, List.of(firstStudent, secondStudent));
+
+            assertEquals(List.of(new StudentDeviceTokenDTO(firstStudent, "phone")), tokens);
+            verify(studentRepository, times(1)).findActiveTokensByStudentIds(anyList());
+        }
+
+        @Test
+        @DisplayName("Should reload only the student whose token changed and drop deactivated tokens on every instance")
+        void shouldInvalidate() {
+            when(studentRepository.findActiveTokensByStudentIds(List.of(firstStudent, secondStudent))).thenReturn(List.of(
+                    new StudentDeviceTokenDTO(firstStudent, "phone"),
+                    new StudentDeviceTokenDTO(secondStudent, "tablet")));
+            when(studentRepository.findActiveTokensByStudentIds(List.of(firstStudent))).thenReturn(List.of(
+                    new StudentDeviceTokenDTO(firstStudent, "new-phone")));
+            deviceTokenCacheService.activeTokens(travelId, List.of(firstStudent, secondStudent));
+
+            deviceTokenCacheService.evictStudent(firstStudent);
+            deviceTokenCacheService.removeTokens(Map.of("tablet", secondStudent));
+
+            assertEquals(List.of(new StudentDeviceTokenDTO(firstStudent, "new-phone")),
+                    deviceTokenCacheService.activeTokens(travelId, List.of(firstStudent, secondStudent)));
+            verify(redisTemplate).convertAndSend(DeviceTokenCacheService.INVALIDATION_CHANNEL, firstStudent.toString());
+            verify(redisTemplate).convertAndSend(DeviceTokenCacheService.INVALIDATION_CHANNEL, secondStudent.toString());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.config.RabbitMQConfig;
+import com.travel_system.backend_app.model.TravelLocationHistory;
+import com.travel_system.backend_app.model.dtos.request.GpsBatchPingDTO;
+import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
+import com.travel_system.backend_app.model.dtos.route.GpsPayload;
+import com.travel_system.backend_app.repository.TravelLocationHistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GpsDataIngestorServiceTest {
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+    @Mock
+    private RabbitOperations rabbitOperations;
+    @Mock
+    private RedisTrackingService redisTrackingService;
+    @Mock
+    private TravelLocationHistoryRepository travelLocationHistoryRepository;
+    @Mock
+    private TravelTrackingService travelTrackingService;
+
+    private final UUID travelId = UUID.randomUUID();
+    private final String city = UUID.randomUUID().toString();
+    private GpsDataIngestorService gpsDataIngestorService;
+
+    @BeforeEach
+    void setUp() {
+        gpsDataIngestorService = new GpsDataIngestorService(rabbitTemplate, redisTrackingService,
+                new TravelHistoryPingsService(travelLocationHistoryRepository), travelTrackingService, 5000);
+    }
+
+    @Nested
+    class sendVehicleGpsBatch {
+        @Test
+        @DisplayName("Should publish the valid pings in device-time order under one confirm and checkpoint only the newest")
+        @SuppressWarnings("unchecked")
+        void shouldPublishOrderedBatch() {
+            when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                    ((RabbitOperations.OperationsCallback<Object>) invocation.getArgument(0)).doInRabbit(rabbitOperations));
+
+            List<GpsBatchPingDTO> pings = List.of(
+                    new GpsBatchPingDTO(-23.52, -46.60, 9.0, 0.0, 3_000L),
+                    new GpsBatchPingDTO(null, -46.60, 9.0, 0.0, 4_000L),
+                    new GpsBatchPingDTO(-23.50, -46.60, 9.0, 0.0, 1_000L),
+                    new GpsBatchPingDTO(-23.51, -46.60, 9.0, 0.0, null),
+                    new GpsBatchPingDTO(-23.51, -46.60, 9.0, 0.0, 2_000L));
+
+            gpsDataIngestorService.sendVehicleGpsBatch(city, travelId.toString(), pings);
+
+            // publicados na ordem do aparelho e confirmados de uma vez no fim
+            ArgumentCaptor<Object> payloads = ArgumentCaptor.forClass(Object.class);
+            InOrder inOrder = inOrder(rabbitOperations);
+            inOrder.verify(rabbitOperations, times(3)).convertAndSend(eq(RabbitMQConfig.EXCHANGE_GPS_NAME), anyString(), payloads.capture(), any(MessagePostProcessor.class));
+            inOrder.verify(rabbitOperations).waitForConfirmsOrDie(5000);
+            assertEquals(List.of(Instant.ofEpochMilli(1_000), Instant.ofEpochMilli(2_000), Instant.ofEpochMilli(3_000)),
+                    payloads.getAllValues().stream().map(payload -> ((GpsPayload) payload).timestamp()).toList());
+
+            ArgumentCaptor<List<TravelLocationHistory>> history = ArgumentCaptor.forClass(List.class);
+            verify(travelLocationHistoryRepository).saveAll(history.capture());
+            assertEquals(3, history.getValue().size());
+
+            ArgumentCaptor<VehicleLocationRequestDTO> checkpoint = ArgumentCaptor.forClass(VehicleLocationRequestDTO.class);
+            verify(travelTrackingService, times(1)).markDriverCheckpoint(checkpoint.capture(), eq(3_000L));
+            assertEquals(-23.52, checkpoint.getValue().latitude(), 1e-9);
+        }
+    }
+}
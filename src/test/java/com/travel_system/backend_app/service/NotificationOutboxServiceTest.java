@@ -0,0 +1,68 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.model.dtos.ProximityNotificationDTO;
+import com.travel_system.backend_app.model.dtos.TravelNotificationEventDTO;
+import com.travel_system.backend_app.model.enums.MovementState;
+import com.travel_system.backend_app.model.enums.Priority;
+import com.travel_system.backend_app.utils.FirebaseNotificationSender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationOutboxServiceTest {
+    @Mock
+    private FirebaseNotificationSender firebaseNotificationSender;
+
+    private NotificationOutboxService notificationOutboxService;
+
+    private final UUID travelId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        // janela longa: o teste decide quando esvaziar
+        notificationOutboxService = new NotificationOutboxService(firebaseNotificationSender, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        notificationOutboxService.shutdown();
+    }
+
+    @Nested
+    class flush {
+        @Test
+        @DisplayName("Should send one multicast per distinct movement alert and only the latest proximity per student")
+        void shouldFlushInBatches() {
+            UUID firstStudent = UUID.randomUUID();
+            UUID secondStudent = UUID.randomUUID();
+
+            notificationOutboxService.enqueueMovement(travelId, List.of(firstStudent, secondStudent), MovementState.SLOW, Priority.NORMAL, "Alerta de ônibus LENTO. Fique atento.", UUID.randomUUID());
+            notificationOutboxService.enqueueMovement(travelId, List.of(firstStudent, secondStudent), MovementState.STOPPED, Priority.NORMAL, "Alerta de ônibus PARADO. Fique atento.", UUID.randomUUID());
+            notificationOutboxService.enqueueProximity(new ProximityNotificationDTO(firstStudent, travelId, 230.0, "NEAR", "DISTANCE_STEP_REACHED", "t1"));
+            notificationOutboxService.enqueueProximity(new ProximityNotificationDTO(firstStudent, travelId, 200.0, "NEAR", "DISTANCE_STEP_REACHED", "t2"));
+
+            notificationOutboxService.flush();
+
+            ArgumentCaptor<TravelNotificationEventDTO> movement = ArgumentCaptor.forClass(TravelNotificationEventDTO.class);
+            verify(firebaseNotificationSender, times(1)).pushTravelNotification(movement.capture());
+            assertEquals(MovementState.STOPPED, movement.getValue().movementState());
+            assertEquals(2, movement.getValue().studentIds().size());
+
+            verify(firebaseNotificationSender).pushProximityNotifications(List.of(
+                    new ProximityNotificationDTO(firstStudent, travelId, 200.0, "NEAR", "DISTANCE_STEP_REACHED", "t2")));
+        }
+    }
+}
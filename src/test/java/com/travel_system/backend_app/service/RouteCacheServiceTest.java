@@ -0,0 +1,105 @@
+package com.travel_system.backend_app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.travel_system.backend_app.model.dtos.mapboxApi.RouteDetailsDTO;
+import com.travel_system.backend_app.model.dtos.response.RouteCacheStatsDTO;
+import com.travel_system.backend_app.utils.GeoHash;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteCacheServiceTest {
+
+    private final RouteDetailsDTO route = new RouteDetailsDTO(600.0, 5000.0, "polyline");
+
+    private MutableClock clock;
+    private RouteCacheService routeCacheService;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2025-01-01T08:00:00Z"));
+        // tier redis desligado: só o cache em memória
+        routeCacheService = new RouteCacheService(null, new ObjectMapper(), clock, 7, 10, 60, 50, false);
+    }
+
+    @Test
+    @DisplayName("Geohash should match the reference encoding")
+    void shouldEncodeGeohash() {
+        assertEquals("ezs42", GeoHash.encode(42.605, -5.603, 5));
+    }
+
+    @Nested
+    class get {
+        @Test
+        @DisplayName("Should hit for a nearby origin in the same cell and count hits and misses")
+        void shouldHitNearbyOrigin() {
+            assertNull(routeCacheService.get(-46.63300, -23.55070, -46.60000, -23.50000));
+            routeCacheService.put(-46.63300, -23.55070, -46.60000, -23.50000, route);
+
+            // ~11 m de distância da origem que gerou a rota
+            assertEquals(route, routeCacheService.get(-46.63300, -23.55080, -46.60000, -23.50000));
+
+            RouteCacheStatsDTO stats = routeCacheService.stats();
+            assertEquals(1, stats.localHits());
+            assertEquals(1, stats.misses());
+        }
+
+        @Test
+        @DisplayName("Should miss when the cached origin is too far from the requested one")
+        void shouldMissFarOrigin() {
+            routeCacheService.put(-46.63300, -23.55070, -46.60000, -23.50000, route);
+
+            String sameCell = GeoHash.encode(-23.55070, -46.63300, 7);
+            // ~120 m de distância, ainda na mesma célula de precisão 7
+            double farLat = -23.55180;
+            assertEquals(sameCell, GeoHash.encode(farLat, -46.63300, 7));
+
+            assertNull(routeCacheService.get(-46.63300, farLat, -46.60000, -23.50000));
+        }
+
+        @Test
+        @DisplayName("Should expire entries after the TTL")
+        void shouldExpireAfterTtl() {
+            routeCacheService.put(-46.63300, -23.55070, -46.60000, -23.50000, route);
+
+            clock.advance(Duration.ofMinutes(61));
+
+            assertNull(routeCacheService.get(-46.63300, -23.55070, -46.60000, -23.50000));
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
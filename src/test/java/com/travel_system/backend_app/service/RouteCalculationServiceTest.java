@@ -0,0 +1,136 @@
+package com.travel_system.backend_app.service;
+
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.utils.PolylineUtils;
+import com.travel_system.backend_app.model.dtos.mapboxApi.RouteDeviationDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteCalculationServiceTest {
+
+    private RouteCalculationService routeCalculationService;
+    private List<Point> routePoints;
+    private String polyline;
+
+    @BeforeEach
+    void setUp() {
+        routeCalculationService = new RouteCalculationService(new RouteGeometryCacheService(new PolylineService(), 10));
+
+        // rota intermunicipal em zigue-zague com milhares de vértices
+        routePoints = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            double lat = -23.55 + i * 0.0004;
+            double lng = -46.63 + (i % 2 == 0 ? 0 : 0.0003) + i * 0.0001;
+            routePoints.add(Point.fromLngLat(lng, lat));
+        }
+        polyline = PolylineUtils.encode(routePoints, 5);
+        routePoints = PolylineUtils.decode(polyline, 5);
+    }
+
+    @Nested
+    class isRouteDeviation {
+        @Test
+        @DisplayName("Spatial index should find the same nearest distance as a full linear scan")
+        void shouldMatchLinearScan() {
+            UUID travelId = UUID.randomUUID();
+            Random random = new Random(42);
+
+            for (int i = 0; i < 200; i++) {
+                Point base = routePoints.get(random.nextInt(routePoints.size()));
+                double lat = base.latitude() + (random.nextDouble() - 0.5) * 0.002;
+                double lng = base.longitude() + (random.nextDouble() - 0.5) * 0.002;
+
+                RouteDeviationDTO deviation = routeCalculationService.isRouteDeviation(travelId, lat, lng, polyline);
+
+                assertEquals(bruteForceDistance(lat, lng), deviation.distanceToRouteMeters(), 0.5);
+            }
+        }
+
+        @Test
+        @DisplayName("Should flag off route beyond tolerance and expose the matched segment")
+        void shouldDetectOffRouteAndMatchedSegment() {
+            UUID travelId = UUID.randomUUID();
+            Point vertex = routePoints.get(1500);
+
+            RouteDeviationDTO onRoute = routeCalculationService.isRouteDeviation(travelId, vertex.latitude(), vertex.longitude(), polyline);
+            RouteDeviationDTO offRoute = routeCalculationService.isRouteDeviation(travelId, vertex.latitude(), vertex.longitude() + 0.01, polyline);
+
+            assertFalse(onRoute.isOffRoute());
+            assertTrue(onRoute.matchedSegmentIndex() == 1499 || onRoute.matchedSegmentIndex() == 1500);
+            assertEquals(vertex.latitude(), onRoute.nearestPointLat(), 1e-9);
+            assertTrue(offRoute.isOffRoute());
+        }
+    }
+
+    // varredura linear de referência: projeção exata em plano local (metros) em cada segmento
+    @Nested
+    class incrementalMatching {
+        @Test
+        @DisplayName("Progress along route should grow and remaining distance shrink as the bus advances")
+        void shouldTrackProgressAlongRoute() {
+            UUID travelId = UUID.randomUUID();
+
+            double lastProgress = -1;
+            double lastRemaining = Double.MAX_VALUE;
+            for (int i = 0; i < routePoints.size() - 1; i += 7) {
+                Point position = routePoints.get(i);
+
+                RouteDeviationDTO deviation = routeCalculationService.isRouteDeviation(travelId, position.latitude(), position.longitude(), polyline);
+
+                assertFalse(deviation.isOffRoute());
+                assertTrue(deviation.distanceAlongRouteMeters() > lastProgress);
+                assertTrue(deviation.distanceRemainingMeters() < lastRemaining);
+
+                lastProgress = deviation.distanceAlongRouteMeters();
+                lastRemaining = deviation.distanceRemainingMeters();
+            }
+        }
+
+        @Test
+        @DisplayName("Should fall back to a global search when the bus jumps outside the forward window")
+        void shouldFallbackToGlobalSearch() {
+            UUID travelId = UUID.randomUUID();
+            Point start = routePoints.get(10);
+            Point farAhead = routePoints.get(2500);
+
+            routeCalculationService.isRouteDeviation(travelId, start.latitude(), start.longitude(), polyline);
+            RouteDeviationDTO jumped = routeCalculationService.isRouteDeviation(travelId, farAhead.latitude(), farAhead.longitude(), polyline);
+
+            assertFalse(jumped.isOffRoute());
+            assertTrue(jumped.matchedSegmentIndex() >= 2499);
+        }
+    }
+
+    private double bruteForceDistance(double lat, double lng) {
+        double metersPerDegLat = 111_195.0;
+        double metersPerDegLng = metersPerDegLat * Math.cos(Math.toRadians(lat));
+        double min = Double.MAX_VALUE;
+
+        for (int i = 0; i < routePoints.size() - 1; i++) {
+            Point a = routePoints.get(i);
+            Point b = routePoints.get(i + 1);
+
+            double ax = (a.longitude() - lng) * metersPerDegLng;
+            double ay = (a.latitude() - lat) * metersPerDegLat;
+            double bx = (b.longitude() - lng) * metersPerDegLng;
+            double by = (b.latitude() - lat) * metersPerDegLat;
+
+            double dx = bx - ax;
+            double dy = by - ay;
+            double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared));
+
+            min = Math.min(min, Math.hypot(ax + t * dx, ay + t * dy));
+        }
+        return min;
+    }
+}
@@ -0,0 +1,64 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.model.dtos.mapboxApi.RouteDeviationDTO;
+import com.travel_system.backend_app.model.dtos.mapboxApi.RouteProgressDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteProgressServiceTest {
+
+    private final PingWindowService pingWindowService = new PingWindowService(16, 15);
+    private final RouteProgressService routeProgressService = new RouteProgressService(pingWindowService);
+
+    // rota de 10 km, veículo projetado a "alongRoute" metros do início
+    private RouteDeviationDTO progressAt(double alongRoute) {
+        return new RouteDeviationDTO(2.0, false, 0.0, 0.0, 0, alongRoute, 10_000.0 - alongRoute);
+    }
+
+    @Nested
+    class estimate {
+        @Test
+        @DisplayName("Should use the planned average speed before any movement is observed")
+        void shouldFallBackToPlannedSpeed() {
+            RouteProgressDTO progress = routeProgressService.estimate(UUID.randomUUID(), progressAt(0.0), 10_000.0, 1_000.0);
+
+            assertEquals(10_000.0, progress.distanceRemaining(), 1e-9);
+            assertEquals(1_000.0, progress.durationRemaining(), 1e-9);
+        }
+
+        @Test
+        @DisplayName("Should derive the ETA from the ping window average speed")
+        void shouldUseWindowSpeed() {
+            UUID travelId = UUID.randomUUID();
+
+            // 150 m a cada 10 s = 15 m/s, mais rápido que o planejado (10 m/s)
+            double degreesPerStep = 150.0 / (6371000.0 * Math.PI / 180.0);
+            for (int i = 0; i <= 10; i++) {
+                pingWindowService.record(travelId, -23.55 + i * degreesPerStep, -46.63, 15.0, 0.0, i * 10_000L);
+            }
+            RouteProgressDTO progress = routeProgressService.estimate(travelId, progressAt(1_650.0), 10_000.0, 1_000.0);
+
+            assertEquals(15.0, progress.speed(), 1e-2);
+            assertEquals(8_350.0 / 15.0, progress.durationRemaining(), 1.0);
+            assertEquals(8_350.0, routeProgressService.lastDistanceRemaining(travelId), 1e-9);
+        }
+
+        @Test
+        @DisplayName("Should fall back to the planned speed when the vehicle is stopped")
+        void shouldIgnoreUnreliableSpeed() {
+            UUID travelId = UUID.randomUUID();
+
+            for (int i = 0; i <= 5; i++) {
+                pingWindowService.record(travelId, -23.55, -46.63, 0.0, 0.0, i * 10_000L);
+            }
+            RouteProgressDTO progress = routeProgressService.estimate(travelId, progressAt(1_000.0), 10_000.0, 1_000.0);
+
+            assertEquals(9_000.0 / 10.0, progress.durationRemaining(), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.model.dtos.ActiveTravelSnapshotDTO;
+import com.travel_system.backend_app.model.dtos.mapboxApi.RouteDetailsDTO;
+import com.travel_system.backend_app.model.dtos.mapboxApi.RouteDeviationDTO;
+import com.travel_system.backend_app.model.dtos.response.RerouteStatsDTO;
+import com.travel_system.backend_app.model.enums.RerouteDecision;
+import com.travel_system.backend_app.model.enums.TravelStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RouteRecalculationServiceTest {
+    @Mock
+    private MapboxAPIService mapboxAPIService;
+    @Mock
+    private RedisTrackingService redisTrackingService;
+    @Mock
+    private RouteGeometryCacheService routeGeometryCacheService;
+
+    private final Clock clock = Clock.fixed(Instant.parse("2025-01-01T08:00:00Z"), ZoneOffset.UTC);
+    private RouteRecalculationService routeRecalculationService;
+
+    @BeforeEach
+    void setUp() {
+        // 3 pings consecutivos ou 150 m fora da rota; orçamento de 2 chamadas, 1 a cada 60 s
+        routeRecalculationService = new RouteRecalculationService(
+                mapboxAPIService, redisTrackingService, routeGeometryCacheService, clock, 3, 150, 2, 60);
+    }
+
+    private RouteDeviationDTO offRoute() {
+        return new RouteDeviationDTO(80.0, true, 0.0, 0.0, 0, 0.0, 5000.0);
+    }
+
+    private RouteDeviationDTO onRoute() {
+        return new RouteDeviationDTO(5.0, false, 0.0, 0.0, 0, 0.0, 5000.0);
+    }
+
+    private ActiveTravelSnapshotDTO travel() {
+        return new ActiveTravelSnapshotDTO(UUID.randomUUID(), TravelStatus.TRAVELLING, -23.50, -46.60, "polyline", 5000.0, 600.0, "sao_paulo");
+    }
+
+    @Nested
+    class recalculate {
+        @Test
+        @DisplayName("Concurrent callers should share a single in-flight Mapbox call")
+        void shouldCoalesceConcurrentCallers() {
+            ActiveTravelSnapshotDTO travel = travel();
+            CompletableFuture<RouteDetailsDTO> mapboxResponse = new CompletableFuture<>();
+            RouteDetailsDTO route = new RouteDetailsDTO(600.0, 5000.0, "polyline");
+
+            when(mapboxAPIService.recalculateETAAsync(any(), any(), any(), any())).thenReturn(mapboxResponse);
+            when(redisTrackingService.isActiveTravel(travel.travelId())).thenReturn(true);
+
+            CompletableFuture<RouteDetailsDTO> first = routeRecalculationService.recalculate(travel, -23.55, -46.63);
+            CompletableFuture<RouteDetailsDTO> second = routeRecalculationService.recalculate(travel, -23.55, -46.63);
+
+            mapboxResponse.complete(route);
+
+            assertSame(first, second);
+            assertEquals(route, second.join());
+            verify(mapboxAPIService, times(1)).recalculateETAAsync(any(), any(), any(), any());
+            verify(redisTrackingService, times(1)).applyPing(eq(travel.travelId()), any());
+        }
+
+        @Test
+        @DisplayName("Should start a new recalculation once the previous one has finished")
+        void shouldRecalculateAgainAfterCompletion() {
+            ActiveTravelSnapshotDTO travel = travel();
+
+            when(mapboxAPIService.recalculateETAAsync(any(), any(), any(), any()))
+                    .thenReturn(CompletableFuture.completedFuture(new RouteDetailsDTO(600.0, 5000.0, "polyline")));
+
+            routeRecalculationService.recalculate(travel, -23.55, -46.63).join();
+            routeRecalculationService.recalculate(travel, -23.55, -46.63).join();
+
+            verify(mapboxAPIService, times(2)).recalculateETAAsync(any(), any(), any(), any());
+            // viagem não está mais ativa: nada é gravado no redis
+            verify(redisTrackingService, never()).applyPing(any(), any());
+        }
+
+        @Test
+        @DisplayName("Should release the in-flight slot when the Mapbox call throws synchronously")
+        void shouldReleaseSlotOnSynchronousFailure() {
+            ActiveTravelSnapshotDTO travel = travel();
+
+            when(mapboxAPIService.recalculateETAAsync(any(), any(), any(), any()))
+                    .thenThrow(new IllegalStateException("mapbox"))
+                    .thenReturn(CompletableFuture.completedFuture(new RouteDetailsDTO(600.0, 5000.0, "polyline")));
+
+            CompletableFuture<RouteDetailsDTO> failed = routeRecalculationService.recalculate(travel, -23.55, -46.63);
+
+            assertTrue(failed.isCompletedExceptionally());
+            assertNull(routeRecalculationService.inFlightRecalculation(travel.travelId()));
+            assertNotNull(routeRecalculationService.recalculate(travel, -23.55, -46.63).join());
+        }
+    }
+
+    @Nested
+    class evaluateDeviation {
+        @Test
+        @DisplayName("Isolated off-route fixes should not trigger a recalculation")
+        void shouldSuppressJitter() {
+            ActiveTravelSnapshotDTO travel = travel();
+
+            assertEquals(RerouteDecision.SUPPRESSED_HYSTERESIS, routeRecalculationService.evaluateDeviation(travel, offRoute(), -23.55, -46.63));
+            assertEquals(RerouteDecision.SUPPRESSED_HYSTERESIS, routeRecalculationService.evaluateDeviation(travel, offRoute(), -23.55, -46.63));
+            assertEquals(RerouteDecision.ON_ROUTE, routeRecalculationService.evaluateDeviation(travel, onRoute(), -23.55, -46.63));
+            assertEquals(RerouteDecision.SUPPRESSED_HYSTERESIS, routeRecalculationService.evaluateDeviation(travel, offRoute(), -23.55, -46.63));
+
+            verifyNoInteractions(mapboxAPIService);
+        }
+
+        @Test
+        @DisplayName("Should reroute on a sustained deviation and then respect the per-trip budget")
+        void shouldRerouteWithinBudget() {
+            ActiveTravelSnapshotDTO travel = travel();
+
+            when(mapboxAPIService.recalculateETAAsync(any(), any(), any(), any()))
+                    .thenReturn(CompletableFuture.completedFuture(new RouteDetailsDTO(600.0, 5000.0, "polyline")));
+
+            RerouteDecision last = null;
+            for (int i = 0; i < 9; i++) {
+                last = routeRecalculationService.evaluateDeviation(travel, offRoute(), -23.55, -46.63);
+            }
+
+            // 3 confirmações de desvio, mas só 2 fichas no orçamento (o relógio não andou)
+            assertEquals(RerouteDecision.SUPPRESSED_BUDGET, last);
+            verify(mapboxAPIService, times(2)).recalculateETAAsync(any(), any(), any(), any());
+
+            RerouteStatsDTO stats = routeRecalculationService.stats();
+            assertEquals(2, stats.executed());
+            assertEquals(6, stats.suppressedByHysteresis());
+            assertEquals(1, stats.suppressedByBudget());
+        }
+
+        @Test
+        @DisplayName("Should reroute before N pings once the bus has travelled far enough off route")
+        void shouldRerouteOnSustainedDistance() {
+            ActiveTravelSnapshotDTO travel = travel();
+
+            when(mapboxAPIService.recalculateETAAsync(any(), any(), any(), any()))
+                    .thenReturn(new CompletableFuture<>());
+
+            routeRecalculationService.evaluateDeviation(travel, offRoute(), -23.5500, -46.63);
+
+            // ~220 m percorridos fora da rota no segundo ping
+            assertEquals(RerouteDecision.EXECUTED, routeRecalculationService.evaluateDeviation(travel, offRoute(), -23.5480, -46.63));
+        }
+    }
+}
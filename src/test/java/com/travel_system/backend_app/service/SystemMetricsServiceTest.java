@@ -2,8 +2,11 @@ package com.travel_system.backend_app.service;
 
 import com.google.firebase.database.DatabaseException;
 import com.travel_system.backend_app.model.Travel;
+import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
 import com.travel_system.backend_app.model.enums.TravelStatus;
 import com.travel_system.backend_app.repository.TravelRepository;
+import com.travel_system.backend_app.utils.LatestWinsMailbox;
+import com.travel_system.backend_app.utils.TravelLaneExecutor;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -12,6 +15,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.Optional;
 import java.util.Set;
@@ -26,6 +30,16 @@ class SystemMetricsServiceTest {
     private TravelRepository travelRepository;
     @Mock
     private RedisTrackingService redisTrackingService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private RouteCacheService routeCacheService;
+    @Mock
+    private RouteRecalculationService routeRecalculationService;
+    @Mock
+    private TravelLaneExecutor travelLaneExecutor;
+    @Mock
+    private LatestWinsMailbox<VehicleLocationRequestDTO> liveTrackingMailbox;
     @InjectMocks
     private SystemMetricsService systemMetricsService;
 
@@ -0,0 +1,115 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.model.dtos.RosterEntryDTO;
+import com.travel_system.backend_app.repository.StudentTravelRepository;
+import com.travel_system.backend_app.utils.TravelRoster;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TravelRosterServiceTest {
+    @Mock
+    private StudentTravelRepository studentTravelRepository;
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    private TravelRosterService travelRosterService;
+
+    private final UUID travelId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        travelRosterService = new TravelRosterService(studentTravelRepository, redisTemplate, 500, 100, 60);
+    }
+
+    @Nested
+    class roster {
+        @Test
+        @DisplayName("Should load the roster once and serve the next pings from memory")
+        void shouldCacheRoster() {
+            UUID studentWithPosition = UUID.randomUUID();
+            UUID studentWithoutPosition = UUID.randomUUID();
+            when(studentTravelRepository.findRosterByTravelId(travelId)).thenReturn(List.of(
+                    new RosterEntryDTO(studentWithPosition, -23.55, -46.63),
+                    new RosterEntryDTO(studentWithoutPosition, null, null)));
+
+            TravelRoster first = travelRosterService.roster(travelId);
+            TravelRoster second = travelRosterService.roster(travelId);
+
+            assertSame(first, second);
+            assertEquals(2, first.size());
+            assertEquals(studentWithPosition, first.studentId(0));
+            assertEquals(-23.55, first.latitude(0));
+            assertFalse(first.hasPosition(1));
+            verify(studentTravelRepository, times(1)).findRosterByTravelId(travelId);
+        }
+
+        @Test
+        @DisplayName("Should reload after an invalidation and notify the other instances")
+        void shouldReloadAfterEvict() {
+            when(studentTravelRepository.findRosterByTravelId(travelId))
+                    .thenReturn(List.of())
+                    .thenReturn(List.of(new RosterEntryDTO(UUID.randomUUID(), -23.55, -46.63)));
+
+            assertEquals(0, travelRosterService.roster(travelId).size());
+
+            travelRosterService.evict(travelId);
+
+            assertEquals(1, travelRosterService.roster(travelId).size());
+            verify(redisTemplate).convertAndSend(eq(TravelRosterService.INVALIDATION_CHANNEL), endsWith(":" + travelId));
+        }
+    }
+
+    @Nested
+    class updatePosition {
+        @Test
+        @DisplayName("Should patch the boarding point in memory without reloading the roster")
+        void shouldPatchWithoutReload() {
+            UUID studentId = UUID.randomUUID();
+            when(studentTravelRepository.findRosterByTravelId(travelId)).thenReturn(List.of(new RosterEntryDTO(studentId, null, null)));
+            travelRosterService.roster(travelId);
+
+            travelRosterService.updatePosition(travelId, studentId, -23.55, -46.63);
+            TravelRoster patched = travelRosterService.roster(travelId);
+
+            assertEquals(-23.55, patched.latitude(0));
+            assertEquals(List.of(studentId), patched.positionedStudentIds());
+            assertEquals(1, patched.collectWithin(-23.55, -46.63, 100, new int[1]));
+            verify(studentTravelRepository, times(1)).findRosterByTravelId(travelId);
+        }
+
+        @Test
+        @DisplayName("Should ignore its own broadcast and evict on messages from other instances")
+        void shouldIgnoreOwnBroadcast() {
+            UUID studentId = UUID.randomUUID();
+            when(studentTravelRepository.findRosterByTravelId(travelId)).thenReturn(List.of(new RosterEntryDTO(studentId, null, null)));
+            travelRosterService.roster(travelId);
+
+            travelRosterService.updatePosition(travelId, studentId, -23.55, -46.63);
+            ArgumentCaptor<String> broadcast = ArgumentCaptor.forClass(String.class);
+            verify(redisTemplate).convertAndSend(eq(TravelRosterService.INVALIDATION_CHANNEL), broadcast.capture());
+            TravelRoster patched = travelRosterService.roster(travelId);
+
+            travelRosterService.handleInvalidationMessage(broadcast.getValue());
+            assertSame(patched, travelRosterService.roster(travelId));
+
+            travelRosterService.handleInvalidationMessage(UUID.randomUUID() + ":" + travelId);
+            assertNotSame(patched, travelRosterService.roster(travelId));
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.travel_system.backend_app.model.TravelReports;
 import com.travel_system.backend_app.model.enums.GeneralStatus;
 import com.travel_system.backend_app.model.enums.TravelStatus;
 import com.travel_system.backend_app.repository.StudentTravelRepository;
+import com.travel_system.backend_app.repository.TravelLocationHistoryRepository;
 import com.travel_system.backend_app.repository.TravelReportsRepository;
 import com.travel_system.backend_app.repository.TravelRepository;
 import org.junit.jupiter.api.DisplayName;
@@ -17,6 +18,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 
 import java.time.Instant;
@@ -37,6 +39,14 @@ class TravelServiceTest {
     private TravelReportsRepository travelReportsRepository;
     @Mock
     private TravelRepository travelRepository;
+    @Mock
+    private TravelLocationHistoryRepository travelLocationHistoryRepository;
+    @Mock
+    private PolylineService polylineService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private ActiveTravelRegistryService activeTravelRegistryService;
 
     @InjectMocks
     private TravelService travelService;
@@ -0,0 +1,73 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.interfaces.GpsFixFilter;
+import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
+import com.travel_system.backend_app.utils.LatestWinsMailbox;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TravelStateReleaseServiceTest {
+    @Mock
+    private ActiveTravelRegistryService activeTravelRegistryService;
+    @Mock
+    private RouteCalculationService routeCalculationService;
+    @Mock
+    private RouteProgressService routeProgressService;
+    @Mock
+    private RouteRecalculationService routeRecalculationService;
+    @Mock
+    private GpsFixFilter gpsFixFilter;
+    @Mock
+    private PingWindowService pingWindowService;
+    @Mock
+    private TravelRosterService travelRosterService;
+    @Mock
+    private DeviceTokenCacheService deviceTokenCacheService;
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    private final LatestWinsMailbox<VehicleLocationRequestDTO> liveTrackingMailbox = new LatestWinsMailbox<>();
+    private final UUID travelId = UUID.randomUUID();
+    private TravelStateReleaseService travelStateReleaseService;
+
+    @BeforeEach
+    void setUp() {
+        travelStateReleaseService = new TravelStateReleaseService(activeTravelRegistryService, routeCalculationService,
+                routeProgressService, routeRecalculationService, liveTrackingMailbox, gpsFixFilter, pingWindowService,
+                travelRosterService, deviceTokenCacheService, redisTemplate);
+    }
+
+    @Nested
+    class release {
+        @Test
+        @DisplayName("Should release every per-trip state locally and notify the other instances")
+        void shouldReleaseLocallyAndBroadcast() {
+            liveTrackingMailbox.offer(travelId, new VehicleLocationRequestDTO(travelId, -23.50, -46.60, 10.0, 0.0));
+
+            travelStateReleaseService.release(travelId);
+
+            verify(activeTravelRegistryService).evictLocal(travelId);
+            verify(routeCalculationService).releaseTravel(travelId);
+            verify(routeProgressService).release(travelId);
+            verify(routeRecalculationService).release(travelId);
+            verify(gpsFixFilter).release(travelId);
+            verify(pingWindowService).release(travelId);
+            verify(travelRosterService).evictLocal(travelId);
+            verify(deviceTokenCacheService).release(travelId);
+            assertNull(liveTrackingMailbox.poll(travelId));
+            verify(redisTemplate).convertAndSend(ActiveTravelRegistryService.INVALIDATION_CHANNEL, travelId.toString());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.travel_system.backend_app.service;
+
+import com.google.api.core.ApiFutures;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.TopicManagementResponse;
+import com.travel_system.backend_app.model.dtos.StudentDeviceTokenDTO;
+import com.travel_system.backend_app.repository.StudentTravelRepository;
+import com.travel_system.backend_app.utils.FcmSendWindow;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TravelTopicServiceTest {
+    @Mock
+    private FirebaseMessaging firebaseMessaging;
+    @Mock
+    private DeviceTokenCacheService deviceTokenCacheService;
+    @Mock
+    private StudentTravelRepository studentTravelRepository;
+
+    private final FcmSendWindow fcmSendWindow = new FcmSendWindow(4, 100, Runnable::run);
+    private final UUID travelId = UUID.randomUUID();
+
+    @Nested
+    class subscribe {
+        @Test
+        @DisplayName("Should subscribe the trip tokens to the trip topic in batches of 1000")
+        void shouldSubscribeInBatches() {
+            TravelTopicService travelTopicService = new TravelTopicService(firebaseMessaging, deviceTokenCacheService, studentTravelRepository, fcmSendWindow, "topic");
+            List<UUID> studentIds = new ArrayList<>();
+            List<StudentDeviceTokenDTO> tokens = new ArrayList<>();
+            for (int i = 0; i < 2_500; i++) {
+                UUID studentId = UUID.randomUUID();
+                studentIds.add(studentId);
+                tokens.add(new StudentDeviceTokenDTO(studentId, "token-" + i));
+            }
+            when(deviceTokenCacheService.activeTokens(travelId, studentIds)).thenReturn(tokens);
+            when(firebaseMessaging.subscribeToTopicAsync(anyList(), eq("travel-" + travelId))).thenReturn(ApiFutures.immediateFuture(mock(TopicManagementResponse.class)));
+
+            travelTopicService.subscribe(travelId, studentIds);
+
+            verify(firebaseMessaging, times(2)).subscribeToTopicAsync(argThat(batch -> batch.size() == 1000), eq("travel-" + travelId));
+            verify(firebaseMessaging, times(1)).subscribeToTopicAsync(argThat(batch -> batch.size() == 500), eq("travel-" + travelId));
+        }
+
+        @Test
+        @DisplayName("Should keep per-device multicast unless topic fan-out is configured")
+        void shouldDefaultToMulticast() {
+            assertFalse(new TravelTopicService(firebaseMessaging, deviceTokenCacheService, studentTravelRepository, fcmSendWindow, "multicast").isTopicMode());
+            assertTrue(new TravelTopicService(firebaseMessaging, deviceTokenCacheService, studentTravelRepository, fcmSendWindow, "TOPIC").isTopicMode());
+        }
+    }
+}
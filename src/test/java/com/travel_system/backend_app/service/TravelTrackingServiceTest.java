@@ -0,0 +1,172 @@
+package com.travel_system.backend_app.service;
+
+import com.travel_system.backend_app.events.NewLocationReceivedEvents;
+import com.travel_system.backend_app.interfaces.GpsFixFilter;
+import com.travel_system.backend_app.model.dtos.ActiveTravelSnapshotDTO;
+import com.travel_system.backend_app.model.dtos.TrackingPingUpdateDTO;
+import com.travel_system.backend_app.model.dtos.mapboxApi.RouteDeviationDTO;
+import com.travel_system.backend_app.model.dtos.mapboxApi.RouteProgressDTO;
+import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
+import com.travel_system.backend_app.model.enums.RerouteDecision;
+import com.travel_system.backend_app.model.enums.TravelStatus;
+import com.travel_system.backend_app.repository.StudentTravelRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TravelTrackingServiceTest {
+    @Mock
+    private ActiveTravelRegistryService activeTravelRegistryService;
+    @Mock
+    private GpsFixFilter gpsFixFilter;
+    @Mock
+    private PingWindowService pingWindowService;
+    @Mock
+    private RedisTrackingService redisTrackingService;
+    @Mock
+    private RouteCalculationService routeCalculationService;
+    @Mock
+    private RouteGeometryCacheService routeGeometryCacheService;
+    @Mock
+    private RouteProgressService routeProgressService;
+    @Mock
+    private RouteRecalculationService routeRecalculationService;
+    @Mock
+    private StudentTravelRepository studentTravelRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final Clock clock = Clock.fixed(Instant.parse("2025-01-01T08:00:00Z"), ZoneOffset.UTC);
+    private final UUID travelId = UUID.randomUUID();
+    private TravelTrackingService travelTrackingService;
+
+    // hash da viagem no redis, aplicada com as mesmas regras de posição do apply_ping.lua
+    private final Map<String, Double> travelHash = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        travelTrackingService = new TravelTrackingService(activeTravelRegistryService, gpsFixFilter, pingWindowService,
+                redisTrackingService, routeCalculationService, routeGeometryCacheService, routeProgressService,
+                routeRecalculationService, studentTravelRepository, eventPublisher, clock);
+
+        when(activeTravelRegistryService.require(travelId)).thenReturn(new ActiveTravelSnapshotDTO(
+                travelId, TravelStatus.TRAVELLING, -23.60, -46.60, "polyline", 10_000.0, 1_000.0, "sao_paulo"));
+
+        lenient().when(redisTrackingService.applyPing(eq(travelId), any())).thenAnswer(invocation -> {
+            TrackingPingUpdateDTO ping = invocation.getArgument(1);
+            if (ping.latitude() != null && ping.longitude() != null) {
+                Double oldLat = travelHash.get("lat");
+                Double oldLng = travelHash.get("lng");
+                if (oldLat != null) {
+                    travelHash.merge("accumulatedDistance", Math.hypot(ping.latitude() - oldLat, ping.longitude() - oldLng), Double::sum);
+                }
+                travelHash.put("lat", ping.latitude());
+                travelHash.put("lng", ping.longitude());
+            }
+            if (ping.durationRemaining() != null) travelHash.put("durationRemaining", ping.durationRemaining());
+            return travelHash.getOrDefault("accumulatedDistance", 0.0);
+        });
+    }
+
+    private VehicleLocationRequestDTO ping(double latitude) {
+        return new VehicleLocationRequestDTO(travelId, latitude, -46.60, 10.0, 0.0);
+    }
+
+    @Nested
+    class processNewLocation {
+        @Test
+        @DisplayName("Should not rewind the position nor re-accumulate distance when it runs after the next checkpoint")
+        void shouldKeepCheckpointPositionWhenOutOfOrder() {
+            when(gpsFixFilter.filter(any(), anyLong())).thenAnswer(invocation -> Optional.of(invocation.getArgument(0)));
+            when(routeCalculationService.isRouteDeviation(eq(travelId), anyDouble(), anyDouble(), any()))
+                    .thenReturn(new RouteDeviationDTO(2.0, false, 0.0, 0.0, 0, 100.0, 9_900.0));
+            when(routeRecalculationService.evaluateDeviation(any(), any(), anyDouble(), anyDouble())).thenReturn(RerouteDecision.ON_ROUTE);
+            when(routeProgressService.estimate(eq(travelId), any(), any(), any())).thenReturn(new RouteProgressDTO(9_900.0, 990.0, 10.0));
+
+            // checkpoints de dois pings chegam antes do processamento do primeiro
+            travelTrackingService.markDriverCheckpoint(ping(-23.50));
+            travelTrackingService.markDriverCheckpoint(ping(-23.51));
+            travelTrackingService.processNewLocation(ping(-23.50));
+
+            assertEquals(-23.51, travelHash.get("lat"), 1e-9);
+            assertEquals(0.01, travelHash.get("accumulatedDistance"), 1e-9);
+            assertEquals(990.0, travelHash.get("durationRemaining"), 1e-9);
+        }
+
+        @Test
+        @DisplayName("Should compare against the active geometry stored in Redis when the decoded route was evicted")
+        void shouldReloadActiveGeometryOnCacheMiss() {
+            when(redisTrackingService.getActiveGeometry(travelId)).thenReturn("recalculated");
+            when(routeCalculationService.isRouteDeviation(eq(travelId), anyDouble(), anyDouble(), eq("recalculated")))
+                    .thenReturn(new RouteDeviationDTO(2.0, false, 0.0, 0.0, 0, 100.0, 9_900.0));
+            when(routeRecalculationService.evaluateDeviation(any(), any(), anyDouble(), anyDouble())).thenReturn(RerouteDecision.ON_ROUTE);
+            when(routeProgressService.estimate(eq(travelId), any(), any(), any())).thenReturn(new RouteProgressDTO(9_900.0, 990.0, 10.0));
+
+            travelTrackingService.processNewLocation(ping(-23.50));
+
+            verify(routeCalculationService).isRouteDeviation(eq(travelId), anyDouble(), anyDouble(), eq("recalculated"));
+        }
+
+        @Test
+        @DisplayName("Should leave the remaining distance and ETA untouched when the route cannot be projected")
+        void shouldSkipEstimateOnDegenerateRoute() {
+            travelHash.put("durationRemaining", 600.0);
+            when(routeCalculationService.isRouteDeviation(eq(travelId), anyDouble(), anyDouble(), any()))
+                    .thenReturn(new RouteDeviationDTO(0, false, -23.50, -46.60, -1, 0.0, 0.0));
+            when(routeRecalculationService.evaluateDeviation(any(), any(), anyDouble(), anyDouble())).thenReturn(RerouteDecision.ON_ROUTE);
+
+            travelTrackingService.processNewLocation(ping(-23.50));
+
+            verifyNoInteractions(routeProgressService);
+            verify(redisTrackingService).applyPing(eq(travelId), argThat(update ->
+                    update.distanceRemaining() == null && update.durationRemaining() == null && update.geometry() == null));
+            assertEquals(600.0, travelHash.get("durationRemaining"), 1e-9);
+        }
+    }
+
+    @Nested
+    class markDriverCheckpoint {
+        @Test
+        @DisplayName("Should filter a batched ping at its device time, capped at the server clock")
+        void shouldUseDeviceTimestamp() {
+            long serverNow = clock.millis();
+            when(gpsFixFilter.filter(any(), anyLong())).thenReturn(Optional.empty());
+
+            travelTrackingService.markDriverCheckpoint(ping(-23.50), serverNow - 60_000);
+            travelTrackingService.markDriverCheckpoint(ping(-23.51), serverNow + 60_000);
+
+            verify(gpsFixFilter).filter(any(), eq(serverNow - 60_000));
+            verify(gpsFixFilter).filter(any(), eq(serverNow));
+        }
+
+        @Test
+        @DisplayName("Should publish the location event with the recorded device time")
+        void shouldPublishRecordedTime() {
+            long recordedAt = clock.millis() - 60_000;
+            when(gpsFixFilter.filter(any(), anyLong())).thenAnswer(invocation -> Optional.of(invocation.getArgument(0)));
+
+            travelTrackingService.markDriverCheckpoint(ping(-23.50), recordedAt);
+
+            verify(eventPublisher).publishEvent(argThat((Object event) ->
+                    event instanceof NewLocationReceivedEvents location && location.timestamp().equals(Instant.ofEpochMilli(recordedAt))));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.travel_system.backend_app.utils;
+
+import com.google.api.core.SettableApiFuture;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FcmSendWindowTest {
+
+    @Nested
+    class submit {
+        @Test
+        @DisplayName("Should bound the sends in flight and free the slot when FCM answers")
+        void shouldBoundInFlight() {
+            FcmSendWindow window = new FcmSendWindow(2, 10, Runnable::run);
+            List<String> results = new ArrayList<>();
+            SettableApiFuture<String> first = SettableApiFuture.create();
+            SettableApiFuture<String> second = SettableApiFuture.create();
+
+            assertTrue(window.submit("first", () -> first, results::add, failure -> fail()));
+            assertTrue(window.submit("second", () -> second, results::add, failure -> fail()));
+            assertEquals(2, window.inFlight());
+
+            // janela cheia: a thread não espera a resposta do FCM, só o timeout da vaga
+            assertFalse(window.<String>submit("third", SettableApiFuture::create, results::add, failure -> fail()));
+            assertEquals(1, window.droppedSends());
+
+            first.set("message-1");
+            assertEquals(List.of("message-1"), results);
+            assertEquals(1, window.inFlight());
+            assertTrue(window.<String>submit("fourth", SettableApiFuture::create, results::add, failure -> fail()));
+        }
+
+        @Test
+        @DisplayName("Should release the slot when the send fails")
+        void shouldReleaseOnFailure() {
+            FcmSendWindow window = new FcmSendWindow(1, 10, Runnable::run);
+            List<Throwable> failures = new ArrayList<>();
+            SettableApiFuture<String> future = SettableApiFuture.create();
+
+            window.submit("send", () -> future, result -> fail(), failures::add);
+            future.setException(new IllegalStateException("unavailable"));
+
+            assertEquals(1, failures.size());
+            assertEquals(0, window.inFlight());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.travel_system.backend_app.utils;
+
+import com.google.api.core.ApiFutures;
+import com.google.firebase.messaging.*;
+import com.travel_system.backend_app.model.DeviceToken;
+import com.travel_system.backend_app.model.Student;
+import com.travel_system.backend_app.model.dtos.StudentDeviceTokenDTO;
+import com.travel_system.backend_app.model.dtos.TravelNotificationEventDTO;
+import com.travel_system.backend_app.model.enums.MovementState;
+import com.travel_system.backend_app.model.enums.Platform;
+import com.travel_system.backend_app.model.enums.Priority;
+import com.travel_system.backend_app.repository.DeviceTokenRepository;
+import com.travel_system.backend_app.service.DeviceTokenCacheService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FirebaseNotificationSenderTest {
+    @Mock
+    private DeviceTokenRepository deviceTokenRepository;
+    @Mock
+    private DeviceTokenCacheService deviceTokenCacheService;
+    @Mock
+    private FirebaseMessaging firebaseMessaging;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private FirebaseNotificationSender firebaseNotificationSender;
+
+    private final UUID travelId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        // callbacks executados na própria thread do teste
+        firebaseNotificationSender = new FirebaseNotificationSender(deviceTokenRepository, deviceTokenCacheService, firebaseMessaging, new FcmSendWindow(4, 100, Runnable::run), eventPublisher);
+    }
+
+    private TravelNotificationEventDTO event(List<UUID> studentIds) {
+        return new TravelNotificationEventDTO(travelId, studentIds, MovementState.STOPPED, Priority.NORMAL, "Alerta de ônibus PARADO. Fique atento.", UUID.randomUUID());
+    }
+
+    @Nested
+    class manageUserToken {
+        @Test
+        @DisplayName("Should evict the previous and the new owner only after the token is saved")
+        void shouldEvictAfterSave() {
+            Student previousOwner = new Student();
+            previousOwner.setId(UUID.randomUUID());
+            Student newOwner = new Student();
+            newOwner.setId(UUID.randomUUID());
+            DeviceToken deviceToken = new DeviceToken();
+            deviceToken.setStudent(previousOwner);
+            deviceToken.setToken("phone");
+            when(deviceTokenRepository.findDeviceTokenByToken("phone")).thenReturn(Optional.of(deviceToken));
+
+            firebaseNotificationSender.manageUserToken(newOwner, "phone", Platform.ANDROID);
+
+            InOrder inOrder = inOrder(deviceTokenRepository, deviceTokenCacheService);
+            inOrder.verify(deviceTokenRepository).save(deviceToken);
+            inOrder.verify(deviceTokenCacheService).evictStudent(previousOwner.getId());
+            inOrder.verify(deviceTokenCacheService).evictStudent(newOwner.getId());
+        }
+    }
+
+    @Nested
+    class pushTravelNotification {
+        @Test
+        @DisplayName("Should resolve the trip tokens in one lookup and send them in 500-token batches")
+        void shouldBatchTokens() {
+            List<UUID> studentIds = new ArrayList<>();
+            List<StudentDeviceTokenDTO> tokens = new ArrayList<>();
+            for (int i = 0; i < 1_200; i++) {
+                UUID studentId = UUID.randomUUID();
+                studentIds.add(studentId);
+                tokens.add(new StudentDeviceTokenDTO(studentId, "token-" + i));
+            }
+            BatchResponse response = mock(BatchResponse.class);
+            when(deviceTokenCacheService.activeTokens(travelId, studentIds)).thenReturn(tokens);
+            when(firebaseMessaging.sendEachForMulticastAsync(any(MulticastMessage.class))).thenReturn(ApiFutures.immediateFuture(response));
+
+            firebaseNotificationSender.pushTravelNotification(event(studentIds));
+
+            verify(deviceTokenCacheService, times(1)).activeTokens(travelId, studentIds);
+            verify(firebaseMessaging, times(3)).sendEachForMulticastAsync(any(MulticastMessage.class));
+            verify(deviceTokenRepository, never()).deactivateTokensByValue(anyList());
+        }
+
+        @Test
+        @DisplayName("Should deactivate only the unregistered tokens of the batch")
+        void shouldDeactivateFailedTokens() {
+            UUID firstStudent = UUID.randomUUID();
+            UUID secondStudent = UUID.randomUUID();
+            when(deviceTokenCacheService.activeTokens(travelId, List.of(firstStudent, secondStudent))).thenReturn(List.of(
+                    new StudentDeviceTokenDTO(firstStudent, "phone"),
+                    new StudentDeviceTokenDTO(secondStudent, "tablet"),
+                    new StudentDeviceTokenDTO(secondStudent, "old-phone")));
+
+            SendResponse success = mock(SendResponse.class);
+            when(success.isSuccessful()).thenReturn(true);
+            SendResponse unregistered = mock(SendResponse.class);
+            FirebaseMessagingException exception = mock(FirebaseMessagingException.class);
+            when(exception.getMessagingErrorCode()).thenReturn(MessagingErrorCode.UNREGISTERED);
+            when(unregistered.getException()).thenReturn(exception);
+            BatchResponse response = mock(BatchResponse.class);
+            when(response.getFailureCount()).thenReturn(1);
+            when(response.getResponses()).thenReturn(List.of(success, success, unregistered));
+            when(firebaseMessaging.sendEachForMulticastAsync(any(MulticastMessage.class))).thenReturn(ApiFutures.immediateFuture(response));
+
+            firebaseNotificationSender.pushTravelNotification(event(List.of(firstStudent, secondStudent)));
+
+            verify(firebaseMessaging, times(1)).sendEachForMulticastAsync(any(MulticastMessage.class));
+            verify(deviceTokenRepository).deactivateTokensByValue(List.of("old-phone"));
+            verify(deviceTokenCacheService).removeTokens(Map.of("old-phone", secondStudent));
+        }
+    }
+}
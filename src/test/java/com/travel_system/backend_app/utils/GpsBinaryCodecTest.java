@@ -0,0 +1,51 @@
+package com.travel_system.backend_app.utils;
+
+import com.travel_system.backend_app.utils.GpsBinaryCodec.GpsFix;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GpsBinaryCodecTest {
+
+    @Test
+    @DisplayName("Should round trip a GPS fix within fixed-point and half-precision resolution")
+    void shouldRoundTrip() {
+        GpsFix fix = new GpsFix(UUID.randomUUID(), -23.5505199, -46.6333094, 13.9, 271.5, Instant.ofEpochMilli(1735718400123L));
+
+        byte[] encoded = GpsBinaryCodec.encode(fix);
+        GpsFix decoded = GpsBinaryCodec.decode(encoded);
+
+        assertEquals(GpsBinaryCodec.ENCODED_SIZE, encoded.length);
+        assertEquals(fix.travelId(), decoded.travelId());
+        assertEquals(fix.latitude(), decoded.latitude(), 1e-7);
+        assertEquals(fix.longitude(), decoded.longitude(), 1e-7);
+        assertEquals(fix.speed(), decoded.speed(), 0.01);
+        assertEquals(fix.heading(), decoded.heading(), 0.25);
+        assertEquals(fix.timestamp(), decoded.timestamp());
+    }
+
+    @Test
+    @DisplayName("Should keep missing speed and heading as null")
+    void shouldKeepMissingFieldsNull() {
+        GpsFix fix = new GpsFix(UUID.randomUUID(), -23.55, -46.63, null, null, Instant.ofEpochMilli(0L));
+
+        GpsFix decoded = GpsBinaryCodec.decode(GpsBinaryCodec.encode(fix));
+
+        assertNull(decoded.speed());
+        assertNull(decoded.heading());
+    }
+
+    @Test
+    @DisplayName("Should keep a missing timestamp as null instead of the epoch")
+    void shouldKeepMissingTimestampNull() {
+        GpsFix fix = new GpsFix(UUID.randomUUID(), -23.55, -46.63, 10.0, 90.0, null);
+
+        GpsFix decoded = GpsBinaryCodec.decode(GpsBinaryCodec.encode(fix));
+
+        assertNull(decoded.timestamp());
+    }
+}
@@ -0,0 +1,94 @@
+package com.travel_system.backend_app.utils;
+
+import com.travel_system.backend_app.model.dtos.request.VehicleLocationRequestDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KalmanGpsFilterTest {
+    private static final double LAT = -23.55052;
+    private static final double LNG = -46.63331;
+    // ~1m em graus de latitude
+    private static final double METER = 1.0 / 111_195.0;
+
+    private final KalmanGpsFilter filter = new KalmanGpsFilter(10.0, 1.0, 1.5, 45.0);
+    private final UUID travelId = UUID.randomUUID();
+
+    private double distance(double lat1, double lng1, double lat2, double lng2) {
+        return DecodedRoute.haversine(lat1, lng1, lat2, lng2);
+    }
+
+    @Nested
+    class Smoothing {
+
+        @Test
+        @DisplayName("Should keep a stopped vehicle close to its real position despite jitter")
+        void shouldDampJitterWhenStopped() {
+            Random random = new Random(42);
+            VehicleLocationRequestDTO last = null;
+            double worstRaw = 0;
+
+            for (int i = 0; i < 30; i++) {
+                double lat = LAT + random.nextGaussian() * 8 * METER;
+                double lng = LNG + random.nextGaussian() * 8 * METER;
+                worstRaw = Math.max(worstRaw, distance(LAT, LNG, lat, lng));
+
+                last = filter.filter(new VehicleLocationRequestDTO(travelId, lat, lng, 0.0, null), i * 5_000L).orElseThrow();
+            }
+
+            assertTrue(distance(LAT, LNG, last.latitude(), last.longitude()) < worstRaw / 2);
+            assertTrue(last.speed() < 0.5);
+        }
+
+        @Test
+        @DisplayName("Should follow the device speed and heading")
+        void shouldUseDeviceVelocity() {
+            VehicleLocationRequestDTO last = null;
+
+            // 10 m/s para o norte, um ping a cada 5s
+            for (int i = 0; i < 10; i++) {
+                last = filter.filter(new VehicleLocationRequestDTO(travelId, LAT + i * 50 * METER, LNG, 10.0, 0.0), i * 5_000L).orElseThrow();
+            }
+
+            assertEquals(10.0, last.speed(), 0.5);
+            assertTrue(last.heading() < 5.0 || last.heading() > 355.0);
+        }
+    }
+
+    @Nested
+    class TeleportRejection {
+
+        @Test
+        @DisplayName("Should drop a fix that implies an impossible speed")
+        void shouldRejectJump() {
+            filter.filter(new VehicleLocationRequestDTO(travelId, LAT, LNG, 0.0, null), 0L);
+
+            // 2km em 5s = 400 m/s
+            Optional<VehicleLocationRequestDTO> jump = filter.filter(new VehicleLocationRequestDTO(travelId, LAT + 2000 * METER, LNG, 0.0, null), 5_000L);
+            Optional<VehicleLocationRequestDTO> back = filter.filter(new VehicleLocationRequestDTO(travelId, LAT, LNG, 0.0, null), 10_000L);
+
+            assertTrue(jump.isEmpty());
+            assertTrue(back.isPresent());
+            assertTrue(distance(LAT, LNG, back.get().latitude(), back.get().longitude()) < 1.0);
+        }
+
+        @Test
+        @DisplayName("Should restart at the new position when the jump persists")
+        void shouldResetAfterConsecutiveRejections() {
+            double newLat = LAT + 2000 * METER;
+            filter.filter(new VehicleLocationRequestDTO(travelId, LAT, LNG, 0.0, null), 0L);
+
+            assertTrue(filter.filter(new VehicleLocationRequestDTO(travelId, newLat, LNG, 0.0, null), 5_000L).isEmpty());
+            assertTrue(filter.filter(new VehicleLocationRequestDTO(travelId, newLat, LNG, 0.0, null), 10_000L).isEmpty());
+            VehicleLocationRequestDTO reset = filter.filter(new VehicleLocationRequestDTO(travelId, newLat, LNG, 0.0, null), 15_000L).orElseThrow();
+
+            assertEquals(newLat, reset.latitude(), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.travel_system.backend_app.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatestWinsMailboxTest {
+
+    private final LatestWinsMailbox<Integer> mailbox = new LatestWinsMailbox<>();
+
+    @Test
+    @DisplayName("Should keep only the newest pending item and count the coalesced ones")
+    void shouldCoalesceToLatest() {
+        UUID travelId = UUID.randomUUID();
+
+        assertTrue(mailbox.offer(travelId, 1));
+        assertFalse(mailbox.offer(travelId, 2));
+        assertFalse(mailbox.offer(travelId, 3));
+
+        assertEquals(3, mailbox.poll(travelId));
+        assertNull(mailbox.poll(travelId));
+        assertEquals(2, mailbox.coalescedCount(travelId));
+
+        assertTrue(mailbox.offer(travelId, 4));
+    }
+}
@@ -0,0 +1,51 @@
+package com.travel_system.backend_app.utils;
+
+import com.travel_system.backend_app.model.dtos.MovementNotificationEventDTO;
+import com.travel_system.backend_app.model.dtos.ProximityNotificationDTO;
+import com.travel_system.backend_app.model.enums.MovementState;
+import com.travel_system.backend_app.model.enums.Priority;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationOutboxTest {
+    private final UUID travelId = UUID.randomUUID();
+    private final UUID studentId = UUID.randomUUID();
+
+    private MovementNotificationEventDTO movement(MovementState movementState) {
+        return new MovementNotificationEventDTO(studentId, travelId, movementState, Priority.NORMAL, "Alerta", UUID.randomUUID());
+    }
+
+    private ProximityNotificationDTO proximity(double distance) {
+        return new ProximityNotificationDTO(studentId, travelId, distance, "NEAR", "DISTANCE_STEP_REACHED", "2026-01-01T00:00:00Z");
+    }
+
+    @Nested
+    class drain {
+        @Test
+        @DisplayName("Should keep one alert per type per student, the latest one")
+        void shouldCollapseByType() {
+            NotificationOutbox outbox = new NotificationOutbox();
+
+            outbox.addMovement(movement(MovementState.SLOW));
+            outbox.addProximity(proximity(600));
+            outbox.addProximity(proximity(570));
+            outbox.addMovement(movement(MovementState.STOPPED));
+            outbox.addProximity(proximity(540));
+
+            List<NotificationOutbox.PendingNotification> drained = outbox.drain();
+
+            assertEquals(1, drained.size());
+            assertEquals(MovementState.STOPPED, drained.get(0).movement().movementState());
+            assertEquals(540.0, drained.get(0).proximity().distance());
+            assertEquals(5, outbox.enqueued());
+            assertEquals(3, outbox.collapsed());
+            assertTrue(outbox.drain().isEmpty());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.travel_system.backend_app.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PingWindowTest {
+    private static final double LAT = -23.55052;
+    private static final double LNG = -46.63331;
+    // ~1m em graus de latitude
+    private static final double METER = 1.0 / 111_195.0;
+
+    @Nested
+    class RollingKinematics {
+
+        @Test
+        @DisplayName("Should keep only the last pings in the rolling speed")
+        void shouldEvictOldPingsFromAverageSpeed() {
+            PingWindow window = new PingWindow(4, 15.0);
+
+            // 3 pings parados e depois 5 pings a 10 m/s para o norte, um a cada 5s
+            for (int i = 0; i < 3; i++) {
+                window.add(LAT, LNG, null, null, i * 5_000L);
+            }
+            for (int i = 1; i <= 5; i++) {
+                window.add(LAT + i * 50 * METER, LNG, null, 0.0, (2 + i) * 5_000L);
+            }
+
+            assertEquals(4, window.size());
+            assertEquals(15.0, window.windowSeconds(), 1e-9);
+            assertEquals(150.0, window.pathMeters(), 0.5);
+            assertEquals(10.0, window.averageSpeed(), 0.05);
+            assertEquals(0.0, window.acceleration(), 1e-3);
+        }
+
+        @Test
+        @DisplayName("Should accumulate heading change and ignore out-of-order pings")
+        void shouldTrackHeadingChange() {
+            PingWindow window = new PingWindow(8, 15.0);
+
+            window.add(LAT, LNG, 10.0, 350.0, 0L);
+            window.add(LAT + 50 * METER, LNG, 10.0, 20.0, 5_000L);
+            window.add(LAT + 100 * METER, LNG, 10.0, 80.0, 10_000L);
+            window.add(LAT + 900 * METER, LNG, 10.0, 200.0, 7_000L);
+
+            assertEquals(3, window.size());
+            assertEquals(90.0, window.headingChange(), 1e-3);
+        }
+    }
+
+    @Nested
+    class Dwell {
+
+        @Test
+        @DisplayName("Should measure how long the vehicle stays inside the dwell radius")
+        void shouldMeasureDwell() {
+            PingWindow window = new PingWindow(4, 15.0);
+
+            window.add(LAT, LNG, null, null, 0L);
+            // andando: a âncora acompanha o veículo
+            window.add(LAT + 100 * METER, LNG, null, null, 10_000L);
+            // parado com pequenos deslocamentos dentro do raio
+            for (int i = 1; i <= 8; i++) {
+                window.add(LAT + (100 + (i % 2) * 5) * METER, LNG, null, null, (1 + i) * 10_000L);
+            }
+
+            assertEquals(80.0, window.dwellSeconds(), 1e-9);
+        }
+    }
+}
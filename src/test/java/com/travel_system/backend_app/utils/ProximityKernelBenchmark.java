@@ -0,0 +1,157 @@
+package com.travel_system.backend_app.utils;
+
+import com.travel_system.backend_app.model.dtos.RosterEntryDTO;
+import com.travel_system.backend_app.model.dtos.response.NotificationStateDTO;
+import com.travel_system.backend_app.model.enums.ProximityAlertType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/*
+  Kernel de proximidade x laço anterior do checkProximityAlerts (listas boxed, haversine por aluno,
+  verifyNotificationState e o parse do estado a cada ping). Os dois lados montam os estados alterados,
+  sem redis nem eventos. Não roda no mvn test; executar pela IDE ou pelo main (classpath de teste).
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProximityKernelBenchmark {
+    private static final double DRIVER_LAT = -23.55052;
+    private static final double DRIVER_LNG = -46.63331;
+
+    // ônibus comum, limiar do fork-join, fretado de evento
+    @Param({"40", "1024", "5000"})
+    private int students;
+
+    private TravelRoster roster;
+    private Map<UUID, NotificationStateDTO> notificationStates;
+    private final ProximityKernel kernel = new ProximityKernel(1024);
+    private final ProximityKernel.Batch batch = new ProximityKernel.Batch();
+    private long now;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        now = Instant.now().toEpochMilli();
+
+        List<RosterEntryDTO> entries = new ArrayList<>();
+        notificationStates = new HashMap<>();
+        for (int i = 0; i < students; i++) {
+            double latitude = DRIVER_LAT + (random.nextDouble() - 0.5) * 0.05;
+            double longitude = DRIVER_LNG + (random.nextDouble() - 0.5) * 0.05;
+            RosterEntryDTO entry = new RosterEntryDTO(UUID.randomUUID(), latitude, longitude);
+            entries.add(entry);
+
+            // maioria já avisada há pouco na distância atual: o caso comum é não avisar
+            if (i % 10 != 0) {
+                double distance = DecodedRoute.haversine(DRIVER_LAT, DRIVER_LNG, latitude, longitude);
+                notificationStates.put(entry.studentId(), new NotificationStateDTO(distance >= 1000 ? "FAR" : "NEAR",
+                        String.valueOf(distance), String.valueOf(now - 60_000), null));
+            }
+        }
+        roster = TravelRoster.of(entries, 500);
+    }
+
+    @Benchmark
+    public Map<UUID, NotificationStateDTO> kernel(Blackhole blackhole) {
+        batch.reset(roster.size());
+        for (int i = 0; i < roster.size(); i++) {
+            if (roster.hasPosition(i)) batch.loadPrevious(i, notificationStates.get(roster.studentId(i)));
+        }
+
+        kernel.evaluate(roster, DRIVER_LAT, DRIVER_LNG, now, batch);
+
+        Map<UUID, NotificationStateDTO> changedStates = new HashMap<>();
+        String nowMillis = String.valueOf(now);
+        String timestamp = String.valueOf(Instant.ofEpochMilli(now));
+        for (int i = 0; i < roster.size(); i++) {
+            ProximityAlertType alertType = batch.alert(i);
+            if (alertType == null) continue;
+
+            // no serviço o tipo vai no StudentProximityEvents
+            blackhole.consume(alertType);
+            changedStates.put(roster.studentId(i), new NotificationStateDTO(batch.zone(i), String.valueOf(batch.distance(i)), nowMillis, timestamp));
+        }
+        return changedStates;
+    }
+
+    @Benchmark
+    public Map<UUID, NotificationStateDTO> previousLoop(Blackhole blackhole) {
+        List<Integer> positioned = new ArrayList<>(roster.size());
+        // lista que ia para o readNotificationStates
+        List<UUID> studentIds = new ArrayList<>(roster.size());
+        for (int i = 0; i < roster.size(); i++) {
+            if (!roster.hasPosition(i)) continue;
+            positioned.add(i);
+            studentIds.add(roster.studentId(i));
+        }
+
+        Map<UUID, NotificationStateDTO> changedStates = new HashMap<>();
+        for (int i : positioned) {
+            UUID studentId = roster.studentId(i);
+            Double distance = DecodedRoute.haversine(DRIVER_LAT, DRIVER_LNG, roster.latitude(i), roster.longitude(i));
+
+            NotificationStateDTO readNotificationState = notificationStates.get(studentId);
+
+            String zone = distance >= 1000 ? "FAR" : "NEAR";
+            String nowMillis = String.valueOf(Instant.now().toEpochMilli());
+            String timestamp = String.valueOf(Instant.now());
+
+            if (!verifyNotificationState(distance, readNotificationState)) continue;
+
+            String alertType = "INITIAL_STATE";
+            if (readNotificationState != null && readNotificationState.zone() != null) {
+                if (!zone.equals(readNotificationState.zone())) {
+                    alertType = "ZONE_CHANGED";
+                } else {
+                    try {
+                        long elapsedMillis = Instant.now().toEpochMilli() - Long.parseLong(readNotificationState.lastNotificationAt());
+
+                        if (elapsedMillis >= 720000) {
+                            alertType = "TIME_ELAPSED";
+                        } else {
+                            double deltaDistance = Math.abs(distance - Double.parseDouble(readNotificationState.lastDistanceNotified()));
+                            alertType = deltaDistance >= (zone.equals("FAR") ? 200.0 : 30.0) ? "DISTANCE_STEP_REACHED" : "PERIODIC_UPDATE";
+                        }
+                    } catch (Exception e) {
+                        alertType = "STATE_RECOVERY";
+                    }
+                }
+            }
+
+            blackhole.consume(alertType);
+            changedStates.put(studentId, new NotificationStateDTO(zone, distance.toString(), nowMillis, timestamp));
+        }
+        return changedStates;
+    }
+
+    // RedisNotificationService.verifyNotificationState, sem a dependência do redis
+    private static boolean verifyNotificationState(Double currentDistanceMeters, NotificationStateDTO state) {
+        if (state == null || state.zone() == null || state.zone().isEmpty()) return true;
+        if (state.lastNotificationAt() == null || state.lastNotificationAt().isBlank()) return true;
+
+        long elapsedTime = Instant.now().toEpochMilli() - Long.parseLong(state.lastNotificationAt());
+        String currentZone = currentDistanceMeters >= 1000 ? "FAR" : "NEAR";
+        double step = currentDistanceMeters >= 1000 ? 200.0 : 30.0;
+
+        if (!currentZone.equals(state.zone())) return true;
+
+        double distanceDelta = Math.abs(Double.parseDouble(state.lastDistanceNotified()) - currentDistanceMeters);
+        if (distanceDelta >= step) return true;
+
+        return elapsedTime >= 720000L;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ProximityKernelBenchmark.class.getSimpleName()).build()).run();
+    }
+}
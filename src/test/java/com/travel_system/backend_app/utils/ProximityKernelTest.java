@@ -0,0 +1,132 @@
+package com.travel_system.backend_app.utils;
+
+import com.travel_system.backend_app.model.dtos.RosterEntryDTO;
+import com.travel_system.backend_app.model.dtos.response.NotificationStateDTO;
+import com.travel_system.backend_app.model.enums.ProximityAlertType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProximityKernelTest {
+    private static final double DRIVER_LAT = -23.55052;
+    private static final double DRIVER_LNG = -46.63331;
+    // ~1m em graus de latitude
+    private static final double METER = 1.0 / 111_195.0;
+
+    private final long now = 1_700_000_000_000L;
+
+    private TravelRoster rosterAt(double... metersNorth) {
+        List<RosterEntryDTO> entries = new ArrayList<>();
+        for (double meters : metersNorth) {
+            entries.add(new RosterEntryDTO(UUID.randomUUID(), DRIVER_LAT + meters * METER, DRIVER_LNG));
+        }
+        return TravelRoster.of(entries, 500);
+    }
+
+    @Nested
+    class evaluate {
+
+        @Test
+        @DisplayName("Should apply the same zone, step and repeat rules as the notification state check")
+        void shouldDecideAlerts() {
+            TravelRoster roster = rosterAt(500, 500, 1500, 500, 500, 500, 500);
+            ProximityKernel.Batch batch = new ProximityKernel.Batch();
+            batch.reset(roster.size());
+
+            String recent = String.valueOf(now - 60_000);
+            batch.loadPrevious(1, new NotificationStateDTO("NEAR", "510.0", recent, null));
+            batch.loadPrevious(2, new NotificationStateDTO("NEAR", "900.0", recent, null));
+            batch.loadPrevious(3, new NotificationStateDTO("NEAR", "560.0", recent, null));
+            batch.loadPrevious(4, new NotificationStateDTO("NEAR", "510.0", String.valueOf(now - 800_000), null));
+            batch.loadPrevious(5, new NotificationStateDTO("NEAR", "abc", recent, null));
+            batch.loadPrevious(6, new NotificationStateDTO("???", "510.0", recent, null));
+
+            new ProximityKernel(1024).evaluate(roster, DRIVER_LAT, DRIVER_LNG, now, batch);
+
+            assertEquals(ProximityAlertType.INITIAL_STATE, batch.alert(0));
+            assertNull(batch.alert(1));
+            assertEquals(ProximityAlertType.ZONE_CHANGED, batch.alert(2));
+            assertEquals("FAR", batch.zone(2));
+            assertEquals(ProximityAlertType.DISTANCE_STEP_REACHED, batch.alert(3));
+            assertEquals(ProximityAlertType.TIME_ELAPSED, batch.alert(4));
+            assertEquals(ProximityAlertType.STATE_RECOVERY, batch.alert(5));
+            assertEquals(ProximityAlertType.STATE_RECOVERY, batch.alert(6));
+            assertEquals(500.0, batch.distance(0), 0.5);
+        }
+
+        @Test
+        @DisplayName("Should match the haversine distances on the fork-join path")
+        void shouldMatchHaversineWhenSplit() {
+            Random random = new Random(7);
+            List<RosterEntryDTO> entries = new ArrayList<>();
+            for (int i = 0; i < 5_000; i++) {
+                boolean hasPosition = i % 50 != 0;
+                entries.add(new RosterEntryDTO(UUID.randomUUID(),
+                        hasPosition ? DRIVER_LAT + (random.nextDouble() - 0.5) * 0.2 : null,
+                        hasPosition ? DRIVER_LNG + (random.nextDouble() - 0.5) * 0.2 : null));
+            }
+            TravelRoster roster = TravelRoster.of(entries, 500);
+            ProximityKernel.Batch batch = new ProximityKernel.Batch();
+            batch.reset(roster.size());
+
+            new ProximityKernel(1024).evaluate(roster, DRIVER_LAT, DRIVER_LNG, now, batch);
+
+            for (int i = 0; i < roster.size(); i++) {
+                if (!roster.hasPosition(i)) {
+                    assertNull(batch.alert(i));
+                    continue;
+                }
+
+                double expected = DecodedRoute.haversine(DRIVER_LAT, DRIVER_LNG, roster.latitude(i), roster.longitude(i));
+                assertEquals(expected, batch.distance(i), 1e-6);
+                assertEquals(expected >= 1000 ? "FAR" : "NEAR", batch.zone(i));
+                assertEquals(ProximityAlertType.INITIAL_STATE, batch.alert(i));
+            }
+        }
+    }
+
+    @Nested
+    class evaluateCandidates {
+
+        @Test
+        @DisplayName("Should evaluate every student within the radius through the grid, including moved ones")
+        void shouldMatchFullEvaluationInsideRadius() {
+            Random random = new Random(11);
+            List<RosterEntryDTO> entries = new ArrayList<>();
+            for (int i = 0; i < 2_000; i++) {
+                entries.add(new RosterEntryDTO(UUID.randomUUID(),
+                        DRIVER_LAT + (random.nextDouble() - 0.5) * 0.1,
+                        DRIVER_LNG + (random.nextDouble() - 0.5) * 0.1));
+            }
+            // aluno movido para perto do ônibus depois da carga
+            TravelRoster roster = TravelRoster.of(entries, 500)
+                    .withPosition(entries.get(0).studentId(), DRIVER_LAT + 200 * METER, DRIVER_LNG);
+
+            ProximityKernel kernel = new ProximityKernel(1024);
+            ProximityKernel.Batch full = new ProximityKernel.Batch();
+            full.reset(roster.size());
+            kernel.evaluate(roster, DRIVER_LAT, DRIVER_LNG, now, full);
+
+            ProximityKernel.Batch filtered = new ProximityKernel.Batch();
+            filtered.reset(roster.size());
+            int candidateCount = roster.collectWithin(DRIVER_LAT, DRIVER_LNG, 1000, filtered.candidates());
+            kernel.evaluateCandidates(roster, DRIVER_LAT, DRIVER_LNG, now, filtered, candidateCount);
+
+            assertTrue(candidateCount < roster.size());
+            assertEquals(200.0, filtered.distance(0), 0.5);
+            for (int i = 0; i < roster.size(); i++) {
+                if (full.distance(i) < 1000) {
+                    assertEquals(full.alert(i), filtered.alert(i));
+                    assertEquals(full.distance(i), filtered.distance(i));
+                }
+            }
+        }
+    }
+}
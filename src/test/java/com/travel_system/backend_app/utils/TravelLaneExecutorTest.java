@@ -0,0 +1,96 @@
+package com.travel_system.backend_app.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TravelLaneExecutorTest {
+
+    @Test
+    @DisplayName("Should process the pings of each trip in submission order")
+    void shouldKeepPerTripOrder() throws InterruptedException {
+        TravelLaneExecutor travelLaneExecutor = new TravelLaneExecutor(4, 10_000);
+        int tripCount = 20;
+        int pingsPerTrip = 500;
+
+        List<UUID> trips = new ArrayList<>();
+        Map<UUID, List<Integer>> processed = new ConcurrentHashMap<>();
+        for (int i = 0; i < tripCount; i++) {
+            UUID travelId = UUID.randomUUID();
+            trips.add(travelId);
+            processed.put(travelId, Collections.synchronizedList(new ArrayList<>()));
+        }
+
+        CountDownLatch done = new CountDownLatch(tripCount * pingsPerTrip);
+
+        // pings das viagens intercalados, como chegam do controller
+        for (int ping = 0; ping < pingsPerTrip; ping++) {
+            for (UUID travelId : trips) {
+                int sequence = ping;
+                travelLaneExecutor.execute(travelId, () -> {
+                    processed.get(travelId).add(sequence);
+                    done.countDown();
+                });
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        travelLaneExecutor.shutdown();
+
+        for (UUID travelId : trips) {
+            List<Integer> sequence = processed.get(travelId);
+            assertEquals(pingsPerTrip, sequence.size());
+            for (int i = 0; i < pingsPerTrip; i++) {
+                assertEquals(i, sequence.get(i));
+            }
+        }
+        assertEquals(0, travelLaneExecutor.droppedTasks());
+    }
+
+    @Test
+    @DisplayName("Should reject the incoming task without dropping another trip's task on a full lane")
+    void shouldRejectIncomingTaskOnFullLane() throws InterruptedException {
+        // uma faixa só: as duas viagens dividem a mesma fila de 1 posição
+        TravelLaneExecutor travelLaneExecutor = new TravelLaneExecutor(1, 1);
+        UUID firstTravel = UUID.randomUUID();
+        UUID secondTravel = UUID.randomUUID();
+
+        CountDownLatch laneBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch firstDone = new CountDownLatch(1);
+        AtomicBoolean secondRan = new AtomicBoolean();
+
+        // ocupa a thread da faixa
+        travelLaneExecutor.execute(firstTravel, () -> {
+            laneBusy.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(laneBusy.await(5, TimeUnit.SECONDS));
+
+        // enche a fila com a tarefa da primeira viagem e tenta enfileirar a da segunda
+        travelLaneExecutor.execute(firstTravel, firstDone::countDown);
+        travelLaneExecutor.execute(secondTravel, () -> secondRan.set(true));
+        release.countDown();
+
+        assertTrue(firstDone.await(5, TimeUnit.SECONDS));
+        travelLaneExecutor.shutdown();
+
+        assertFalse(secondRan.get());
+        assertEquals(1, travelLaneExecutor.droppedTasks());
+    }
+}